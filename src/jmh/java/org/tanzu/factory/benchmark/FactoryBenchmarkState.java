@@ -0,0 +1,91 @@
+package org.tanzu.factory.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.tanzu.factory.FactoryApplication;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.supplychain.SupplyChainService;
+import org.tanzu.factory.supplychain.SupplyChainStatusCache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application once per fork with the data generator scaled to the requested size:
+ * {@code devicesPerStage} devices in each stage, each reporting {@code readingsPerHour} readings
+ * through every shift of the last {@code days} days. With {@code outputCaches} off the stage
+ * output cache and index are disabled, so output and status calls for the closed shift measure
+ * the query path rather than a lookup.
+ */
+@State(Scope.Benchmark)
+public class FactoryBenchmarkState {
+
+	@Param({"4"})
+	public int devicesPerStage;
+
+	@Param({"7"})
+	public int days;
+
+	@Param({"12"})
+	public int readingsPerHour;
+
+	@Param({"false", "true"})
+	public boolean outputCaches;
+
+	ConfigurableApplicationContext context;
+	FactoryService factoryService;
+	DeviceHealthRegistry healthRegistry;
+	SupplyChainService supplyChainService;
+	SupplyChainStatusCache statusCache;
+	LocalDate yesterday;
+	LocalDateTime shiftStart;
+	LocalDateTime shiftEnd;
+
+	private List<Long> deviceIds;
+	private int nextDevice;
+
+	@Setup(Level.Trial)
+	public void boot() {
+		context = new SpringApplicationBuilder(FactoryApplication.class)
+				.run("--server.port=0",
+						"--logging.level.root=WARN",
+						"--logging.level.io.modelcontextprotocol=WARN",
+						"--factory.seed.devices-per-stage=" + devicesPerStage,
+						"--factory.seed.days=" + days,
+						"--factory.seed.interval-minutes=" + Math.max(1, 60 / readingsPerHour),
+						"--factory.seed.random-seed=42",
+						"--factory.output-cache.enabled=" + outputCaches,
+						"--factory.output-index.enabled=" + outputCaches);
+		factoryService = context.getBean(FactoryService.class);
+		supplyChainService = context.getBean(SupplyChainService.class);
+		statusCache = context.getBean(SupplyChainStatusCache.class);
+		healthRegistry = context.getBean(DeviceHealthRegistry.class);
+		deviceIds = new ArrayList<>(healthRegistry.snapshot().deviceStages().keySet());
+
+		// Yesterday's shift is fully seeded, so output queries cover whole hours plus raw edges
+		yesterday = LocalDate.now().minusDays(1);
+		shiftStart = yesterday.atTime(SupplyChainService.SHIFT_START).plusMinutes(30);
+		shiftEnd = yesterday.atTime(SupplyChainService.SHIFT_END).minusMinutes(30);
+	}
+
+	@TearDown(Level.Trial)
+	public void close() {
+		context.close();
+	}
+
+	Long nextDeviceId() {
+		Long deviceId = deviceIds.get(nextDevice);
+		nextDevice = (nextDevice + 1) % deviceIds.size();
+		return deviceId;
+	}
+
+}
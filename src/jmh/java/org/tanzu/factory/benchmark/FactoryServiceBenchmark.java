@@ -0,0 +1,69 @@
+package org.tanzu.factory.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.ProductionOutputDto;
+import org.tanzu.factory.factory.StageHealthDto;
+import org.tanzu.factory.supplychain.SupplyChainStatusDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency distribution of the tool entry points. Run through the
+ * {@code benchmarks} Maven profile, which adds {@code -prof gc} for allocation rates and writes
+ * JSON results to {@code target/jmh-result.json}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FactoryServiceBenchmark {
+
+	@Benchmark
+	public List<StageHealthDto> manufacturingStagesHealth(FactoryBenchmarkState state) {
+		return state.factoryService.getManufacturingStagesHealth();
+	}
+
+	// Full load of the health view from the database, as after startup or a reload
+	@Benchmark
+	public DeviceHealthRegistry.Snapshot healthRegistryReload(FactoryBenchmarkState state) {
+		return state.healthRegistry.reload();
+	}
+
+	@Benchmark
+	public ProductionOutputDto stageOutput(FactoryBenchmarkState state) {
+		return state.factoryService.getStageOutput(1, state.shiftStart, state.shiftEnd);
+	}
+
+	@Benchmark
+	public List<ProductionOutputDto> allStagesOutput(FactoryBenchmarkState state) {
+		return state.factoryService.getAllStagesOutput(state.shiftStart, state.shiftEnd);
+	}
+
+	@Benchmark
+	public void recordProductionMetrics(FactoryBenchmarkState state) {
+		state.factoryService.recordProductionMetrics(state.nextDeviceId(), 10, 1, 5.5);
+	}
+
+	@Benchmark
+	public SupplyChainStatusDto supplyChainStatus(FactoryBenchmarkState state) {
+		return state.supplyChainService.getSupplyChainStatus(state.yesterday);
+	}
+
+	// Same call with the per-date cache emptied first, i.e. the cost after every write; only reaches
+	// the database when outputCaches is off
+	@Benchmark
+	public SupplyChainStatusDto supplyChainStatusUncached(FactoryBenchmarkState state) {
+		state.statusCache.invalidate(state.yesterday);
+		return state.supplyChainService.getSupplyChainStatus(state.yesterday);
+	}
+
+}
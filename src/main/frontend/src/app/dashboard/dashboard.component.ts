@@ -13,7 +13,7 @@ import { FactoryService } from '../services/factory.service';
 import { StageHealth } from '../models/stage-health.model';
 import { SupplyChainStatus } from '../models/supply-chain-status.model';
 import { trigger, transition, style, animate, state } from '@angular/animations';
-import { interval, Subject, Subscription } from 'rxjs';
+import { Subject, Subscription } from 'rxjs';
 import { takeUntil } from 'rxjs/operators';
 
 @Component({
@@ -65,9 +65,9 @@ export class DashboardComponent implements OnInit, OnDestroy {
   error = false;
   refreshState = 'idle';
 
-  // For auto-refresh
-  autoRefresh = false;
-  refreshInterval: Subscription | null = null;
+  // Live updates pushed by the server
+  autoRefresh = true;
+  liveUpdates: Subscription | null = null;
   private destroy$ = new Subject<void>();
 
   // Animated counters
@@ -89,15 +89,13 @@ export class DashboardComponent implements OnInit, OnDestroy {
 
   ngOnInit(): void {
     this.loadDashboardData();
+    this.startLiveUpdates();
   }
 
   ngOnDestroy(): void {
     this.destroy$.next();
     this.destroy$.complete();
-
-    if (this.refreshInterval) {
-      this.refreshInterval.unsubscribe();
-    }
+    this.stopLiveUpdates();
   }
 
   loadDashboardData(): void {
@@ -145,12 +143,44 @@ export class DashboardComponent implements OnInit, OnDestroy {
     this.autoRefresh = !this.autoRefresh;
 
     if (this.autoRefresh) {
-      this.refreshInterval = interval(30000) // Refresh every 30 seconds
-        .pipe(takeUntil(this.destroy$))
-        .subscribe(() => this.loadDashboardData());
-    } else if (this.refreshInterval) {
-      this.refreshInterval.unsubscribe();
-      this.refreshInterval = null;
+      this.startLiveUpdates();
+    } else {
+      this.stopLiveUpdates();
+    }
+  }
+
+  startLiveUpdates(): void {
+    this.stopLiveUpdates();
+    this.liveUpdates = new Subscription();
+
+    this.liveUpdates.add(this.supplyChainService.watchCurrentStatus()
+      .pipe(takeUntil(this.destroy$))
+      .subscribe(status => {
+        this.previousSupplyChainStatus = this.supplyChainStatus ? {...this.supplyChainStatus} : null;
+        this.supplyChainStatus = status;
+        this.calculateTrends();
+        this.animateCounters();
+        this.calculateDefectRate();
+      }));
+
+    // Stage health events only contain the stages that changed
+    this.liveUpdates.add(this.factoryService.watchStagesHealth()
+      .pipe(takeUntil(this.destroy$))
+      .subscribe(changedStages => {
+        const byId = new Map<number, StageHealth>(
+          this.stagesHealth.map(stage => [stage.stageId, stage] as [number, StageHealth]));
+        changedStages.forEach(stage => byId.set(stage.stageId, stage));
+        this.stagesHealth = Array.from(byId.values())
+          .sort((a, b) => a.sequenceOrder - b.sequenceOrder);
+        this.animateHealthScores();
+        this.calculateDefectRate();
+      }));
+  }
+
+  stopLiveUpdates(): void {
+    if (this.liveUpdates) {
+      this.liveUpdates.unsubscribe();
+      this.liveUpdates = null;
     }
   }
 
@@ -0,0 +1,52 @@
+import {Injectable, Inject, NgZone} from '@angular/core';
+import {DOCUMENT} from '@angular/common';
+import {Observable} from 'rxjs';
+
+// Shares one server-sent event connection between every component listening for live updates
+@Injectable({
+  providedIn: 'root'
+})
+export class FactoryStreamService {
+  private apiUrl = '/api/stream';
+  host = '';
+  protocol = '';
+  private eventSource: EventSource | null = null;
+  private listeners = 0;
+
+  constructor(private zone: NgZone, @Inject(DOCUMENT) private document: Document) {
+    if (this.document.location.hostname == 'localhost') {
+      this.host = 'localhost:8080';
+    } else this.host = this.document.location.host;
+    this.protocol = this.document.location.protocol;
+  }
+
+  events<T>(name: string): Observable<T> {
+    return new Observable<T>(subscriber => {
+      const source = this.connect();
+      const listener = (event: MessageEvent) =>
+        this.zone.run(() => subscriber.next(JSON.parse(event.data) as T));
+      source.addEventListener(name, listener as EventListener);
+
+      return () => {
+        source.removeEventListener(name, listener as EventListener);
+        this.release();
+      };
+    });
+  }
+
+  private connect(): EventSource {
+    if (!this.eventSource) {
+      this.eventSource = new EventSource(`${this.protocol}//${this.host}${this.apiUrl}`);
+    }
+    this.listeners++;
+    return this.eventSource;
+  }
+
+  private release(): void {
+    this.listeners--;
+    if (this.listeners === 0 && this.eventSource) {
+      this.eventSource.close();
+      this.eventSource = null;
+    }
+  }
+}
@@ -4,6 +4,7 @@ import {HttpClient} from '@angular/common/http';
 import {Observable} from 'rxjs';
 import {StageHealth} from '../models/stage-health.model';
 import {ProductionOutput} from '../models/production-output.model';
+import {FactoryStreamService} from './factory-stream.service';
 
 @Injectable({
   providedIn: 'root'
@@ -14,6 +15,7 @@ export class FactoryService {
   protocol = '';
 
   constructor(private http: HttpClient, private injector: Injector,
+              private stream: FactoryStreamService,
               @Inject(DOCUMENT) private document: Document) {
     if (this.document.location.hostname == 'localhost') {
       this.host = 'localhost:8080';
@@ -62,4 +64,9 @@ export class FactoryService {
       cycleTimeMinutes
     });
   }
+
+  // Live updates carry only the stages that changed
+  watchStagesHealth(): Observable<StageHealth[]> {
+    return this.stream.events<StageHealth[]>('stage-health');
+  }
 }
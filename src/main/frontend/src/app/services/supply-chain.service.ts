@@ -4,6 +4,7 @@ import {HttpClient} from '@angular/common/http';
 import {Observable} from 'rxjs';
 import {SupplyChainStatus} from '../models/supply-chain-status.model';
 import {DailyTarget} from '../models/daily-target.model';
+import {FactoryStreamService} from './factory-stream.service';
 
 @Injectable({
   providedIn: 'root'
@@ -14,6 +15,7 @@ export class SupplyChainService {
   protocol = '';
 
   constructor(private http: HttpClient, private injector: Injector,
+              private stream: FactoryStreamService,
               @Inject(DOCUMENT) private document: Document) {
     if (this.document.location.hostname == 'localhost') {
       this.host = 'localhost:8080';
@@ -25,6 +27,10 @@ export class SupplyChainService {
     return this.http.get<SupplyChainStatus>(`${this.protocol}//${this.host}${this.apiUrl}/status`);
   }
 
+  watchCurrentStatus(): Observable<SupplyChainStatus> {
+    return this.stream.events<SupplyChainStatus>('supply-chain-status');
+  }
+
   getStatusByDate(date: string): Observable<SupplyChainStatus> {
     return this.http.get<SupplyChainStatus>(`${this.protocol}//${this.host}${this.apiUrl}/status/${date}`);
   }
@@ -2,34 +2,59 @@ package org.tanzu.factory;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.tanzu.factory.factory.IoTDevice;
-import org.tanzu.factory.factory.ManufacturingStage;
-import org.tanzu.factory.factory.ProductionMetrics;
 import org.tanzu.factory.factory.IoTDeviceRepository;
+import org.tanzu.factory.factory.ManufacturingStage;
 import org.tanzu.factory.factory.ManufacturingStageRepository;
-import org.tanzu.factory.factory.ProductionMetricsRepository;
+import org.tanzu.factory.factory.MetricReading;
+import org.tanzu.factory.factory.ProductionMetricsWriter;
 import org.tanzu.factory.supplychain.DailyTarget;
 import org.tanzu.factory.supplychain.DailyTargetRepository;
+import org.tanzu.factory.supplychain.SupplyChainService;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Random;
-
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates synthetic factory data on startup. The defaults reproduce the demo plant (3 stages,
+ * 4 devices each, hourly readings for today's and yesterday's shift), and the {@code factory.seed.*}
+ * properties, validated on startup, scale it up for capacity testing or down to zero days of
+ * history. Each device's readings are generated by its own task and written in chunks through
+ * {@link ProductionMetricsWriter}, so heap use is bounded by parallelism times chunk size
+ * regardless of the total volume. Every random choice derives from one seed, so a run can be
+ * reproduced.
+ */
 @Component
 public class DataInitializer implements CommandLineRunner {
     private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
 
     private final ManufacturingStageRepository stageRepository;
     private final IoTDeviceRepository deviceRepository;
-    private final ProductionMetricsRepository metricsRepository;
     private final DailyTargetRepository targetRepository;
-    private final Random random = new Random();
+    private final ProductionMetricsWriter metricsWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int stageCount;
+    private final int devicesPerStage;
+    private final int days;
+    private final int intervalMinutes;
+    private final int chunkSize;
+    private final int parallelism;
+    private final long seed;
 
     private static final int MIN_DAILY_TARGET = 100;
     private static final int MAX_DAILY_TARGET = 160;
@@ -41,96 +66,183 @@ public class DataInitializer implements CommandLineRunner {
     private static final double MIN_HEALTHY_SCORE = 70.0;
     private static final double MIN_DEGRADED_SCORE = 20.0;
     private static final double MAX_DEGRADED_SCORE = 60.0;
+    // Unit and target ranges above are for the demo plant; larger plants scale them per device
+    private static final int DEMO_DEVICES_PER_STAGE = 4;
+
+    private record StageTemplate(String name, String description, List<DeviceTemplate> devices) {
+    }
+
+    private record DeviceTemplate(String deviceId, String name, String deviceType) {
+    }
+
+    private static final List<StageTemplate> DEMO_STAGES = List.of(
+            new StageTemplate("Body Assembly", "Vehicle body assembly and welding", List.of(
+                    new DeviceTemplate("BA-WR-001", "Welding Robot 1", "WELDING_ROBOT"),
+                    new DeviceTemplate("BA-WR-002", "Welding Robot 2", "WELDING_ROBOT"),
+                    new DeviceTemplate("BA-SP-001", "Stamping Press 1", "STAMPING_PRESS"),
+                    new DeviceTemplate("BA-QS-001", "Quality Scanner 1", "QUALITY_SCANNER"))),
+            new StageTemplate("Paint Shop", "Vehicle painting and coating", List.of(
+                    new DeviceTemplate("PS-PR-001", "Paint Robot 1", "PAINT_ROBOT"),
+                    new DeviceTemplate("PS-PR-002", "Paint Robot 2", "PAINT_ROBOT"),
+                    new DeviceTemplate("PS-DO-001", "Drying Oven 1", "DRYING_OVEN"),
+                    new DeviceTemplate("PS-CM-001", "Color Mixer 1", "COLOR_MIXER"))),
+            new StageTemplate("Final Assembly", "Engine, interior, and final component assembly", List.of(
+                    new DeviceTemplate("FA-DA-001", "Dashboard Assembler", "ASSEMBLY_ROBOT"),
+                    new DeviceTemplate("FA-EM-001", "Engine Mounting Robot", "ASSEMBLY_ROBOT"),
+                    new DeviceTemplate("FA-WL-001", "Wire Loom Installer", "ASSEMBLY_ROBOT"),
+                    new DeviceTemplate("FA-FI-001", "Final Inspection Scanner", "QUALITY_SCANNER"))));
 
     public DataInitializer(ManufacturingStageRepository stageRepository,
                            IoTDeviceRepository deviceRepository,
-                           ProductionMetricsRepository metricsRepository,
-                           DailyTargetRepository targetRepository) {
+                           DailyTargetRepository targetRepository,
+                           ProductionMetricsWriter metricsWriter,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${factory.seed.stages:3}") int stageCount,
+                           @Value("${factory.seed.devices-per-stage:4}") int devicesPerStage,
+                           @Value("${factory.seed.days:2}") int days,
+                           @Value("${factory.seed.interval-minutes:60}") int intervalMinutes,
+                           @Value("${factory.seed.chunk-size:5000}") int chunkSize,
+                           @Value("${factory.seed.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int parallelism,
+                           @Value("${factory.seed.random-seed:#{T(java.lang.System).nanoTime()}}") long seed) {
+        requireAtLeast("factory.seed.stages", stageCount, 1);
+        requireAtLeast("factory.seed.devices-per-stage", devicesPerStage, 1);
+        requireAtLeast("factory.seed.days", days, 0);
+        requireAtLeast("factory.seed.interval-minutes", intervalMinutes, 1);
+        requireAtLeast("factory.seed.chunk-size", chunkSize, 1);
+        requireAtLeast("factory.seed.parallelism", parallelism, 1);
         this.stageRepository = stageRepository;
         this.deviceRepository = deviceRepository;
-        this.metricsRepository = metricsRepository;
         this.targetRepository = targetRepository;
+        this.metricsWriter = metricsWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.stageCount = stageCount;
+        this.devicesPerStage = devicesPerStage;
+        this.days = days;
+        this.intervalMinutes = intervalMinutes;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.seed = seed;
     }
 
     @Override
-    @Transactional
-    public void run(String... args) {
+    public void run(String... args) throws InterruptedException, ExecutionException {
         if (stageRepository.count() > 0) {
             return;
         }
 
-        log.info("Generating random factory data for today's date...");
+        log.info("Generating factory data: {} stages x {} devices, {} days of readings every {} min (seed {})",
+                stageCount, devicesPerStage, days, intervalMinutes, seed);
 
-        ManufacturingStage bodyAssembly = new ManufacturingStage("Body Assembly", 1,
-                "Vehicle body assembly and welding");
-        ManufacturingStage paintShop = new ManufacturingStage("Paint Shop", 2,
-                "Vehicle painting and coating");
-        ManufacturingStage finalAssembly = new ManufacturingStage("Final Assembly", 3,
-                "Engine, interior, and final component assembly");
+        SplittableRandom random = new SplittableRandom(seed);
+        double scale = (double) devicesPerStage / DEMO_DEVICES_PER_STAGE;
+        LocalDate today = LocalDate.now();
 
-        stageRepository.saveAll(List.of(bodyAssembly, paintShop, finalAssembly));
+        List<ManufacturingStage> stages = createStages();
+        List<IoTDevice> allDevices = createDevices(stages);
+        randomizeDeviceHealth(allDevices, random);
+        transactionTemplate.executeWithoutResult(status -> {
+            stageRepository.saveAll(stages);
+            deviceRepository.saveAll(allDevices);
+        });
+
+        List<DailyTarget> targets = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            targets.add(new DailyTarget(today.minusDays(day),
+                    (int) Math.round(randomBetween(random, MIN_DAILY_TARGET, MAX_DAILY_TARGET) * scale)));
+        }
+        targetRepository.saveAll(targets);
+        if (!targets.isEmpty()) {
+            log.info("Daily target today: {} units", targets.get(0).getTargetUnits());
+        }
 
-        List<IoTDevice> allDevices = createDevices(bodyAssembly, paintShop, finalAssembly);
-        randomizeDeviceHealth(allDevices);
-        deviceRepository.saveAll(allDevices);
+        // Decide every device's daily units up front so the parallel tasks only need their own random
+        List<DeviceTask> tasks = new ArrayList<>();
+        for (ManufacturingStage stage : stages) {
+            List<IoTDevice> operationalDevices = allDevices.stream()
+                    .filter(device -> device.getStage() == stage && device.isOperational())
+                    .toList();
+            int[][] unitsByDevice = new int[operationalDevices.size()][days];
+            int[][] defectsByDevice = new int[operationalDevices.size()][days];
+            for (int day = 0; day < days; day++) {
+                int stageUnits = (int) Math.round(randomBetween(random, MIN_STAGE_UNITS, MAX_STAGE_UNITS) * scale);
+                int stageDefects = randomDefects(random, stageUnits);
+                for (int i = 0; i < operationalDevices.size(); i++) {
+                    unitsByDevice[i][day] = share(stageUnits, operationalDevices.size(), i);
+                    defectsByDevice[i][day] = share(stageDefects, operationalDevices.size(), i);
+                }
+                if (day < 2 && stageCount <= DEMO_STAGES.size()) {
+                    log.info("{} — {}: {} units, {} defects", today.minusDays(day), stage.getName(),
+                            stageUnits, stageDefects);
+                }
+            }
+            for (int i = 0; i < operationalDevices.size(); i++) {
+                tasks.add(new DeviceTask(operationalDevices.get(i).getId(), unitsByDevice[i], defectsByDevice[i],
+                        random.split()));
+            }
+        }
 
-        LocalDate today = LocalDate.now();
-        LocalDate yesterday = today.minusDays(1);
-
-        int todayTargetUnits = randomBetween(MIN_DAILY_TARGET, MAX_DAILY_TARGET);
-        int yesterdayTargetUnits = randomBetween(MIN_DAILY_TARGET, MAX_DAILY_TARGET);
-        targetRepository.save(new DailyTarget(today, todayTargetUnits));
-        targetRepository.save(new DailyTarget(yesterday, yesterdayTargetUnits));
-        log.info("Daily targets — today: {}, yesterday: {}", todayTargetUnits, yesterdayTargetUnits);
-
-        LocalDateTime todayShiftStart = LocalDateTime.of(today, LocalTime.of(8, 0));
-        LocalDateTime yesterdayShiftStart = LocalDateTime.of(yesterday, LocalTime.of(8, 0));
-
-        for (ManufacturingStage stage : List.of(bodyAssembly, paintShop, finalAssembly)) {
-            int todayUnits = randomBetween(MIN_STAGE_UNITS, MAX_STAGE_UNITS);
-            int todayDefects = randomDefects(todayUnits);
-            generateMetrics(stage.getId(), todayShiftStart, todayUnits, todayDefects);
-            log.info("Today — {}: {} units, {} defects", stage.getName(), todayUnits, todayDefects);
-
-            int yesterdayUnits = randomBetween(MIN_STAGE_UNITS, MAX_STAGE_UNITS);
-            int yesterdayDefects = randomDefects(yesterdayUnits);
-            generateMetrics(stage.getId(), yesterdayShiftStart, yesterdayUnits, yesterdayDefects);
-            log.info("Yesterday — {}: {} units, {} defects", stage.getName(), yesterdayUnits, yesterdayDefects);
+        long started = System.nanoTime();
+        AtomicLong written = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (DeviceTask task : tasks) {
+                futures.add(executor.submit(() -> generateMetrics(task, today, written)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
         }
 
-        log.info("Random factory data generation complete.");
+        log.info("Factory data generation complete: {} readings in {} ms",
+                written.get(), (System.nanoTime() - started) / 1_000_000);
     }
 
-    private List<IoTDevice> createDevices(ManufacturingStage bodyAssembly,
-                                          ManufacturingStage paintShop,
-                                          ManufacturingStage finalAssembly) {
-        List<IoTDevice> devices = new ArrayList<>();
-
-        devices.add(new IoTDevice("BA-WR-001", "Welding Robot 1", "WELDING_ROBOT", bodyAssembly));
-        devices.add(new IoTDevice("BA-WR-002", "Welding Robot 2", "WELDING_ROBOT", bodyAssembly));
-        devices.add(new IoTDevice("BA-SP-001", "Stamping Press 1", "STAMPING_PRESS", bodyAssembly));
-        devices.add(new IoTDevice("BA-QS-001", "Quality Scanner 1", "QUALITY_SCANNER", bodyAssembly));
-
-        devices.add(new IoTDevice("PS-PR-001", "Paint Robot 1", "PAINT_ROBOT", paintShop));
-        devices.add(new IoTDevice("PS-PR-002", "Paint Robot 2", "PAINT_ROBOT", paintShop));
-        devices.add(new IoTDevice("PS-DO-001", "Drying Oven 1", "DRYING_OVEN", paintShop));
-        devices.add(new IoTDevice("PS-CM-001", "Color Mixer 1", "COLOR_MIXER", paintShop));
+    private record DeviceTask(Long deviceId, int[] unitsByDay, int[] defectsByDay, SplittableRandom random) {
+    }
 
-        devices.add(new IoTDevice("FA-DA-001", "Dashboard Assembler", "ASSEMBLY_ROBOT", finalAssembly));
-        devices.add(new IoTDevice("FA-EM-001", "Engine Mounting Robot", "ASSEMBLY_ROBOT", finalAssembly));
-        devices.add(new IoTDevice("FA-WL-001", "Wire Loom Installer", "ASSEMBLY_ROBOT", finalAssembly));
-        devices.add(new IoTDevice("FA-FI-001", "Final Inspection Scanner", "QUALITY_SCANNER", finalAssembly));
+    private List<ManufacturingStage> createStages() {
+        List<ManufacturingStage> stages = new ArrayList<>();
+        for (int order = 1; order <= stageCount; order++) {
+            if (order <= DEMO_STAGES.size()) {
+                StageTemplate template = DEMO_STAGES.get(order - 1);
+                stages.add(new ManufacturingStage(template.name(), order, template.description()));
+            } else {
+                stages.add(new ManufacturingStage("Stage " + order, order, "Generated stage " + order));
+            }
+        }
+        return stages;
+    }
 
+    private List<IoTDevice> createDevices(List<ManufacturingStage> stages) {
+        List<IoTDevice> devices = new ArrayList<>();
+        for (ManufacturingStage stage : stages) {
+            int order = stage.getSequenceOrder();
+            List<DeviceTemplate> templates = order <= DEMO_STAGES.size()
+                    ? DEMO_STAGES.get(order - 1).devices()
+                    : List.of();
+            for (int i = 0; i < devicesPerStage; i++) {
+                if (i < templates.size()) {
+                    DeviceTemplate template = templates.get(i);
+                    devices.add(new IoTDevice(template.deviceId(), template.name(), template.deviceType(), stage));
+                } else {
+                    devices.add(new IoTDevice(String.format("S%d-DV-%04d", order, i + 1),
+                            "Device " + (i + 1), "GENERIC", stage));
+                }
+            }
+        }
         return devices;
     }
 
-    private void randomizeDeviceHealth(List<IoTDevice> devices) {
+    private void randomizeDeviceHealth(List<IoTDevice> devices, SplittableRandom random) {
         for (IoTDevice device : devices) {
             if (random.nextDouble() < DEVICE_FAILURE_PROBABILITY) {
                 device.setOperational(false);
                 device.setHealthScore(roundTo1Decimal(
                         MIN_DEGRADED_SCORE + random.nextDouble() * (MAX_DEGRADED_SCORE - MIN_DEGRADED_SCORE)));
-                log.info("Device {} is non-operational (health: {})", device.getName(), device.getHealthScore());
+                log.debug("Device {} is non-operational (health: {})", device.getName(), device.getHealthScore());
             } else {
                 device.setOperational(true);
                 double healthScore = MIN_HEALTHY_SCORE + random.nextDouble() * (100.0 - MIN_HEALTHY_SCORE);
@@ -139,13 +251,13 @@ public class DataInitializer implements CommandLineRunner {
         }
 
         // Ensure at least one device per stage is operational
-        ensureMinOperationalPerStage(devices);
+        ensureMinOperationalPerStage(devices, random);
     }
 
-    private void ensureMinOperationalPerStage(List<IoTDevice> devices) {
-        var byStage = new java.util.HashMap<Long, List<IoTDevice>>();
+    private void ensureMinOperationalPerStage(List<IoTDevice> devices, SplittableRandom random) {
+        Map<ManufacturingStage, List<IoTDevice>> byStage = new HashMap<>();
         for (IoTDevice d : devices) {
-            byStage.computeIfAbsent(d.getStage().getId(), k -> new ArrayList<>()).add(d);
+            byStage.computeIfAbsent(d.getStage(), k -> new ArrayList<>()).add(d);
         }
         for (var entry : byStage.entrySet()) {
             boolean hasOperational = entry.getValue().stream().anyMatch(IoTDevice::isOperational);
@@ -159,57 +271,52 @@ public class DataInitializer implements CommandLineRunner {
         }
     }
 
-    private void generateMetrics(Long stageId, LocalDateTime startTime, int totalUnits, int totalDefects) {
-        List<IoTDevice> stageDevices = deviceRepository.findByStage(
-                stageRepository.findById(stageId).orElseThrow());
-
-        List<IoTDevice> operationalDevices = stageDevices.stream()
-                .filter(IoTDevice::isOperational)
-                .toList();
-
-        int devicesCount = operationalDevices.size();
-        if (devicesCount == 0) return;
-
-        int baseUnitsPerDevice = totalUnits / devicesCount;
-        int remainingUnits = totalUnits % devicesCount;
-
-        int baseDefectsPerDevice = totalDefects / devicesCount;
-        int remainingDefects = totalDefects % devicesCount;
-
-        int hoursInShift = 8;
-
-        for (int i = 0; i < operationalDevices.size(); i++) {
-            IoTDevice device = operationalDevices.get(i);
-
-            int deviceUnits = baseUnitsPerDevice + (i < remainingUnits ? 1 : 0);
-            int deviceDefects = baseDefectsPerDevice + (i < remainingDefects ? 1 : 0);
-
-            int baseUnitsPerHour = deviceUnits / hoursInShift;
-            int remainingUnitsHourly = deviceUnits % hoursInShift;
-
-            int baseDefectsPerHour = deviceDefects / hoursInShift;
-            int remainingDefectsHourly = deviceDefects % hoursInShift;
-
-            for (int hour = 0; hour < hoursInShift; hour++) {
-                LocalDateTime hourTime = startTime.plusHours(hour);
-
-                int hourlyUnits = baseUnitsPerHour + (hour < remainingUnitsHourly ? 1 : 0);
-                int hourlyDefects = baseDefectsPerHour + (hour < remainingDefectsHourly ? 1 : 0);
-
-                double cycleTimeMinutes = roundTo1Decimal(4.0 + random.nextDouble() * 4.0);
-
-                ProductionMetrics metrics = new ProductionMetrics(
-                        hourTime, hourlyUnits, hourlyDefects, cycleTimeMinutes, device);
-                metricsRepository.save(metrics);
+    // Spreads each day's units and defects evenly over the device's readings in the shift
+    private void generateMetrics(DeviceTask task, LocalDate today, AtomicLong written) {
+        long shiftMinutes = ChronoUnit.MINUTES.between(SupplyChainService.SHIFT_START, SupplyChainService.SHIFT_END);
+        int readingsPerShift = (int) Math.max(1, shiftMinutes / intervalMinutes);
+        List<MetricReading> chunk = new ArrayList<>(chunkSize);
+
+        for (int day = days - 1; day >= 0; day--) {
+            LocalDateTime shiftStart = LocalDateTime.of(today.minusDays(day), SupplyChainService.SHIFT_START);
+            int units = task.unitsByDay()[day];
+            int defects = task.defectsByDay()[day];
+            for (int reading = 0; reading < readingsPerShift; reading++) {
+                chunk.add(new MetricReading(
+                        task.deviceId(),
+                        shiftStart.plusMinutes((long) reading * intervalMinutes),
+                        share(units, readingsPerShift, reading),
+                        share(defects, readingsPerShift, reading),
+                        roundTo1Decimal(4.0 + task.random().nextDouble() * 4.0)));
+                if (chunk.size() == chunkSize) {
+                    metricsWriter.write(chunk);
+                    written.addAndGet(chunk.size());
+                    chunk = new ArrayList<>(chunkSize);
+                }
             }
         }
+        if (!chunk.isEmpty()) {
+            metricsWriter.write(chunk);
+            written.addAndGet(chunk.size());
+        }
+    }
+
+    private static void requireAtLeast(String property, int value, int min) {
+        if (value < min) {
+            throw new IllegalArgumentException(property + " must be at least " + min + " but was " + value);
+        }
+    }
+
+    // Part i of total split into n near-equal parts, with the remainder going to the first parts
+    private static int share(int total, int parts, int i) {
+        return total / parts + (i < total % parts ? 1 : 0);
     }
 
-    private int randomBetween(int min, int max) {
+    private int randomBetween(SplittableRandom random, int min, int max) {
         return min + random.nextInt(max - min + 1);
     }
 
-    private int randomDefects(int totalUnits) {
+    private int randomDefects(SplittableRandom random, int totalUnits) {
         double defectRate = DEFECT_RATE_MIN + random.nextDouble() * (DEFECT_RATE_MAX - DEFECT_RATE_MIN);
         return Math.max(1, (int) Math.round(totalUnits * defectRate));
     }
@@ -217,4 +324,4 @@ public class DataInitializer implements CommandLineRunner {
     private double roundTo1Decimal(double value) {
         return Math.round(value * 10.0) / 10.0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,4 @@
+package org.tanzu.factory.alert;
+
+// Published when an alert is raised (active) or resolved
+public record AlertChangedEvent(AlertDto alert, boolean active) {}
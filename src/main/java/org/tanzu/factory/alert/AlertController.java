@@ -0,0 +1,47 @@
+package org.tanzu.factory.alert;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+    private final AlertService alertService;
+
+    public AlertController(AlertService alertService) {
+        this.alertService = alertService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<AlertDto>> getActiveAlerts() {
+        return ResponseEntity.ok(alertService.getActiveAlerts());
+    }
+
+    @GetMapping("/rules")
+    public ResponseEntity<List<AlertRule>> getAlertRules() {
+        return ResponseEntity.ok(alertService.getAlertRules());
+    }
+
+    @PutMapping("/rules/{ruleId}")
+    public ResponseEntity<?> putAlertRule(@PathVariable String ruleId, @RequestBody AlertRule rule) {
+        AlertRule withId = new AlertRule(ruleId, rule.type(), rule.stageId(), rule.threshold(),
+                rule.windowMinutes(), rule.baselineMinutes(), rule.minSamples());
+        String reason = alertService.putAlertRule(withId);
+        if (reason != null) {
+            return ResponseEntity.badRequest().body(ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, reason));
+        }
+        return ResponseEntity.ok(withId);
+    }
+
+    @DeleteMapping("/rules/{ruleId}")
+    public ResponseEntity<Void> deleteAlertRule(@PathVariable String ruleId) {
+        if (alertService.deleteAlertRule(ruleId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,15 @@
+package org.tanzu.factory.alert;
+
+import java.time.LocalDateTime;
+
+// Device rules set deviceId; stage rules leave it null
+public record AlertDto(
+        String ruleId,
+        AlertRuleType type,
+        Long stageId,
+        Long deviceId,
+        double value,
+        double threshold,
+        String message,
+        LocalDateTime raisedAt
+) {}
@@ -0,0 +1,356 @@
+package org.tanzu.factory.alert;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.tanzu.factory.factory.DeviceHealthChangedEvent;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.MetricReading;
+import org.tanzu.factory.factory.ProductionMetricsRecordedEvent;
+import org.tanzu.factory.factory.StageHealthDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates alert rules as health changes and production readings are committed, instead of
+ * scanning tables on a schedule. Rules are indexed by type and stage, so a change is only checked
+ * against the rules that can match it. Health rules read the health registry; rolling rules keep
+ * per-minute {@link SlidingWindow}s in event time, so each reading costs O(1) per matching rule
+ * whatever the length of the window. Readings stamped further ahead of the clock than the
+ * future tolerance are left out of the windows, since they would move every window past the
+ * live readings that follow. A rolling alert whose window has received nothing for a whole window
+ * length of wall-clock time, as when a line stops, is resolved by a periodic check instead of
+ * staying active until the next reading. Raised and resolved alerts are published as
+ * {@link AlertChangedEvent}s.
+ */
+@Component
+public class AlertEngine {
+    private record AlertKey(String ruleId, Long stageId, Long deviceId) {}
+
+    private record DriftWindows(SlidingWindow recent, SlidingWindow baseline) {}
+
+    private final DeviceHealthRegistry healthRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long futureToleranceSeconds;
+
+    // Guards the rules, windows and active alerts; evaluations are short and never touch the database
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, AlertRule> rules = new LinkedHashMap<>();
+    // Type, then stage (null for rules that apply to every stage)
+    private final Map<AlertRuleType, Map<Long, List<AlertRule>>> rulesByType = new EnumMap<>(AlertRuleType.class);
+    // Rule, then stage
+    private final Map<String, Map<Long, SlidingWindow>> defectWindows = new HashMap<>();
+    // Rule, then device
+    private final Map<String, Map<Long, DriftWindows>> driftWindows = new HashMap<>();
+    private final Map<AlertKey, AlertDto> active = new LinkedHashMap<>();
+
+    public AlertEngine(DeviceHealthRegistry healthRegistry,
+                       ApplicationEventPublisher eventPublisher,
+                       @Value("${factory.alerts.enabled:true}") boolean enabled,
+                       @Value("${factory.alerts.device-health-below:50}") double deviceHealthBelow,
+                       @Value("${factory.alerts.operational-devices-below-percent:75}") double operationalBelowPercent,
+                       @Value("${factory.alerts.defect-rate-above-percent:10}") double defectRateAbovePercent,
+                       @Value("${factory.alerts.defect-rate-window-minutes:60}") int defectRateWindowMinutes,
+                       @Value("${factory.alerts.defect-rate-min-units:50}") long defectRateMinUnits,
+                       @Value("${factory.alerts.cycle-time-drift-above-percent:25}") double cycleTimeDriftAbovePercent,
+                       @Value("${factory.alerts.cycle-time-window-minutes:30}") int cycleTimeWindowMinutes,
+                       @Value("${factory.alerts.cycle-time-baseline-minutes:480}") int cycleTimeBaselineMinutes,
+                       @Value("${factory.alerts.cycle-time-min-samples:5}") long cycleTimeMinSamples,
+                       @Value("${factory.alerts.future-tolerance-minutes:5}") long futureToleranceMinutes) {
+        this.healthRegistry = healthRegistry;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.futureToleranceSeconds = futureToleranceMinutes * 60;
+        if (enabled) {
+            addRule(new AlertRule("device-health", AlertRuleType.DEVICE_HEALTH_BELOW, null,
+                    deviceHealthBelow, 0, 0, 0));
+            addRule(new AlertRule("operational-devices", AlertRuleType.OPERATIONAL_DEVICES_BELOW, null,
+                    operationalBelowPercent, 0, 0, 0));
+            addRule(new AlertRule("defect-rate", AlertRuleType.DEFECT_RATE_ABOVE, null,
+                    defectRateAbovePercent, defectRateWindowMinutes, 0, defectRateMinUnits));
+            addRule(new AlertRule("cycle-time-drift", AlertRuleType.CYCLE_TIME_DRIFT_ABOVE, null,
+                    cycleTimeDriftAbovePercent, cycleTimeWindowMinutes, cycleTimeBaselineMinutes, cycleTimeMinSamples));
+        }
+    }
+
+    public List<AlertDto> getActiveAlerts() {
+        lock.lock();
+        try {
+            return List.copyOf(active.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<AlertRule> getRules() {
+        lock.lock();
+        try {
+            return List.copyOf(rules.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replaces any rule with the same id; rolling rules start from empty windows
+    public void putRule(AlertRule rule) {
+        List<AlertChangedEvent> changes = new ArrayList<>();
+        lock.lock();
+        try {
+            removeRule(rule.id(), changes);
+            addRule(rule);
+            if (rule.type() == AlertRuleType.DEVICE_HEALTH_BELOW || rule.type() == AlertRuleType.OPERATIONAL_DEVICES_BELOW) {
+                evaluateHealth(rule, healthRegistry.snapshot(), changes);
+            }
+        } finally {
+            lock.unlock();
+        }
+        changes.forEach(eventPublisher::publishEvent);
+    }
+
+    public boolean deleteRule(String ruleId) {
+        List<AlertChangedEvent> changes = new ArrayList<>();
+        boolean removed;
+        lock.lock();
+        try {
+            removed = removeRule(ruleId, changes);
+        } finally {
+            lock.unlock();
+        }
+        changes.forEach(eventPublisher::publishEvent);
+        return removed;
+    }
+
+    private void addRule(AlertRule rule) {
+        rules.put(rule.id(), rule);
+        rulesByType.computeIfAbsent(rule.type(), k -> new HashMap<>())
+                .computeIfAbsent(rule.stageId(), k -> new ArrayList<>())
+                .add(rule);
+    }
+
+    private boolean removeRule(String ruleId, List<AlertChangedEvent> changes) {
+        AlertRule rule = rules.remove(ruleId);
+        if (rule == null) {
+            return false;
+        }
+        rulesByType.get(rule.type()).get(rule.stageId()).remove(rule);
+        defectWindows.remove(ruleId);
+        driftWindows.remove(ruleId);
+        Iterator<Map.Entry<AlertKey, AlertDto>> iterator = active.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<AlertKey, AlertDto> entry = iterator.next();
+            if (entry.getKey().ruleId().equals(ruleId)) {
+                changes.add(new AlertChangedEvent(entry.getValue(), false));
+                iterator.remove();
+            }
+        }
+        return true;
+    }
+
+    private List<AlertRule> matching(AlertRuleType type, Long stageId) {
+        Map<Long, List<AlertRule>> byStage = rulesByType.get(type);
+        if (byStage == null) {
+            return List.of();
+        }
+        List<AlertRule> global = byStage.getOrDefault(null, List.of());
+        List<AlertRule> forStage = byStage.getOrDefault(stageId, List.of());
+        if (forStage.isEmpty()) {
+            return global;
+        }
+        List<AlertRule> both = new ArrayList<>(global);
+        both.addAll(forStage);
+        return both;
+    }
+
+    // The registry may already hold devices that breach a rule before any change arrives
+    @EventListener(ApplicationReadyEvent.class)
+    public void evaluateCurrentHealth() {
+        if (!enabled) {
+            return;
+        }
+        List<AlertChangedEvent> changes = new ArrayList<>();
+        lock.lock();
+        try {
+            DeviceHealthRegistry.Snapshot snapshot = healthRegistry.snapshot();
+            for (AlertRule rule : rules.values()) {
+                evaluateHealth(rule, snapshot, changes);
+            }
+        } finally {
+            lock.unlock();
+        }
+        changes.forEach(eventPublisher::publishEvent);
+    }
+
+    private void evaluateHealth(AlertRule rule, DeviceHealthRegistry.Snapshot snapshot, List<AlertChangedEvent> changes) {
+        for (StageHealthDto stage : snapshot.stages().values()) {
+            if (rule.stageId() != null && !rule.stageId().equals(stage.stageId())) {
+                continue;
+            }
+            if (rule.type() == AlertRuleType.DEVICE_HEALTH_BELOW) {
+                for (DeviceHealthDto device : stage.devices()) {
+                    update(rule, stage.stageId(), device.id(), device.healthScore(), changes);
+                }
+            } else if (rule.type() == AlertRuleType.OPERATIONAL_DEVICES_BELOW) {
+                update(rule, stage.stageId(), null, operationalPercent(stage), changes);
+            }
+        }
+    }
+
+    // The registry applies the change first, so the stage's operational count already includes it
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceHealthChanged(DeviceHealthChangedEvent event) {
+        // An event overtaken by a newer sample would evaluate a score the device no longer has
+        if (!enabled || !healthRegistry.isCurrent(event)) {
+            return;
+        }
+        DeviceHealthRegistry.Snapshot snapshot = healthRegistry.snapshot();
+        Long stageId = snapshot.deviceStages().get(event.deviceId());
+        if (stageId == null) {
+            return;
+        }
+        List<AlertChangedEvent> changes = new ArrayList<>();
+        lock.lock();
+        try {
+            for (AlertRule rule : matching(AlertRuleType.DEVICE_HEALTH_BELOW, stageId)) {
+                update(rule, stageId, event.deviceId(), event.healthScore(), changes);
+            }
+            StageHealthDto stage = snapshot.stages().get(stageId);
+            for (AlertRule rule : matching(AlertRuleType.OPERATIONAL_DEVICES_BELOW, stageId)) {
+                update(rule, stageId, null, operationalPercent(stage), changes);
+            }
+        } finally {
+            lock.unlock();
+        }
+        changes.forEach(eventPublisher::publishEvent);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsRecorded(ProductionMetricsRecordedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, Long> deviceStages = healthRegistry.snapshot().deviceStages();
+        long latestSecond = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) + futureToleranceSeconds;
+        List<AlertChangedEvent> changes = new ArrayList<>();
+        lock.lock();
+        try {
+            // Windows take every reading, but each rule and subject is evaluated once per batch
+            Map<AlertKey, AlertRule> touched = new LinkedHashMap<>();
+            for (MetricReading reading : event.readings()) {
+                Long stageId = deviceStages.get(reading.deviceId());
+                if (stageId == null) {
+                    continue;
+                }
+                long second = reading.timestamp().toEpochSecond(ZoneOffset.UTC);
+                if (second > latestSecond) {
+                    continue;
+                }
+                long minute = Math.floorDiv(second, 60);
+                for (AlertRule rule : matching(AlertRuleType.DEFECT_RATE_ABOVE, stageId)) {
+                    defectWindows.computeIfAbsent(rule.id(), k -> new HashMap<>())
+                            .computeIfAbsent(stageId, k -> new SlidingWindow(rule.windowMinutes()))
+                            .add(minute, reading.unitsProduced(), reading.defectiveUnits());
+                    touched.put(new AlertKey(rule.id(), stageId, null), rule);
+                }
+                for (AlertRule rule : matching(AlertRuleType.CYCLE_TIME_DRIFT_ABOVE, stageId)) {
+                    DriftWindows windows = driftWindows.computeIfAbsent(rule.id(), k -> new HashMap<>())
+                            .computeIfAbsent(reading.deviceId(), k -> new DriftWindows(
+                                    new SlidingWindow(rule.windowMinutes()),
+                                    new SlidingWindow(rule.windowMinutes() + rule.baselineMinutes())));
+                    windows.recent().add(minute, 1, reading.cycleTimeMinutes());
+                    windows.baseline().add(minute, 1, reading.cycleTimeMinutes());
+                    touched.put(new AlertKey(rule.id(), stageId, reading.deviceId()), rule);
+                }
+            }
+            touched.forEach((key, rule) -> evaluateRolling(rule, key, changes));
+        } finally {
+            lock.unlock();
+        }
+        changes.forEach(eventPublisher::publishEvent);
+    }
+
+    @Scheduled(fixedDelayString = "${factory.alerts.idle-check-ms:60000}")
+    public void resolveIdleRollingAlerts() {
+        if (!enabled) {
+            return;
+        }
+        long nowMinute = Math.floorDiv(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC), 60);
+        List<AlertChangedEvent> changes = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<Map.Entry<AlertKey, AlertDto>> alerts = active.entrySet().iterator();
+            while (alerts.hasNext()) {
+                Map.Entry<AlertKey, AlertDto> alert = alerts.next();
+                AlertKey key = alert.getKey();
+                AlertRule rule = rules.get(key.ruleId());
+                SlidingWindow window = switch (rule.type()) {
+                    case DEFECT_RATE_ABOVE -> defectWindows.get(rule.id()).get(key.stageId());
+                    case CYCLE_TIME_DRIFT_ABOVE -> driftWindows.get(rule.id()).get(key.deviceId()).recent();
+                    default -> null;
+                };
+                if (window != null && window.headMinute() <= nowMinute - rule.windowMinutes()) {
+                    alerts.remove();
+                    changes.add(new AlertChangedEvent(alert.getValue(), false));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        changes.forEach(eventPublisher::publishEvent);
+    }
+
+    private void evaluateRolling(AlertRule rule, AlertKey key, List<AlertChangedEvent> changes) {
+        if (rule.type() == AlertRuleType.DEFECT_RATE_ABOVE) {
+            SlidingWindow window = defectWindows.get(rule.id()).get(key.stageId());
+            if (window.first() >= rule.minSamples() && window.first() > 0) {
+                update(rule, key.stageId(), null, 100.0 * window.second() / window.first(), changes);
+            }
+        } else {
+            DriftWindows windows = driftWindows.get(rule.id()).get(key.deviceId());
+            // The baseline is the part of the longer window before the recent one
+            double recentCount = windows.recent().first();
+            double baselineCount = windows.baseline().first() - recentCount;
+            if (recentCount >= Math.max(1, rule.minSamples()) && baselineCount >= Math.max(1, rule.minSamples())) {
+                double recentMean = windows.recent().second() / recentCount;
+                double baselineMean = (windows.baseline().second() - windows.recent().second()) / baselineCount;
+                if (baselineMean > 0) {
+                    update(rule, key.stageId(), key.deviceId(), 100.0 * (recentMean / baselineMean - 1), changes);
+                }
+            }
+        }
+    }
+
+    private void update(AlertRule rule, Long stageId, Long deviceId, double value, List<AlertChangedEvent> changes) {
+        AlertKey key = new AlertKey(rule.id(), stageId, deviceId);
+        AlertDto current = active.get(key);
+        if (rule.isFiring(value)) {
+            AlertDto alert = new AlertDto(rule.id(), rule.type(), stageId, deviceId, value, rule.threshold(),
+                    rule.describe(value), current != null ? current.raisedAt() : LocalDateTime.now());
+            active.put(key, alert);
+            if (current == null) {
+                changes.add(new AlertChangedEvent(alert, true));
+            }
+        } else if (current != null) {
+            active.remove(key);
+            changes.add(new AlertChangedEvent(current, false));
+        }
+    }
+
+    private static double operationalPercent(StageHealthDto stage) {
+        return stage.totalDevices() > 0 ? 100.0 * stage.operationalDevices() / stage.totalDevices() : 100.0;
+    }
+}
@@ -0,0 +1,36 @@
+package org.tanzu.factory.alert;
+
+/**
+ * A threshold rule, for one stage or, with no {@code stageId}, for every stage. The window,
+ * baseline and minimum sample count only apply to the rolling rule types; a rolling rule neither
+ * fires nor resolves on fewer than {@code minSamples} units or readings.
+ */
+public record AlertRule(
+        String id,
+        AlertRuleType type,
+        Long stageId,
+        double threshold,
+        int windowMinutes,
+        int baselineMinutes,
+        long minSamples
+) {
+    boolean isFiring(double value) {
+        return switch (type) {
+            case DEVICE_HEALTH_BELOW, OPERATIONAL_DEVICES_BELOW -> value < threshold;
+            case DEFECT_RATE_ABOVE, CYCLE_TIME_DRIFT_ABOVE -> value > threshold;
+        };
+    }
+
+    String describe(double value) {
+        return switch (type) {
+            case DEVICE_HEALTH_BELOW -> String.format("Health score %.1f is below %.1f", value, threshold);
+            case OPERATIONAL_DEVICES_BELOW ->
+                    String.format("%.0f%% of devices are operational, below %.0f%%", value, threshold);
+            case DEFECT_RATE_ABOVE -> String.format("Defect rate over the last %d minutes is %.1f%%, above %.1f%%",
+                    windowMinutes, value, threshold);
+            case CYCLE_TIME_DRIFT_ABOVE -> String.format(
+                    "Cycle time over the last %d minutes is %.1f%% above its %d-minute baseline, more than %.1f%%",
+                    windowMinutes, value, baselineMinutes, threshold);
+        };
+    }
+}
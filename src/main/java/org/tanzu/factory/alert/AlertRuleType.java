@@ -0,0 +1,13 @@
+package org.tanzu.factory.alert;
+
+public enum AlertRuleType {
+    // Device health score below the threshold
+    DEVICE_HEALTH_BELOW,
+    // Share of a stage's devices that are operational, in percent, below the threshold
+    OPERATIONAL_DEVICES_BELOW,
+    // Defective share of a stage's units over the last windowMinutes, in percent, above the threshold
+    DEFECT_RATE_ABOVE,
+    // A device's mean cycle time over the last windowMinutes exceeding its mean over the
+    // baselineMinutes before that by more than the threshold, in percent
+    CYCLE_TIME_DRIFT_ABOVE
+}
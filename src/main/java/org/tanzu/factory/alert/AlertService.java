@@ -0,0 +1,60 @@
+package org.tanzu.factory.alert;
+
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class AlertService {
+    private final AlertEngine alertEngine;
+
+    public AlertService(AlertEngine alertEngine) {
+        this.alertEngine = alertEngine;
+    }
+
+    @McpTool(description = "Lists the alerts that are currently firing in the factory, such as devices with a low health score, stages with too few operational devices, a rolling defect rate above its limit or a device whose cycle time drifted above its baseline, with the measured value, the threshold and when each alert was raised")
+    public List<AlertDto> getActiveAlerts() {
+        return alertEngine.getActiveAlerts();
+    }
+
+    @McpTool(description = "Lists the alert rules the factory evaluates as readings arrive, with their type, stage, threshold and rolling window")
+    public List<AlertRule> getAlertRules() {
+        return alertEngine.getRules();
+    }
+
+    // Returns the reason the rule is invalid, or null once it is in effect
+    public String putAlertRule(AlertRule rule) {
+        String reason = validateRule(rule);
+        if (reason == null) {
+            alertEngine.putRule(rule);
+        }
+        return reason;
+    }
+
+    public boolean deleteAlertRule(String ruleId) {
+        return alertEngine.deleteRule(ruleId);
+    }
+
+    private String validateRule(AlertRule rule) {
+        if (rule.id() == null || rule.id().isBlank()) {
+            return "id is required";
+        }
+        if (rule.type() == null) {
+            return "type is required";
+        }
+        boolean rolling = rule.type() == AlertRuleType.DEFECT_RATE_ABOVE
+                || rule.type() == AlertRuleType.CYCLE_TIME_DRIFT_ABOVE;
+        if (rolling && (rule.windowMinutes() <= 0 || rule.windowMinutes() > 10080)) {
+            return "windowMinutes must be between 1 and 10080";
+        }
+        if (rule.type() == AlertRuleType.CYCLE_TIME_DRIFT_ABOVE
+                && (rule.baselineMinutes() <= 0 || rule.baselineMinutes() > 10080)) {
+            return "baselineMinutes must be between 1 and 10080";
+        }
+        if (rule.minSamples() < 0) {
+            return "minSamples must be zero or greater";
+        }
+        return null;
+    }
+}
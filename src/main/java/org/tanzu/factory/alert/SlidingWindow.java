@@ -0,0 +1,67 @@
+package org.tanzu.factory.alert;
+
+import java.util.Arrays;
+
+/**
+ * Sums of two quantities over the last {@code minutes} minutes of event time, with one bucket per
+ * minute in a ring. Moving the window forward clears only the buckets it passes, so adding a
+ * reading is O(1) amortized however much history the window covers.
+ */
+final class SlidingWindow {
+    private final int minutes;
+    private final double[] firstBuckets;
+    private final double[] secondBuckets;
+    private double first;
+    private double second;
+    private long headMinute = Long.MIN_VALUE;
+
+    SlidingWindow(int minutes) {
+        this.minutes = minutes;
+        this.firstBuckets = new double[minutes];
+        this.secondBuckets = new double[minutes];
+    }
+
+    // Readings older than the window, relative to the newest minute seen so far, are ignored
+    void add(long minute, double firstValue, double secondValue) {
+        if (minute > headMinute) {
+            advanceTo(minute);
+        } else if (minute <= headMinute - minutes) {
+            return;
+        }
+        int slot = (int) Math.floorMod(minute, (long) minutes);
+        firstBuckets[slot] += firstValue;
+        secondBuckets[slot] += secondValue;
+        first += firstValue;
+        second += secondValue;
+    }
+
+    private void advanceTo(long minute) {
+        if (headMinute == Long.MIN_VALUE || minute - headMinute >= minutes) {
+            Arrays.fill(firstBuckets, 0);
+            Arrays.fill(secondBuckets, 0);
+            first = 0;
+            second = 0;
+        } else {
+            for (long m = headMinute + 1; m <= minute; m++) {
+                int slot = (int) Math.floorMod(m, (long) minutes);
+                first -= firstBuckets[slot];
+                second -= secondBuckets[slot];
+                firstBuckets[slot] = 0;
+                secondBuckets[slot] = 0;
+            }
+        }
+        headMinute = minute;
+    }
+
+    long headMinute() {
+        return headMinute;
+    }
+
+    double first() {
+        return first;
+    }
+
+    double second() {
+        return second;
+    }
+}
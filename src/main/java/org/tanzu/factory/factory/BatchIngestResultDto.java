@@ -0,0 +1,11 @@
+package org.tanzu.factory.factory;
+
+import java.util.List;
+
+public record BatchIngestResultDto(
+        int accepted,
+        int rejected,
+        List<RejectedReading> rejections
+) {
+    public record RejectedReading(int index, Long deviceId, String reason) {}
+}
@@ -0,0 +1,15 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record CompactionResultDto(
+        LocalDateTime rawCutoff,
+        LocalDateTime hourlyCutoff,
+        int chunks,
+        long rawRowsDeleted,
+        long healthSamplesDeleted,
+        int daysDownsampled,
+        long hourlyRowsDownsampled,
+        boolean complete
+) {
+}
@@ -0,0 +1,7 @@
+package org.tanzu.factory.factory;
+
+public record CycleTimeBinCount(
+        Long deviceId,
+        int bin,
+        long samples
+) {}
@@ -0,0 +1,88 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+// Non-empty CycleTimeSketch bins per device and hour, maintained by ProductionMetricsRollup
+@Entity
+@Table(name = "cycle_time_hourly",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"device_id", "bucket_start", "bin_index"}),
+        indexes = @Index(columnList = "stage_id, bucket_start"))
+public class CycleTimeHourly {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long stageId;
+    private Long deviceId;
+    private LocalDateTime bucketStart;
+    private LocalDateTime bucketEnd;
+    private int binIndex;
+    private long sampleCount;
+
+    public CycleTimeHourly() {
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getStageId() {
+        return stageId;
+    }
+
+    public void setStageId(Long stageId) {
+        this.stageId = stageId;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(Long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public LocalDateTime getBucketEnd() {
+        return bucketEnd;
+    }
+
+    public void setBucketEnd(LocalDateTime bucketEnd) {
+        this.bucketEnd = bucketEnd;
+    }
+
+    public int getBinIndex() {
+        return binIndex;
+    }
+
+    public void setBinIndex(int binIndex) {
+        this.binIndex = binIndex;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+}
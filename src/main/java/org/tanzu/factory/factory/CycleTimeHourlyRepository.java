@@ -0,0 +1,24 @@
+package org.tanzu.factory.factory;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CycleTimeHourlyRepository extends JpaRepository<CycleTimeHourly, Long> {
+
+    // Sketch bins of every device in the stage, merged across the buckets overlapping [from, to)
+    @Query("SELECT new org.tanzu.factory.factory.CycleTimeBinCount(c.deviceId, c.binIndex, SUM(c.sampleCount)) " +
+            "FROM CycleTimeHourly c " +
+            "WHERE c.stageId = :stageId AND c.bucketStart < :to AND c.bucketEnd > :from " +
+            "GROUP BY c.deviceId, c.binIndex")
+    List<CycleTimeBinCount> getStageBinCounts(Long stageId, LocalDateTime from, LocalDateTime to);
+
+    // Exact count, sum, minimum and maximum for the same buckets, from the production rollup
+    @Query("SELECT new org.tanzu.factory.factory.CycleTimeTotals(r.deviceId, SUM(r.cycleTimeCount), " +
+            "SUM(r.cycleTimeSum), MIN(r.cycleTimeMin), MAX(r.cycleTimeMax)) " +
+            "FROM ProductionMetricsHourly r " +
+            "WHERE r.stageId = :stageId AND r.bucketStart < :to AND r.bucketEnd > :from AND r.cycleTimeCount > 0 " +
+            "GROUP BY r.deviceId ORDER BY r.deviceId")
+    List<CycleTimeTotals> getStageTotals(Long stageId, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,72 @@
+package org.tanzu.factory.factory;
+
+/**
+ * Mergeable quantile sketch of cycle times in minutes. A value v is counted in bin
+ * ceil(log(v) / log(gamma)) with gamma = (1 + 1%) / (1 - 1%), so every reported quantile is within
+ * 1% of a value that was actually recorded. Bins are clamped to cover 0.001 to 1,000,000 minutes,
+ * which bounds a sketch to {@link #BIN_COUNT} counters however many values it has seen. Two
+ * sketches merge by adding their counts bin by bin, which is also what summing stored bin counts
+ * grouped by bin does in the database, so sketches for any range of buckets can be combined.
+ */
+public final class CycleTimeSketch {
+    static final double RELATIVE_ACCURACY = 0.01;
+    static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    static final double MIN_VALUE = 0.001;
+    static final double MAX_VALUE = 1_000_000;
+    static final int MIN_BIN = (int) Math.ceil(Math.log(MIN_VALUE) / Math.log(GAMMA));
+    static final int MAX_BIN = (int) Math.ceil(Math.log(MAX_VALUE) / Math.log(GAMMA));
+    static final int BIN_COUNT = MAX_BIN - MIN_BIN + 1;
+
+    private final long[] counts = new long[BIN_COUNT];
+    private long count;
+
+    public static int bin(double value) {
+        if (!(value > MIN_VALUE)) {
+            return MIN_BIN;
+        }
+        int bin = (int) Math.ceil(Math.log(value) / Math.log(GAMMA));
+        return Math.min(bin, MAX_BIN);
+    }
+
+    // Point in the bin's range (gamma^(bin-1), gamma^bin] with the same relative error to either end
+    public static double binValue(int bin) {
+        return 2 * Math.pow(GAMMA, bin) / (GAMMA + 1);
+    }
+
+    public void add(double value) {
+        add(bin(value), 1);
+    }
+
+    public void add(int bin, long samples) {
+        int clamped = Math.max(MIN_BIN, Math.min(bin, MAX_BIN));
+        counts[clamped - MIN_BIN] += samples;
+        count += samples;
+    }
+
+    public void merge(CycleTimeSketch other) {
+        for (int i = 0; i < BIN_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    // Estimate of the value at the given fraction (0 to 1) of the recorded values, NaN when empty
+    public double quantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(fraction * (count - 1));
+        long seen = 0;
+        for (int i = 0; i < BIN_COUNT; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return binValue(i + MIN_BIN);
+            }
+        }
+        return binValue(MAX_BIN);
+    }
+}
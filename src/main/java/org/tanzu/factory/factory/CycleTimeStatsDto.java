@@ -0,0 +1,11 @@
+package org.tanzu.factory.factory;
+
+public record CycleTimeStatsDto(
+        long samples,
+        double minMinutes,
+        double maxMinutes,
+        double meanMinutes,
+        double p50Minutes,
+        double p90Minutes,
+        double p99Minutes
+) {}
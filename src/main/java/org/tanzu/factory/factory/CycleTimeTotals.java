@@ -0,0 +1,9 @@
+package org.tanzu.factory.factory;
+
+public record CycleTimeTotals(
+        Long deviceId,
+        long samples,
+        double sum,
+        double min,
+        double max
+) {}
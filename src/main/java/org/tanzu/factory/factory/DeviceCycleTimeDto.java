@@ -0,0 +1,6 @@
+package org.tanzu.factory.factory;
+
+public record DeviceCycleTimeDto(
+        Long deviceId,
+        CycleTimeStatsDto cycleTime
+) {}
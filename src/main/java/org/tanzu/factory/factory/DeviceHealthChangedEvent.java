@@ -0,0 +1,10 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record DeviceHealthChangedEvent(
+        Long deviceId,
+        boolean operational,
+        double healthScore,
+        LocalDateTime timestamp
+) {}
@@ -0,0 +1,115 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+// Health samples aggregated per device and hour, maintained by DeviceHealthWriter
+@Entity
+@Table(name = "device_health_hourly",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"device_id", "bucket_start"}),
+        indexes = @Index(columnList = "stage_id, bucket_start"))
+public class DeviceHealthHourly {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long stageId;
+    private Long deviceId;
+    private LocalDateTime bucketStart;
+    private LocalDateTime bucketEnd;
+    private double healthScoreSum;
+    private double minHealthScore;
+    private double maxHealthScore;
+    private long sampleCount;
+    private long operationalCount;
+
+    public DeviceHealthHourly() {
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getStageId() {
+        return stageId;
+    }
+
+    public void setStageId(Long stageId) {
+        this.stageId = stageId;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(Long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public LocalDateTime getBucketEnd() {
+        return bucketEnd;
+    }
+
+    public void setBucketEnd(LocalDateTime bucketEnd) {
+        this.bucketEnd = bucketEnd;
+    }
+
+    public double getHealthScoreSum() {
+        return healthScoreSum;
+    }
+
+    public void setHealthScoreSum(double healthScoreSum) {
+        this.healthScoreSum = healthScoreSum;
+    }
+
+    public double getMinHealthScore() {
+        return minHealthScore;
+    }
+
+    public void setMinHealthScore(double minHealthScore) {
+        this.minHealthScore = minHealthScore;
+    }
+
+    public double getMaxHealthScore() {
+        return maxHealthScore;
+    }
+
+    public void setMaxHealthScore(double maxHealthScore) {
+        this.maxHealthScore = maxHealthScore;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public long getOperationalCount() {
+        return operationalCount;
+    }
+
+    public void setOperationalCount(long operationalCount) {
+        this.operationalCount = operationalCount;
+    }
+}
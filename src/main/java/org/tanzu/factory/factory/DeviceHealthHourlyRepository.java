@@ -0,0 +1,26 @@
+package org.tanzu.factory.factory;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface DeviceHealthHourlyRepository extends JpaRepository<DeviceHealthHourly, Long> {
+
+    @Query("SELECT new org.tanzu.factory.factory.HealthTrendPointDto(h.bucketStart, " +
+            "h.healthScoreSum / h.sampleCount, h.minHealthScore, h.maxHealthScore, h.sampleCount, " +
+            "1.0 * h.operationalCount / h.sampleCount) " +
+            "FROM DeviceHealthHourly h " +
+            "WHERE h.deviceId = :deviceId AND h.bucketStart >= :from AND h.bucketStart < :to " +
+            "ORDER BY h.bucketStart")
+    List<HealthTrendPointDto> getDeviceTrend(Long deviceId, LocalDateTime from, LocalDateTime to);
+
+    // Combines the stage's devices per hour; the average is weighted by each device's sample count
+    @Query("SELECT new org.tanzu.factory.factory.HealthTrendPointDto(h.bucketStart, " +
+            "SUM(h.healthScoreSum) / SUM(h.sampleCount), MIN(h.minHealthScore), MAX(h.maxHealthScore), " +
+            "SUM(h.sampleCount), 1.0 * SUM(h.operationalCount) / SUM(h.sampleCount)) " +
+            "FROM DeviceHealthHourly h " +
+            "WHERE h.stageId = :stageId AND h.bucketStart >= :from AND h.bucketStart < :to " +
+            "GROUP BY h.bucketStart ORDER BY h.bucketStart")
+    List<HealthTrendPointDto> getStageTrend(Long stageId, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,11 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+// One validated health sample, as accepted by DeviceHealthWriter
+public record DeviceHealthReading(
+        long deviceId,
+        LocalDateTime timestamp,
+        boolean operational,
+        double healthScore
+) {}
@@ -0,0 +1,185 @@
+package org.tanzu.factory.factory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory view of device health, indexed by stage. It is loaded from the database once and
+ * then kept current from {@link DeviceHealthChangedEvent}s, so health reads never touch the
+ * database. Every change publishes a new immutable {@link Snapshot} with a higher version, so a
+ * reader always sees one consistent state across all stages. After-commit events of concurrent
+ * writes can arrive in any order, so the registry remembers the timestamp of the sample applied to
+ * each device and ignores events for older ones.
+ */
+@Component
+public class DeviceHealthRegistry {
+    private static final Logger log = LoggerFactory.getLogger(DeviceHealthRegistry.class);
+
+    private final ManufacturingStageRepository stageRepository;
+    private final IoTDeviceRepository deviceRepository;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    // A lock rather than synchronized so a virtual thread reloading from the database does not pin its carrier
+    private final ReentrantLock updateLock = new ReentrantLock();
+    // Timestamp of the sample behind each device's current health, as on iot_devices
+    private final Map<Long, LocalDateTime> appliedAt = new ConcurrentHashMap<>();
+
+    public DeviceHealthRegistry(ManufacturingStageRepository stageRepository,
+                                IoTDeviceRepository deviceRepository) {
+        this.stageRepository = stageRepository;
+        this.deviceRepository = deviceRepository;
+    }
+
+    public record Snapshot(
+            long version,
+            Map<Long, StageHealthDto> stages,
+            Map<Long, Long> deviceStages
+    ) {
+        // Read-only views, so callers cannot change a published snapshot; stages keep their order
+        public Snapshot {
+            stages = Collections.unmodifiableMap(stages);
+            deviceStages = Map.copyOf(deviceStages);
+        }
+
+        public List<StageHealthDto> stagesHealth() {
+            return List.copyOf(stages.values());
+        }
+    }
+
+    public Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        return snapshot != null ? snapshot : reload();
+    }
+
+    public List<StageHealthDto> getStagesHealth() {
+        return snapshot().stagesHealth();
+    }
+
+    public StageHealthDto getStageHealth(Long stageId) {
+        return snapshot().stages().get(stageId);
+    }
+
+    public boolean containsDevice(Long deviceId) {
+        return snapshot().deviceStages().containsKey(deviceId);
+    }
+
+    public long version() {
+        return snapshot().version();
+    }
+
+    // False once a newer sample than the event's has been applied to its device
+    public boolean isCurrent(DeviceHealthChangedEvent event) {
+        LocalDateTime applied = appliedAt.get(event.deviceId());
+        return applied == null || !event.timestamp().isBefore(applied);
+    }
+
+    // Reload once the data initializer has run, in case a request loaded the registry earlier
+    @EventListener(ApplicationReadyEvent.class)
+    public Snapshot reload() {
+        updateLock.lock();
+        try {
+            return loadSnapshot();
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private Snapshot loadSnapshot() {
+        Map<Long, List<DeviceHealthDto>> devicesByStage = new HashMap<>();
+        Map<Long, Long> deviceStages = new HashMap<>();
+        appliedAt.clear();
+        // Two projection queries; no entities are loaded into a persistence context
+        for (StageDeviceHealth device : deviceRepository.findAllDeviceHealth()) {
+            devicesByStage.computeIfAbsent(device.stageId(), k -> new ArrayList<>()).add(device.toDeviceHealthDto());
+            deviceStages.put(device.id(), device.stageId());
+            if (device.healthUpdatedAt() != null) {
+                appliedAt.put(device.id(), device.healthUpdatedAt());
+            }
+        }
+
+        Map<Long, StageHealthDto> stages = new LinkedHashMap<>();
+        for (StageSummary stage : stageRepository.findAllSummaries()) {
+            stages.put(stage.id(), toStageHealthDto(stage.id(), stage.name(), stage.sequenceOrder(),
+                    devicesByStage.getOrDefault(stage.id(), List.of())));
+        }
+
+        Snapshot previous = current.get();
+        long version = previous != null ? previous.version() + 1 : 1;
+        Snapshot snapshot = new Snapshot(version, stages, deviceStages);
+        current.set(snapshot);
+        log.info("Loaded {} devices across {} stages into the health registry", deviceStages.size(), stages.size());
+        return snapshot;
+    }
+
+    // Runs before other listeners so they observe the updated registry
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceHealthChanged(DeviceHealthChangedEvent event) {
+        updateLock.lock();
+        try {
+            applyHealthChange(event);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void applyHealthChange(DeviceHealthChangedEvent event) {
+        Snapshot snapshot = snapshot();
+        Long stageId = snapshot.deviceStages().get(event.deviceId());
+        LocalDateTime applied = appliedAt.get(event.deviceId());
+        if (stageId == null || applied != null && !event.timestamp().isAfter(applied)) {
+            return;
+        }
+        appliedAt.put(event.deviceId(), event.timestamp());
+        StageHealthDto stage = snapshot.stages().get(stageId);
+        List<DeviceHealthDto> devices = new ArrayList<>(stage.devices().size());
+        for (DeviceHealthDto device : stage.devices()) {
+            devices.add(device.id().equals(event.deviceId())
+                    ? new DeviceHealthDto(device.id(), device.deviceId(), device.name(), device.deviceType(),
+                            event.operational(), event.healthScore())
+                    : device);
+        }
+
+        Map<Long, StageHealthDto> stages = new LinkedHashMap<>(snapshot.stages());
+        stages.put(stageId, toStageHealthDto(stage.stageId(), stage.stageName(), stage.sequenceOrder(), devices));
+        current.set(new Snapshot(snapshot.version() + 1, stages, snapshot.deviceStages()));
+    }
+
+    private StageHealthDto toStageHealthDto(Long stageId, String name, int sequenceOrder,
+                                            List<DeviceHealthDto> devices) {
+        // Calculate overall health score as average of all device health scores
+        double overallHealth = devices.stream()
+                .mapToDouble(DeviceHealthDto::healthScore)
+                .average()
+                .orElse(0.0);
+        int operationalDevices = (int) devices.stream()
+                .filter(DeviceHealthDto::operational)
+                .count();
+
+        return new StageHealthDto(
+                stageId,
+                name,
+                sequenceOrder,
+                overallHealth,
+                devices.size(),
+                operationalDevices,
+                List.copyOf(devices)
+        );
+    }
+}
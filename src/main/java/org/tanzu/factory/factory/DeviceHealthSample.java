@@ -0,0 +1,55 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+// Append-only health history; IoTDevice holds only the latest state
+@Entity
+@Table(name = "device_health_samples", indexes = @Index(columnList = "timestamp"))
+public class DeviceHealthSample {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_health_samples_seq")
+    @SequenceGenerator(name = "device_health_samples_seq", sequenceName = "device_health_samples_seq", allocationSize = 100)
+    private Long id;
+
+    private Long deviceId;
+    private LocalDateTime timestamp;
+    private boolean operational;
+    private double healthScore;
+
+    public DeviceHealthSample() {
+    }
+
+    public DeviceHealthSample(Long deviceId, LocalDateTime timestamp, boolean operational, double healthScore) {
+        this.deviceId = deviceId;
+        this.timestamp = timestamp;
+        this.operational = operational;
+        this.healthScore = healthScore;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isOperational() {
+        return operational;
+    }
+
+    public double getHealthScore() {
+        return healthScore;
+    }
+}
@@ -0,0 +1,10 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record DeviceHealthUpdateDto(
+        Long deviceId,
+        LocalDateTime timestamp,
+        Boolean operational,
+        Double healthScore
+) {}
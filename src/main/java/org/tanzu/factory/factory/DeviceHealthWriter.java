@@ -0,0 +1,140 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends device health samples and keeps the derived state in step, all in one transaction and
+ * with a fixed number of JDBC batches however many devices are updated: the samples, their
+ * hourly aggregates, and the latest state of each device on {@link IoTDevice}. The current state
+ * only moves forward: a device's latest sample replaces it only if it is newer than the sample
+ * already applied, so backfilled history does not roll it back. A {@link DeviceHealthChangedEvent}
+ * carrying the sample's timestamp is published for each device whose current state was replaced.
+ */
+@Component
+public class DeviceHealthWriter {
+
+    private static final String MERGE_HOURLY_SQL = "MERGE INTO device_health_hourly h " +
+            "USING (SELECT d.stage_id, d.id, CAST(? AS TIMESTAMP(6)), CAST(? AS TIMESTAMP(6)), " +
+            "CAST(? AS DOUBLE), CAST(? AS DOUBLE), CAST(? AS DOUBLE), CAST(? AS BIGINT), CAST(? AS BIGINT) " +
+            "FROM iot_devices d WHERE d.id = ?) " +
+            "AS v(stage_id, device_id, bucket_start, bucket_end, score_sum, min_score, max_score, samples, operational) " +
+            "ON h.device_id = v.device_id AND h.bucket_start = v.bucket_start " +
+            "WHEN MATCHED THEN UPDATE SET h.health_score_sum = h.health_score_sum + v.score_sum, " +
+            "h.min_health_score = LEAST(h.min_health_score, v.min_score), " +
+            "h.max_health_score = GREATEST(h.max_health_score, v.max_score), " +
+            "h.sample_count = h.sample_count + v.samples, " +
+            "h.operational_count = h.operational_count + v.operational " +
+            "WHEN NOT MATCHED THEN INSERT (stage_id, device_id, bucket_start, bucket_end, health_score_sum, " +
+            "min_health_score, max_health_score, sample_count, operational_count) " +
+            "VALUES (v.stage_id, v.device_id, v.bucket_start, v.bucket_end, v.score_sum, v.min_score, v.max_score, " +
+            "v.samples, v.operational)";
+
+    private static final String UPDATE_DEVICE_SQL =
+            "UPDATE iot_devices SET operational = ?, health_score = ?, health_updated_at = ? " +
+            "WHERE id = ? AND (health_updated_at IS NULL OR health_updated_at < ?)";
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public DeviceHealthWriter(EntityManager entityManager,
+                              JdbcTemplate jdbcTemplate,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${factory.ingest.jdbc-batch-size:500}") int batchSize) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public void write(List<DeviceHealthReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        Map<Long, DeviceHealthReading> latestByDevice = new LinkedHashMap<>();
+        Map<BucketKey, BucketDelta> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < readings.size(); i++) {
+            DeviceHealthReading reading = readings.get(i);
+            entityManager.persist(new DeviceHealthSample(
+                    reading.deviceId(), reading.timestamp(), reading.operational(), reading.healthScore()));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+            latestByDevice.merge(reading.deviceId(), reading,
+                    (current, next) -> next.timestamp().isBefore(current.timestamp()) ? current : next);
+            BucketKey key = new BucketKey(reading.deviceId(), reading.timestamp().truncatedTo(ChronoUnit.HOURS));
+            deltas.computeIfAbsent(key, k -> new BucketDelta()).add(reading);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Map.Entry<BucketKey, BucketDelta>> buckets = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(MERGE_HOURLY_SQL, buckets, batchSize, (ps, bucket) -> {
+            BucketKey key = bucket.getKey();
+            BucketDelta delta = bucket.getValue();
+            ps.setTimestamp(1, Timestamp.valueOf(key.bucketStart()));
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart().plusHours(1)));
+            ps.setDouble(3, delta.scoreSum);
+            ps.setDouble(4, delta.minScore);
+            ps.setDouble(5, delta.maxScore);
+            ps.setLong(6, delta.samples);
+            ps.setLong(7, delta.operational);
+            ps.setLong(8, key.deviceId());
+        });
+
+        List<DeviceHealthReading> latest = new ArrayList<>(latestByDevice.values());
+        int[][] updated = jdbcTemplate.batchUpdate(UPDATE_DEVICE_SQL, latest, batchSize, (ps, reading) -> {
+            Timestamp timestamp = Timestamp.valueOf(reading.timestamp());
+            ps.setBoolean(1, reading.operational());
+            ps.setDouble(2, reading.healthScore());
+            ps.setTimestamp(3, timestamp);
+            ps.setLong(4, reading.deviceId());
+            ps.setTimestamp(5, timestamp);
+        });
+        // The health registry and other listeners apply these once the transaction commits
+        for (int i = 0; i < latest.size(); i++) {
+            if (updated[i / batchSize][i % batchSize] == 0) {
+                continue;
+            }
+            DeviceHealthReading reading = latest.get(i);
+            eventPublisher.publishEvent(new DeviceHealthChangedEvent(
+                    reading.deviceId(), reading.operational(), reading.healthScore(), reading.timestamp()));
+        }
+    }
+
+    private record BucketKey(long deviceId, LocalDateTime bucketStart) {}
+
+    private static final class BucketDelta {
+        private double scoreSum;
+        private double minScore = Double.MAX_VALUE;
+        private double maxScore = -Double.MAX_VALUE;
+        private long samples;
+        private long operational;
+
+        private void add(DeviceHealthReading reading) {
+            scoreSum += reading.healthScore();
+            minScore = Math.min(minScore, reading.healthScore());
+            maxScore = Math.max(maxScore, reading.healthScore());
+            samples++;
+            if (reading.operational()) {
+                operational++;
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record DeviceHourlyOutput(
+        Long deviceId,
+        LocalDateTime bucketStart,
+        long unitsProduced,
+        long defectiveUnits
+) {}
@@ -2,21 +2,35 @@ package org.tanzu.factory.factory;
 
 import org.springframework.web.bind.annotation.RestController;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/factory")
 public class FactoryController {
     private final FactoryService factoryService;
+    private final Duration exportTimeout;
 
-    public FactoryController(FactoryService factoryService) {
+    public FactoryController(FactoryService factoryService,
+                             @Value("${factory.export.request-timeout:30m}") Duration exportTimeout) {
         this.factoryService = factoryService;
+        this.exportTimeout = exportTimeout;
     }
 
     @GetMapping("/stages/health")
@@ -45,6 +59,27 @@ public class FactoryController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/devices/health:batch")
+    public ResponseEntity<BatchIngestResultDto> updateDevicesHealth(@RequestBody List<DeviceHealthUpdateDto> updates) {
+        return ResponseEntity.ok(factoryService.updateDevicesHealth(updates));
+    }
+
+    @GetMapping("/devices/{deviceId}/health/trend")
+    public ResponseEntity<List<HealthTrendPointDto>> getDeviceHealthTrend(
+            @PathVariable Long deviceId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        return ResponseEntity.ok(factoryService.getDeviceHealthTrend(deviceId, startTime, endTime));
+    }
+
+    @GetMapping("/stages/{stageId}/health/trend")
+    public ResponseEntity<List<HealthTrendPointDto>> getStageHealthTrend(
+            @PathVariable Long stageId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        return ResponseEntity.ok(factoryService.getStageHealthTrend(stageId, startTime, endTime));
+    }
+
     @GetMapping("/stages/{stageOrder}/output")
     public ResponseEntity<ProductionOutputDto> getStageOutput(
             @PathVariable int stageOrder,
@@ -58,6 +93,27 @@ public class FactoryController {
         return ResponseEntity.notFound().build();
     }
 
+    @GetMapping("/stages/{stageOrder}/cycle-time")
+    public ResponseEntity<StageCycleTimeDto> getStageCycleTime(
+            @PathVariable int stageOrder,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+
+        StageCycleTimeDto cycleTime = factoryService.getStageCycleTime(stageOrder, startTime, endTime);
+        if (cycleTime != null) {
+            return ResponseEntity.ok(cycleTime);
+        }
+        return ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/pipeline")
+    public ResponseEntity<PipelineAnalysisDto> getPipelineAnalysis(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+
+        return ResponseEntity.ok(factoryService.getPipelineAnalysis(startTime, endTime));
+    }
+
     @GetMapping("/output")
     public ResponseEntity<List<ProductionOutputDto>> getAllStagesOutput(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
@@ -66,6 +122,16 @@ public class FactoryController {
         return ResponseEntity.ok(factoryService.getAllStagesOutput(startTime, endTime));
     }
 
+    @GetMapping("/output/cache")
+    public ResponseEntity<OutputCacheStatsDto> getOutputCacheStats() {
+        return ResponseEntity.ok(factoryService.getOutputCacheStats());
+    }
+
+    @GetMapping("/output/index")
+    public ResponseEntity<OutputIndexStatsDto> getOutputIndexStats() {
+        return ResponseEntity.ok(factoryService.getOutputIndexStats());
+    }
+
     @PostMapping("/devices/{deviceId}/metrics")
     public ResponseEntity<Void> recordProductionMetrics(
             @PathVariable Long deviceId,
@@ -78,4 +144,65 @@ public class FactoryController {
         factoryService.recordProductionMetrics(deviceId, unitsProduced, defectiveUnits, cycleTimeMinutes);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/metrics:batch")
+    public ResponseEntity<BatchIngestResultDto> recordProductionMetricsBatch(
+            @RequestBody List<ProductionMetricsReadingDto> readings) {
+        return ResponseEntity.ok(factoryService.recordProductionMetricsBatch(readings));
+    }
+
+    // Rows are written to the response while the query runs, in NDJSON (default) or CSV
+    @GetMapping("/metrics/export")
+    public ResponseEntity<StreamingResponseBody> exportProductionMetrics(
+            @RequestParam(required = false) Long deviceId,
+            @RequestParam(required = false) Integer stageOrder,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        MetricsExportFormat exportFormat = MetricsExportFormat.fromName(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> factoryService.exportProductionMetrics(
+                deviceId, stageOrder, startTime, endTime, exportFormat, out);
+        extendAsyncTimeout(exportTimeout);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"production-metrics." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    // Streaming bodies take the global async timeout; this request's own interceptor raises it before the async start
+    private static void extendAsyncTimeout(Duration timeout) {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        WebAsyncUtils.getAsyncManager(attributes.getRequest()).registerCallableInterceptor("exportTimeout",
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                        if (request instanceof AsyncWebRequest asyncRequest) {
+                            asyncRequest.setTimeout(timeout.toMillis());
+                        }
+                    }
+                });
+    }
+
+    @GetMapping("/metrics/write-behind")
+    public ResponseEntity<WriteBehindStatsDto> getWriteBehindStats() {
+        return ResponseEntity.ok(factoryService.getWriteBehindStats());
+    }
+
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<Void> rebuildProductionRollup() {
+        factoryService.rebuildProductionRollup();
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/rollup/compact")
+    public ResponseEntity<CompactionResultDto> compactProductionMetrics() {
+        return ResponseEntity.ok(factoryService.compactProductionMetrics());
+    }
 }
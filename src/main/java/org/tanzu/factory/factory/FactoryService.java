@@ -1,113 +1,323 @@
 package org.tanzu.factory.factory;
 
 import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class FactoryService {
     private final ManufacturingStageRepository stageRepository;
-    private final IoTDeviceRepository deviceRepository;
     private final ProductionMetricsRepository metricsRepository;
+    private final ProductionMetricsWriter metricsWriter;
+    private final MetricsWriteBehindBuffer writeBehindBuffer;
+    private final ProductionMetricsRollup productionRollup;
+    private final ProductionMetricsCompactor metricsCompactor;
+    private final DeviceHealthRegistry healthRegistry;
+    private final DeviceHealthWriter healthWriter;
+    private final DeviceHealthHourlyRepository healthHourlyRepository;
+    private final CycleTimeHourlyRepository cycleTimeRepository;
+    private final ProductionMetricsHourlyRepository hourlyRepository;
+    private final ProductionMetricsExporter metricsExporter;
+    private final StageOutputCache outputCache;
+    private final StageOutputIndex outputIndex;
+    private final long healthFutureToleranceMinutes;
 
     public FactoryService(ManufacturingStageRepository stageRepository,
-                          IoTDeviceRepository deviceRepository,
-                          ProductionMetricsRepository metricsRepository) {
+                          ProductionMetricsRepository metricsRepository,
+                          ProductionMetricsWriter metricsWriter,
+                          MetricsWriteBehindBuffer writeBehindBuffer,
+                          ProductionMetricsRollup productionRollup,
+                          ProductionMetricsCompactor metricsCompactor,
+                          DeviceHealthRegistry healthRegistry,
+                          DeviceHealthWriter healthWriter,
+                          DeviceHealthHourlyRepository healthHourlyRepository,
+                          CycleTimeHourlyRepository cycleTimeRepository,
+                          ProductionMetricsHourlyRepository hourlyRepository,
+                          ProductionMetricsExporter metricsExporter,
+                          StageOutputCache outputCache,
+                          StageOutputIndex outputIndex,
+                          @Value("${factory.ingest.health-future-tolerance-minutes:5}") long healthFutureToleranceMinutes) {
         this.stageRepository = stageRepository;
-        this.deviceRepository = deviceRepository;
         this.metricsRepository = metricsRepository;
+        this.metricsWriter = metricsWriter;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.productionRollup = productionRollup;
+        this.metricsCompactor = metricsCompactor;
+        this.healthRegistry = healthRegistry;
+        this.healthWriter = healthWriter;
+        this.healthHourlyRepository = healthHourlyRepository;
+        this.cycleTimeRepository = cycleTimeRepository;
+        this.hourlyRepository = hourlyRepository;
+        this.metricsExporter = metricsExporter;
+        this.outputCache = outputCache;
+        this.outputIndex = outputIndex;
+        this.healthFutureToleranceMinutes = healthFutureToleranceMinutes;
     }
 
     @McpTool(description = "Retrieves the health status of all manufacturing stages in the factory, including overall health scores and device status information for each stage")
     public List<StageHealthDto> getManufacturingStagesHealth() {
-        List<ManufacturingStage> stages = stageRepository.findAll();
-        return stages.stream()
-                .map(this::convertToStageHealthDto)
-                .collect(Collectors.toList());
+        return healthRegistry.getStagesHealth();
     }
 
     @McpTool(description = "Gets detailed health information for a specific manufacturing stage, including its overall health score, device statuses, and operational metrics")
     public StageHealthDto getStageHealth(Long stageId) {
-        Optional<ManufacturingStage> stageOpt = stageRepository.findById(stageId);
-        return stageOpt.map(this::convertToStageHealthDto).orElse(null);
+        return healthRegistry.getStageHealth(stageId);
     }
 
-    private StageHealthDto convertToStageHealthDto(ManufacturingStage stage) {
-        List<IoTDevice> devices = deviceRepository.findByStage(stage);
-        List<IoTDevice> operationalDevices = deviceRepository.findByStageAndOperationalTrue(stage);
+    @Transactional
+    public void updateDeviceHealth(Long deviceId, boolean operational, double healthScore) {
+        if (healthRegistry.containsDevice(deviceId)) {
+            healthWriter.write(List.of(new DeviceHealthReading(deviceId, LocalDateTime.now(), operational, healthScore)));
+        }
+    }
 
-        // Calculate overall health score as average of all device health scores
-        double overallHealth = devices.stream()
-                .mapToDouble(IoTDevice::getHealthScore)
-                .average()
-                .orElse(0.0);
+    @Transactional
+    public BatchIngestResultDto updateDevicesHealth(List<DeviceHealthUpdateDto> updates) {
+        Set<Long> knownIds = healthRegistry.snapshot().deviceStages().keySet();
+        LocalDateTime now = LocalDateTime.now();
 
-        // Map devices to DTOs
-        List<DeviceHealthDto> deviceDtos = devices.stream()
-                .map(this::convertToDeviceHealthDto)
-                .collect(Collectors.toList());
+        List<DeviceHealthReading> accepted = new ArrayList<>(updates.size());
+        List<BatchIngestResultDto.RejectedReading> rejections = new ArrayList<>();
 
-        return new StageHealthDto(
-                stage.getId(),
-                stage.getName(),
-                stage.getSequenceOrder(),
-                overallHealth,
-                devices.size(),
-                operationalDevices.size(),
-                deviceDtos
-        );
+        for (int i = 0; i < updates.size(); i++) {
+            DeviceHealthUpdateDto update = updates.get(i);
+            String reason = validateHealthUpdate(update, knownIds, now);
+            if (reason != null) {
+                rejections.add(new BatchIngestResultDto.RejectedReading(i, update.deviceId(), reason));
+                continue;
+            }
+            accepted.add(new DeviceHealthReading(
+                    update.deviceId(),
+                    update.timestamp() != null ? update.timestamp() : now,
+                    update.operational(),
+                    update.healthScore()));
+        }
+
+        healthWriter.write(accepted);
+        return new BatchIngestResultDto(accepted.size(), rejections.size(), rejections);
     }
 
-    private DeviceHealthDto convertToDeviceHealthDto(IoTDevice device) {
-        return new DeviceHealthDto(
-                device.getId(),
-                device.getDeviceId(),
-                device.getName(),
-                device.getDeviceType(),
-                device.isOperational(),
-                device.getHealthScore()
-        );
+    @McpTool(description = "Gets the hourly health trend of a single device over a time period: average, minimum and maximum health score, number of samples and the share of samples in which the device was operational")
+    public List<HealthTrendPointDto> getDeviceHealthTrend(Long deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        return healthHourlyRepository.getDeviceTrend(deviceId, startTime.truncatedTo(ChronoUnit.HOURS), endTime);
     }
 
-    @Transactional
-    public void updateDeviceHealth(Long deviceId, boolean operational, double healthScore) {
-        deviceRepository.findById(deviceId).ifPresent(device -> {
-            device.setOperational(operational);
-            device.setHealthScore(healthScore);
-            deviceRepository.save(device);
-        });
+    @McpTool(description = "Gets the hourly health trend of a manufacturing stage over a time period, combining all of its devices: average, minimum and maximum health score, number of samples and the share of samples with operational devices")
+    public List<HealthTrendPointDto> getStageHealthTrend(Long stageId, LocalDateTime startTime, LocalDateTime endTime) {
+        return healthHourlyRepository.getStageTrend(stageId, startTime.truncatedTo(ChronoUnit.HOURS), endTime);
     }
 
     @McpTool(description = "Retrieves production output metrics for a specific manufacturing stage during a specified time period, including units produced, defective units, and effective yield")
     public ProductionOutputDto getStageOutput(int stageOrder, LocalDateTime startTime, LocalDateTime endTime) {
-        ManufacturingStage stage = stageRepository.findBySequenceOrder(stageOrder);
+        return outputCache.getStageOutput(stageOrder, startTime, endTime,
+                () -> loadStageOutput(stageOrder, startTime, endTime));
+    }
+
+    private ProductionOutputDto loadStageOutput(int stageOrder, LocalDateTime startTime, LocalDateTime endTime) {
+        // Minute-aligned windows inside the index horizon never reach the database
+        StageOutputTotals totals = outputIndex.getOutputTotalsForStage(stageOrder, startTime, endTime);
+        if (totals == null) {
+            LocalDateTime[] buckets = wholeHourBuckets(startTime, endTime);
+            totals = metricsRepository.getOutputTotalsForStage(stageOrder, startTime, endTime, buckets[0], buckets[1]);
+        }
+        if (totals == null) {
+            return null;
+        }
+        return toProductionOutputDto(totals, startTime, endTime);
+    }
+
+    @McpTool(description = "Retrieves production output metrics for all manufacturing stages in the factory during a specified time period")
+    public List<ProductionOutputDto> getAllStagesOutput(LocalDateTime startTime, LocalDateTime endTime) {
+        return outputCache.getAllStagesOutput(startTime, endTime, () -> loadAllStagesOutput(startTime, endTime));
+    }
+
+    private List<ProductionOutputDto> loadAllStagesOutput(LocalDateTime startTime, LocalDateTime endTime) {
+        List<StageOutputTotals> totals = outputIndex.getOutputTotalsByStage(startTime, endTime);
+        if (totals == null) {
+            // One grouped query for every stage rather than one lookup and two sums per stage
+            LocalDateTime[] buckets = wholeHourBuckets(startTime, endTime);
+            totals = metricsRepository.getOutputTotalsByStage(startTime, endTime, buckets[0], buckets[1]);
+        }
+        return totals.stream()
+                .map(stageTotals -> toProductionOutputDto(stageTotals, startTime, endTime))
+                .collect(Collectors.toList());
+    }
+
+    @McpTool(description = "Gets cycle time statistics for a manufacturing stage during a specified time period, for the stage as a whole and for each of its devices: number of samples and the minimum, maximum, mean, median, 90th and 99th percentile cycle time in minutes. Percentiles are within 1% of the exact value and cover the whole hours overlapping the period")
+    public StageCycleTimeDto getStageCycleTime(int stageOrder, LocalDateTime startTime, LocalDateTime endTime) {
+        StageSummary stage = stageRepository.findSummaryBySequenceOrder(stageOrder);
         if (stage == null) {
             return null;
         }
+        // Hourly sketches are merged per device, then the device sketches into the stage's
+        Map<Long, CycleTimeSketch> deviceSketches = new HashMap<>();
+        for (CycleTimeBinCount bin : cycleTimeRepository.getStageBinCounts(stage.id(), startTime, endTime)) {
+            deviceSketches.computeIfAbsent(bin.deviceId(), id -> new CycleTimeSketch()).add(bin.bin(), bin.samples());
+        }
+
+        CycleTimeSketch stageSketch = new CycleTimeSketch();
+        long samples = 0;
+        double sum = 0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        List<DeviceCycleTimeDto> devices = new ArrayList<>();
+        for (CycleTimeTotals totals : cycleTimeRepository.getStageTotals(stage.id(), startTime, endTime)) {
+            CycleTimeSketch sketch = deviceSketches.getOrDefault(totals.deviceId(), new CycleTimeSketch());
+            stageSketch.merge(sketch);
+            samples += totals.samples();
+            sum += totals.sum();
+            min = Math.min(min, totals.min());
+            max = Math.max(max, totals.max());
+            devices.add(new DeviceCycleTimeDto(totals.deviceId(),
+                    toCycleTimeStats(sketch, totals.samples(), totals.sum(), totals.min(), totals.max())));
+        }
+        return new StageCycleTimeDto(stageOrder, stage.name(),
+                toCycleTimeStats(stageSketch, samples, sum, min, max), devices, startTime, endTime);
+    }
+
+    private CycleTimeStatsDto toCycleTimeStats(CycleTimeSketch sketch, long samples, double sum,
+                                               double min, double max) {
+        if (samples == 0) {
+            return new CycleTimeStatsDto(0, 0, 0, 0, 0, 0, 0);
+        }
+        // Estimates are clamped to the exact extremes, so a single-sample window reports that sample
+        return new CycleTimeStatsDto(samples, min, max, sum / samples,
+                Math.clamp(sketch.quantile(0.50), min, max),
+                Math.clamp(sketch.quantile(0.90), min, max),
+                Math.clamp(sketch.quantile(0.99), min, max));
+    }
+
+    @McpTool(description = "Analyzes the production line as a pipeline during a specified time period: units produced, good units, throughput per hour, yield and current device utilization of every stage in sequence order, the good units that accumulated as work in progress between consecutive stages, and the bottleneck stage, in front of which work in progress piles up. Covers the whole buckets overlapping the period: hours, or whole days where history has been compacted to daily buckets. The reported start, end and hours are those of the covered buckets")
+    public PipelineAnalysisDto getPipelineAnalysis(LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime from = startTime.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime to = endTime.truncatedTo(ChronoUnit.HOURS);
+        if (to.isBefore(endTime)) {
+            to = to.plusHours(1);
+        }
+
+        // The registry keeps stages in sequence order
+        List<StageHealthDto> stages = List.copyOf(healthRegistry.snapshot().stages().values());
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < stages.size(); i++) {
+            positions.put(stages.get(i).stageId(), i);
+        }
+
+        // One pass over all stages' buckets in bucket order, accumulating along the way
+        long[] units = new long[stages.size()];
+        long[] defects = new long[stages.size()];
+        long[] peakWip = new long[Math.max(0, stages.size() - 1)];
+        LocalDateTime bucket = null;
+        LocalDateTime coveredFrom = from;
+        LocalDateTime coveredTo = to;
+        for (StageHourlyOutput output : hourlyRepository.getStageHourlyOutput(from, to)) {
+            if (bucket != null && !bucket.equals(output.bucketStart())) {
+                updatePeakWip(units, defects, peakWip);
+            }
+            bucket = output.bucketStart();
+            // Daily buckets in the compacted tier widen the range to the whole days they cover
+            if (output.bucketStart().isBefore(coveredFrom)) {
+                coveredFrom = output.bucketStart();
+            }
+            if (output.bucketEnd().isAfter(coveredTo)) {
+                coveredTo = output.bucketEnd();
+            }
+            Integer position = positions.get(output.stageId());
+            if (position != null) {
+                units[position] += output.unitsProduced();
+                defects[position] += output.defectiveUnits();
+            }
+        }
+        updatePeakWip(units, defects, peakWip);
+        double hours = Math.max(0, Duration.between(coveredFrom, coveredTo).toMinutes() / 60.0);
+
+        // Work in progress piles up in front of the constraint; without any, the first stage limits the line
+        Integer bottleneck = null;
+        if (Arrays.stream(units).sum() > 0) {
+            bottleneck = 0;
+            long largestAccumulation = 0;
+            for (int i = 0; i < peakWip.length; i++) {
+                long accumulation = units[i] - defects[i] - units[i + 1];
+                if (accumulation > largestAccumulation) {
+                    largestAccumulation = accumulation;
+                    bottleneck = i + 1;
+                }
+            }
+        }
 
-        Integer unitsProduced = metricsRepository.getTotalUnitsByStageAndTimeRange(
-                stageOrder, startTime, endTime);
-        Integer defectiveUnits = metricsRepository.getTotalDefectiveUnitsByStageAndTimeRange(
-                stageOrder, startTime, endTime);
+        List<StagePipelineDto> stageAnalyses = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            StageHealthDto stage = stages.get(i);
+            long good = units[i] - defects[i];
+            stageAnalyses.add(new StagePipelineDto(
+                    stage.sequenceOrder(),
+                    stage.stageName(),
+                    units[i],
+                    defects[i],
+                    good,
+                    hours > 0 ? units[i] / hours : 0.0,
+                    hours > 0 ? good / hours : 0.0,
+                    units[i] > 0 ? 100.0 * good / units[i] : 0.0,
+                    stage.totalDevices(),
+                    stage.operationalDevices(),
+                    stage.totalDevices() > 0 ? 100.0 * stage.operationalDevices() / stage.totalDevices() : 0.0,
+                    bottleneck != null && bottleneck == i));
+        }
+        List<WipBufferDto> buffers = new ArrayList<>(peakWip.length);
+        for (int i = 0; i < peakWip.length; i++) {
+            buffers.add(new WipBufferDto(stages.get(i).sequenceOrder(), stages.get(i + 1).sequenceOrder(),
+                    units[i] - defects[i] - units[i + 1], peakWip[i]));
+        }
+        return new PipelineAnalysisDto(coveredFrom, coveredTo, hours,
+                bottleneck != null ? stages.get(bottleneck).sequenceOrder() : null, stageAnalyses, buffers);
+    }
 
-        // Handle null values from the database
-        unitsProduced = unitsProduced != null ? unitsProduced : 0;
-        defectiveUnits = defectiveUnits != null ? defectiveUnits : 0;
+    // Good units delivered into each buffer minus units taken out of it, so far
+    private static void updatePeakWip(long[] units, long[] defects, long[] peakWip) {
+        for (int i = 0; i < peakWip.length; i++) {
+            peakWip[i] = Math.max(peakWip[i], units[i] - defects[i] - units[i + 1]);
+        }
+    }
+
+    // Range of whole hours inside [startTime, endTime]; empty (both ends at startTime) if there is none
+    private LocalDateTime[] wholeHourBuckets(LocalDateTime startTime, LocalDateTime endTime) {
+        LocalDateTime bucketsFrom = startTime.truncatedTo(ChronoUnit.HOURS);
+        if (bucketsFrom.isBefore(startTime)) {
+            bucketsFrom = bucketsFrom.plusHours(1);
+        }
+        LocalDateTime bucketsTo = endTime.truncatedTo(ChronoUnit.HOURS);
+        if (!bucketsFrom.isBefore(bucketsTo)) {
+            return new LocalDateTime[]{startTime, startTime};
+        }
+        return new LocalDateTime[]{bucketsFrom, bucketsTo};
+    }
+
+    private ProductionOutputDto toProductionOutputDto(StageOutputTotals totals,
+                                                      LocalDateTime startTime, LocalDateTime endTime) {
+        int unitsProduced = (int) totals.unitsProduced();
+        int defectiveUnits = (int) totals.defectiveUnits();
 
         double effectiveYield = unitsProduced > 0
                 ? 100.0 * (unitsProduced - defectiveUnits) / unitsProduced
                 : 0.0;
 
         return new ProductionOutputDto(
-                stageOrder,
-                stage.getName(),
+                totals.stageOrder(),
+                totals.stageName(),
                 unitsProduced,
                 defectiveUnits,
                 effectiveYield,
@@ -116,27 +326,122 @@ public class FactoryService {
         );
     }
 
-    @McpTool(description = "Retrieves production output metrics for all manufacturing stages in the factory during a specified time period")
-    public List<ProductionOutputDto> getAllStagesOutput(LocalDateTime startTime, LocalDateTime endTime) {
-        List<ManufacturingStage> stages = stageRepository.findAll();
-        List<ProductionOutputDto> outputs = new ArrayList<>();
-
-        for (ManufacturingStage stage : stages) {
-            ProductionOutputDto output = getStageOutput(stage.getSequenceOrder(), startTime, endTime);
-            if (output != null) {
-                outputs.add(output);
+    @Transactional
+    public void recordProductionMetrics(Long deviceId, int unitsProduced, int defectiveUnits, double cycleTimeMinutes) {
+        if (writeBehindBuffer.isEnabled()) {
+            // Unknown devices are dropped up front so they cannot fail a whole flush later
+            if (healthRegistry.containsDevice(deviceId)) {
+                writeBehindBuffer.submit(new MetricReading(
+                        deviceId, LocalDateTime.now(), unitsProduced, defectiveUnits, cycleTimeMinutes));
             }
+            return;
+        }
+        if (healthRegistry.containsDevice(deviceId)) {
+            metricsWriter.write(List.of(new MetricReading(
+                    deviceId, LocalDateTime.now(), unitsProduced, defectiveUnits, cycleTimeMinutes)));
         }
+    }
 
-        return outputs;
+    public WriteBehindStatsDto getWriteBehindStats() {
+        return writeBehindBuffer.getStats();
     }
 
+    @McpTool(description = "Records a batch of production readings from factory devices, each with its own timestamp, and reports how many were accepted along with the index and reason for every rejected reading")
     @Transactional
-    public void recordProductionMetrics(Long deviceId, int unitsProduced, int defectiveUnits, double cycleTimeMinutes) {
-        deviceRepository.findById(deviceId).ifPresent(device -> {
-            ProductionMetrics metrics = new ProductionMetrics(
-                    LocalDateTime.now(), unitsProduced, defectiveUnits, cycleTimeMinutes, device);
-            metricsRepository.save(metrics);
-        });
+    public BatchIngestResultDto recordProductionMetricsBatch(List<ProductionMetricsReadingDto> readings) {
+        // Devices are resolved against one registry snapshot rather than the database
+        Set<Long> knownIds = healthRegistry.snapshot().deviceStages().keySet();
+
+        List<MetricReading> accepted = new ArrayList<>(readings.size());
+        List<BatchIngestResultDto.RejectedReading> rejections = new ArrayList<>();
+
+        for (int i = 0; i < readings.size(); i++) {
+            ProductionMetricsReadingDto reading = readings.get(i);
+            String reason = validateReading(reading, knownIds);
+            if (reason != null) {
+                rejections.add(new BatchIngestResultDto.RejectedReading(i, reading.deviceId(), reason));
+                continue;
+            }
+            accepted.add(new MetricReading(
+                    reading.deviceId(),
+                    reading.timestamp(),
+                    reading.unitsProduced(),
+                    reading.defectiveUnits(),
+                    reading.cycleTimeMinutes()));
+        }
+
+        metricsWriter.write(accepted);
+        return new BatchIngestResultDto(accepted.size(), rejections.size(), rejections);
+    }
+
+    // Not transactional: the exporter reads each page in its own read-only transaction
+    public long exportProductionMetrics(Long deviceId, Integer stageOrder, LocalDateTime startTime,
+                                        LocalDateTime endTime, MetricsExportFormat format,
+                                        OutputStream out) throws IOException {
+        return metricsExporter.export(deviceId, stageOrder, startTime, endTime, format, out);
+    }
+
+    // Not transactional: cached outputs are dropped once the rebuilt buckets are committed
+    public void rebuildProductionRollup() {
+        productionRollup.rebuild();
+        outputCache.invalidateAll();
+    }
+
+    public OutputCacheStatsDto getOutputCacheStats() {
+        return outputCache.getStats();
+    }
+
+    public OutputIndexStatsDto getOutputIndexStats() {
+        return outputIndex.getStats();
+    }
+
+    // Not transactional: the compactor commits each chunk separately
+    public CompactionResultDto compactProductionMetrics() {
+        return metricsCompactor.compact(LocalDateTime.now());
+    }
+
+    private String validateHealthUpdate(DeviceHealthUpdateDto update, Set<Long> knownIds, LocalDateTime now) {
+        if (update.deviceId() == null) {
+            return "deviceId is required";
+        }
+        if (!knownIds.contains(update.deviceId())) {
+            return "unknown device";
+        }
+        if (update.operational() == null) {
+            return "operational is required";
+        }
+        if (update.healthScore() == null || update.healthScore() < 0 || update.healthScore() > 100) {
+            return "healthScore must be between 0 and 100";
+        }
+        // The current state only moves forward, so one sample from the future would block every real one
+        if (update.timestamp() != null && update.timestamp().isAfter(now.plusMinutes(healthFutureToleranceMinutes))) {
+            return "timestamp is too far in the future";
+        }
+        return null;
+    }
+
+    private String validateReading(ProductionMetricsReadingDto reading, Set<Long> knownIds) {
+        if (reading.deviceId() == null) {
+            return "deviceId is required";
+        }
+        if (!knownIds.contains(reading.deviceId())) {
+            return "unknown device";
+        }
+        if (reading.timestamp() == null) {
+            return "timestamp is required";
+        }
+        if (reading.unitsProduced() == null || reading.unitsProduced() < 0) {
+            return "unitsProduced must be zero or greater";
+        }
+        if (reading.defectiveUnits() == null || reading.defectiveUnits() < 0) {
+            return "defectiveUnits must be zero or greater";
+        }
+        if (reading.defectiveUnits() > reading.unitsProduced()) {
+            return "defectiveUnits cannot exceed unitsProduced";
+        }
+        if (reading.cycleTimeMinutes() == null || reading.cycleTimeMinutes() < 0) {
+            return "cycleTimeMinutes must be zero or greater";
+        }
+        return null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package org.tanzu.factory.factory;
+
+/**
+ * Binary indexed tree of long sums over positions {@code 0..size-1}: point updates and prefix
+ * sums in O(log n), in one primitive array.
+ */
+final class FenwickTree {
+    private final long[] tree;
+
+    FenwickTree(int size) {
+        this.tree = new long[size + 1];
+    }
+
+    // Builds the tree from point values in O(n)
+    static FenwickTree of(long[] values) {
+        FenwickTree fenwick = new FenwickTree(values.length);
+        long[] tree = fenwick.tree;
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += values[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        return fenwick;
+    }
+
+    void add(int position, long delta) {
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Sum of positions 0..end-1
+    long prefixSum(int end) {
+        long sum = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    static long bytesFor(int size) {
+        return 8L * (size + 1);
+    }
+}
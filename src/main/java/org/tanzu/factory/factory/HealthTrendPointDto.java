@@ -0,0 +1,12 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record HealthTrendPointDto(
+        LocalDateTime bucketStart,
+        double averageHealthScore,
+        double minHealthScore,
+        double maxHealthScore,
+        long samples,
+        double operationalRatio
+) {}
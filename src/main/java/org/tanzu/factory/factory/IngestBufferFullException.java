@@ -0,0 +1,13 @@
+package org.tanzu.factory.factory;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IngestBufferFullException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public IngestBufferFullException() {
+        super("Production metrics buffer is full, retry later");
+    }
+}
@@ -1,6 +1,7 @@
 package org.tanzu.factory.factory;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -8,6 +9,7 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,8 +25,9 @@ public class IoTDevice {
     private String deviceType;
     private boolean operational;
     private double healthScore; // 0-100 scale
+    private LocalDateTime healthUpdatedAt; // timestamp of the sample behind the current health
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "stage_id")
     private ManufacturingStage stage;
 
@@ -41,6 +44,7 @@ public class IoTDevice {
         this.stage = stage;
         this.operational = true;
         this.healthScore = 100.0;
+        this.healthUpdatedAt = LocalDateTime.now();
     }
 
     // Getters and setters
@@ -92,6 +96,14 @@ public class IoTDevice {
         this.healthScore = healthScore;
     }
 
+    public LocalDateTime getHealthUpdatedAt() {
+        return healthUpdatedAt;
+    }
+
+    public void setHealthUpdatedAt(LocalDateTime healthUpdatedAt) {
+        this.healthUpdatedAt = healthUpdatedAt;
+    }
+
     public ManufacturingStage getStage() {
         return stage;
     }
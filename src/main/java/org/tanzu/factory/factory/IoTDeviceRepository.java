@@ -1,9 +1,14 @@
 package org.tanzu.factory.factory;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import java.util.List;
 
 public interface IoTDeviceRepository extends JpaRepository<IoTDevice, Long> {
-    List<IoTDevice> findByStage(ManufacturingStage stage);
-    List<IoTDevice> findByStageAndOperationalTrue(ManufacturingStage stage);
+
+    // The stage id is read from the foreign key column, so stages are neither joined nor loaded
+    @Query("SELECT new org.tanzu.factory.factory.StageDeviceHealth(d.stage.id, d.id, d.deviceId, d.name, " +
+            "d.deviceType, d.operational, d.healthScore, d.healthUpdatedAt) " +
+            "FROM IoTDevice d ORDER BY d.id")
+    List<StageDeviceHealth> findAllDeviceHealth();
 }
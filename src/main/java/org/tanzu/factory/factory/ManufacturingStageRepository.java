@@ -1,7 +1,16 @@
 package org.tanzu.factory.factory;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.util.List;
 
 public interface ManufacturingStageRepository extends JpaRepository<ManufacturingStage, Long> {
-    ManufacturingStage findBySequenceOrder(int sequenceOrder);
+
+    @Query("SELECT new org.tanzu.factory.factory.StageSummary(s.id, s.name, s.sequenceOrder) " +
+            "FROM ManufacturingStage s ORDER BY s.sequenceOrder")
+    List<StageSummary> findAllSummaries();
+
+    @Query("SELECT new org.tanzu.factory.factory.StageSummary(s.id, s.name, s.sequenceOrder) " +
+            "FROM ManufacturingStage s WHERE s.sequenceOrder = :sequenceOrder")
+    StageSummary findSummaryBySequenceOrder(int sequenceOrder);
 }
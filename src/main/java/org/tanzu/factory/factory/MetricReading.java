@@ -0,0 +1,11 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record MetricReading(
+        long deviceId,
+        LocalDateTime timestamp,
+        int unitsProduced,
+        int defectiveUnits,
+        double cycleTimeMinutes
+) {}
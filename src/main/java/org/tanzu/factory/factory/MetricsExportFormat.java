@@ -0,0 +1,33 @@
+package org.tanzu.factory.factory;
+
+import org.springframework.http.MediaType;
+
+public enum MetricsExportFormat {
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson"),
+    CSV(MediaType.parseMediaType("text/csv"), "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    MetricsExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static MetricsExportFormat fromName(String name) {
+        for (MetricsExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,301 @@
+package org.tanzu.factory.factory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Crash-safe append-only log behind the write-behind buffer. Every queued reading is also written
+ * as a fixed-width record into a memory-mapped segment file and forced to disk before the device
+ * is acknowledged. Producers waiting at the same time share one force, so durability costs a
+ * group commit instead of a database transaction per reading. A checkpoint file counts the
+ * records the flusher has handed to the database; on startup the records past it are replayed,
+ * which makes delivery at-least-once. Segments roll when full and are deleted once the
+ * checkpoint has passed them.
+ */
+@Component
+public class MetricsIngestLog {
+    private static final Logger log = LoggerFactory.getLogger(MetricsIngestLog.class);
+
+    // Device id, timestamp as UTC epoch microseconds, units, defects, cycle time
+    static final int RECORD_BYTES = 32;
+    private static final int TIMESTAMP_OFFSET = 8;
+    private static final int UNITS_OFFSET = 16;
+    private static final int DEFECTS_OFFSET = 20;
+    private static final int CYCLE_TIME_OFFSET = 24;
+    private static final String SEGMENT_PREFIX = "ingest-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentRecords;
+    private final boolean sync;
+
+    // Guards the segment list and the checkpoint; appends are serialized by the caller
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ArrayDeque<Long> segmentBases = new ArrayDeque<>();
+    private final ByteBuffer checkpointBuffer = ByteBuffer.allocate(Long.BYTES);
+    private FileChannel checkpointChannel;
+
+    private volatile MappedByteBuffer current;
+    private long currentBase;
+    private int currentCapacity;
+    private volatile long appended;
+    private volatile long durable;
+    private long checkpoint;
+    private long recoveredEnd;
+
+    public MetricsIngestLog(@Value("${factory.ingest.write-behind.enabled:false}") boolean writeBehindEnabled,
+                            @Value("${factory.ingest.log.enabled:false}") boolean enabled,
+                            @Value("${factory.ingest.log.directory:ingest-log}") Path directory,
+                            @Value("${factory.ingest.log.segment-bytes:16777216}") int segmentBytes,
+                            @Value("${factory.ingest.log.sync:true}") boolean sync) {
+        // Only the write-behind path acknowledges readings before they reach the database
+        this.enabled = writeBehindEnabled && enabled;
+        this.directory = directory;
+        this.segmentRecords = Math.max(1, segmentBytes / RECORD_BYTES);
+        this.sync = sync;
+        if (this.enabled) {
+            try {
+                open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open ingest log in " + directory, e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (checkpointChannel.size() >= Long.BYTES) {
+            checkpointChannel.read(checkpointBuffer, 0);
+            checkpoint = checkpointBuffer.getLong(0);
+        }
+
+        List<Long> bases;
+        try (Stream<Path> files = Files.list(directory)) {
+            bases = files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        segmentBases.addAll(bases);
+
+        if (segmentBases.isEmpty()) {
+            appended = checkpoint;
+            roll();
+        } else {
+            currentBase = segmentBases.peekLast();
+            try (FileChannel channel = FileChannel.open(segmentPath(currentBase),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                currentCapacity = (int) (channel.size() / RECORD_BYTES);
+                current = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) currentCapacity * RECORD_BYTES);
+            }
+            // Slots are zero until written and the device id goes in last, so the first empty id ends the log
+            int slot = 0;
+            while (slot < currentCapacity && current.getLong(slot * RECORD_BYTES) != 0) {
+                slot++;
+            }
+            appended = currentBase + slot;
+            checkpoint = Math.min(Math.max(checkpoint, segmentBases.peekFirst()), appended);
+            deleteCheckpointedSegments();
+        }
+        durable = appended;
+        recoveredEnd = appended;
+        if (recoveredEnd > checkpoint) {
+            log.info("Ingest log holds {} readings that were not flushed before shutdown", recoveredEnd - checkpoint);
+        }
+    }
+
+    // Makes room for the next append, rolling to a new segment when the current one is full
+    void reserve() {
+        if (appended - currentBase < currentCapacity) {
+            return;
+        }
+        lock.lock();
+        try {
+            roll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll ingest log segment", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        MappedByteBuffer previous = current;
+        if (previous != null) {
+            // Waiters only force the current segment, so a retired one must be durable first
+            previous.force();
+        }
+        long base = appended;
+        try (FileChannel channel = FileChannel.open(segmentPath(base),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_BYTES);
+        }
+        currentBase = base;
+        currentCapacity = segmentRecords;
+        segmentBases.addLast(base);
+    }
+
+    // Callers serialize appends and call reserve() first; returns the reading's sequence number
+    long append(MetricReading reading) {
+        long sequence = appended;
+        int offset = (int) (sequence - currentBase) * RECORD_BYTES;
+        MappedByteBuffer buffer = current;
+        LocalDateTime timestamp = reading.timestamp();
+        buffer.putLong(offset + TIMESTAMP_OFFSET,
+                timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + timestamp.getNano() / 1_000);
+        buffer.putInt(offset + UNITS_OFFSET, reading.unitsProduced());
+        buffer.putInt(offset + DEFECTS_OFFSET, reading.defectiveUnits());
+        buffer.putDouble(offset + CYCLE_TIME_OFFSET, reading.cycleTimeMinutes());
+        buffer.putLong(offset, reading.deviceId());
+        appended = sequence + 1;
+        return sequence;
+    }
+
+    void awaitDurable(long sequence) {
+        if (!sync || durable > sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            // The holder forces everything appended so far, covering the producers queued behind it
+            if (durable > sequence) {
+                return;
+            }
+            long target = appended;
+            current.force();
+            durable = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Records that count readings as committed to the database, then drops segments behind the checkpoint
+    void checkpoint(int count) {
+        lock.lock();
+        try {
+            checkpoint += count;
+            checkpointBuffer.clear();
+            checkpointBuffer.putLong(checkpoint).flip();
+            checkpointChannel.write(checkpointBuffer, 0);
+            checkpointChannel.force(false);
+            deleteCheckpointedSegments();
+        } catch (IOException e) {
+            // A stale checkpoint only means replaying readings that are already in the database
+            log.warn("Could not persist ingest log checkpoint {}", checkpoint, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteCheckpointedSegments() throws IOException {
+        while (segmentBases.size() > 1) {
+            long oldest = segmentBases.removeFirst();
+            if (segmentBases.peekFirst() > checkpoint) {
+                segmentBases.addFirst(oldest);
+                return;
+            }
+            Files.deleteIfExists(segmentPath(oldest));
+        }
+    }
+
+    // Hands the readings left unflushed by the previous run to the sink in order, in chunks;
+    // stops and returns false as soon as the sink declines a chunk
+    boolean replay(int chunkSize, Predicate<List<MetricReading>> sink) {
+        long[] bases;
+        long sequence;
+        lock.lock();
+        try {
+            bases = segmentBases.stream().mapToLong(Long::longValue).toArray();
+            sequence = checkpoint;
+        } finally {
+            lock.unlock();
+        }
+
+        List<MetricReading> chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < bases.length && sequence < recoveredEnd; i++) {
+            long segmentEnd = i + 1 < bases.length ? Math.min(bases[i + 1], recoveredEnd) : recoveredEnd;
+            if (segmentEnd <= sequence) {
+                continue;
+            }
+            MappedByteBuffer buffer = mapForReplay(bases[i]);
+            for (; sequence < segmentEnd; sequence++) {
+                chunk.add(read(buffer, (int) (sequence - bases[i]) * RECORD_BYTES));
+                if (chunk.size() == chunkSize) {
+                    if (!sink.test(chunk)) {
+                        return false;
+                    }
+                    chunk.clear();
+                }
+            }
+        }
+        return chunk.isEmpty() || sink.test(chunk);
+    }
+
+    private MappedByteBuffer mapForReplay(long base) {
+        try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read ingest log segment " + base, e);
+        }
+    }
+
+    private static MetricReading read(MappedByteBuffer buffer, int offset) {
+        long micros = buffer.getLong(offset + TIMESTAMP_OFFSET);
+        return new MetricReading(
+                buffer.getLong(offset),
+                LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                        Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC),
+                buffer.getInt(offset + UNITS_OFFSET),
+                buffer.getInt(offset + DEFECTS_OFFSET),
+                buffer.getDouble(offset + CYCLE_TIME_OFFSET));
+    }
+
+    void close() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            current.force();
+            checkpointChannel.close();
+        } catch (IOException e) {
+            log.warn("Could not close ingest log", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", base) + SEGMENT_SUFFIX);
+    }
+}
@@ -0,0 +1,272 @@
+package org.tanzu.factory.factory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional write-behind mode for production readings. Readings are acknowledged as soon as they
+ * are queued, and a background flusher writes them in batches when either the flush size is
+ * reached or the flush interval elapses. The queue is bounded: producers wait briefly for space
+ * and are rejected after that, so a slow database pushes back on devices instead of growing heap.
+ * With the {@link MetricsIngestLog} enabled, a reading is only acknowledged once it is durable in
+ * the log, and readings a crash left unflushed are replayed before the queue is drained.
+ * A batch that fails to commit is retried with backoff until it succeeds, so a database outage
+ * fills the queue and rejects devices rather than losing readings. If the buffer stops while a
+ * batch is still failing, logged readings stay in the log for the next start.
+ */
+@Component
+public class MetricsWriteBehindBuffer implements SmartLifecycle {
+    private static final Logger log = LoggerFactory.getLogger(MetricsWriteBehindBuffer.class);
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 1000;
+
+    private final ProductionMetricsWriter metricsWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsIngestLog ingestLog;
+    private final boolean enabled;
+    private final int capacity;
+    private final int flushSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final boolean virtualThreads;
+    private final BlockingQueue<MetricReading> queue;
+    // Keeps the log and the queue in the same order, so the flusher can checkpoint by count
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public MetricsWriteBehindBuffer(ProductionMetricsWriter metricsWriter,
+                                    TransactionTemplate transactionTemplate,
+                                    MetricsIngestLog ingestLog,
+                                    @Value("${factory.ingest.write-behind.enabled:false}") boolean enabled,
+                                    @Value("${factory.ingest.write-behind.capacity:10000}") int capacity,
+                                    @Value("${factory.ingest.write-behind.flush-size:1000}") int flushSize,
+                                    @Value("${factory.ingest.write-behind.flush-interval-ms:250}") long flushIntervalMillis,
+                                    @Value("${factory.ingest.write-behind.offer-timeout-ms:100}") long offerTimeoutMillis,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.metricsWriter = metricsWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.ingestLog = ingestLog;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.flushSize = flushSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.virtualThreads = virtualThreads;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(MetricReading reading) {
+        if (!running) {
+            throw new IngestBufferFullException();
+        }
+        boolean queued;
+        long sequence = -1;
+        try {
+            if (ingestLog.isEnabled()) {
+                sequence = offerLogged(reading);
+                queued = sequence >= 0;
+            } else {
+                queued = queue.offer(reading, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            rejected.incrementAndGet();
+            throw new IngestBufferFullException();
+        }
+        if (sequence >= 0) {
+            ingestLog.awaitDurable(sequence);
+        }
+        accepted.incrementAndGet();
+    }
+
+    // Returns the reading's log sequence, or -1 if the queue stayed full
+    private long offerLogged(MetricReading reading) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        if (!appendLock.tryLock(offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            return -1;
+        }
+        try {
+            ingestLog.reserve();
+            if (!queue.offer(reading, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return -1;
+            }
+            return ingestLog.append(reading);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public WriteBehindStatsDto getStats() {
+        return new WriteBehindStatsDto(
+                enabled,
+                queue.size(),
+                capacity,
+                accepted.get(),
+                rejected.get(),
+                flushed.get(),
+                failed.get(),
+                flushes.get(),
+                replayed.get()
+        );
+    }
+
+    private void runFlusher() {
+        if (ingestLog.isEnabled() && !replayLog()) {
+            return;
+        }
+        List<MetricReading> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Nothing else interrupts this thread; keep draining so no accepted reading is lost
+                queue.drainTo(batch, flushSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                boolean committed = flush(batch);
+                if (!committed && ingestLog.isEnabled()) {
+                    // The checkpoint counts readings in order, so nothing after this batch may commit
+                    log.warn("Leaving {} unflushed readings in the ingest log for replay", batch.size() + queue.size());
+                    return;
+                }
+                if (!committed) {
+                    log.error("Dropped {} buffered production readings at shutdown", batch.size());
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // Collects readings until the batch is full or the flush interval has elapsed
+    private void fillBatch(List<MetricReading> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < flushSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            MetricReading reading = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (reading == null) {
+                return;
+            }
+            batch.add(reading);
+            queue.drainTo(batch, flushSize - batch.size());
+        }
+    }
+
+    // Returns false if the buffer stopped before the whole tail was replayed
+    private boolean replayLog() {
+        boolean complete;
+        try {
+            complete = ingestLog.replay(flushSize, batch -> {
+                if (!flush(batch)) {
+                    return false;
+                }
+                replayed.addAndGet(batch.size());
+                return true;
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to read the production metrics ingest log", e);
+            complete = false;
+        }
+        if (replayed.get() > 0) {
+            log.info("Replayed {} production readings from the ingest log", replayed.get());
+        }
+        return complete;
+    }
+
+    // Retries until the batch commits; returns false only if the buffer is stopping and the attempt failed
+    private boolean flush(List<MetricReading> batch) {
+        long backoffMillis = flushIntervalMillis;
+        while (true) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> metricsWriter.write(batch));
+                flushed.addAndGet(batch.size());
+                flushes.incrementAndGet();
+                if (ingestLog.isEnabled()) {
+                    ingestLog.checkpoint(batch.size());
+                }
+                return true;
+            } catch (RuntimeException e) {
+                failed.addAndGet(batch.size());
+                log.error("Failed to flush {} buffered production readings", batch.size(), e);
+            }
+            if (!running) {
+                return false;
+            }
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMillis = Math.min(backoffMillis * 2, MAX_RETRY_BACKOFF_MILLIS);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        flusher = builder.name("metrics-write-behind").start(this::runFlusher);
+        log.info("Write-behind buffer started (capacity {}, flush size {}, flush interval {} ms)",
+                capacity, flushSize, flushIntervalMillis);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // The flusher notices within one flush interval and drains the queue before exiting
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ingestLog.close();
+        log.info("Write-behind buffer stopped after flushing {} readings", flushed.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop after the web server so in-flight requests are queued before the final drain
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
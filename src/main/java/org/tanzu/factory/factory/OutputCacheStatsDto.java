@@ -0,0 +1,11 @@
+package org.tanzu.factory.factory;
+
+public record OutputCacheStatsDto(
+        int cachedWindows,
+        long estimatedBytes,
+        long hits,
+        long misses,
+        long bypasses,
+        long invalidations,
+        long evictions
+) {}
@@ -0,0 +1,13 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record OutputIndexStatsDto(
+        boolean loaded,
+        LocalDateTime horizonStart,
+        LocalDateTime horizonEnd,
+        int stages,
+        long estimatedBytes,
+        long indexedQueries,
+        long fallbackQueries
+) {}
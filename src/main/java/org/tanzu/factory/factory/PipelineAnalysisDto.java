@@ -0,0 +1,13 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record PipelineAnalysisDto(
+        LocalDateTime startTime,
+        LocalDateTime endTime,
+        double hours,
+        Integer bottleneckStageOrder,
+        List<StagePipelineDto> stages,
+        List<WipBufferDto> buffers
+) {}
@@ -1,19 +1,25 @@
 package org.tanzu.factory.factory;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "production_metrics")
+// Time index serves raw window edges and retention deletes; the id orders keyset export pages
+@Table(name = "production_metrics", indexes = @Index(columnList = "timestamp, id"))
 public class ProductionMetrics {
+    // Pooled sequence ids let Hibernate batch inserts, which identity columns prevent
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "production_metrics_seq")
+    @SequenceGenerator(name = "production_metrics_seq", sequenceName = "production_metrics_seq", allocationSize = 100)
     private Long id;
 
     private LocalDateTime timestamp;
@@ -21,7 +27,7 @@ public class ProductionMetrics {
     private int defectiveUnits;
     private double cycleTimeMinutes; // Time to produce one unit
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "device_id")
     private IoTDevice device;
 
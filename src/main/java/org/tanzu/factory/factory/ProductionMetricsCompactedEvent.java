@@ -0,0 +1,7 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+// Readings in [from, to) were purged or downsampled; totals for windows not aligned to the retained granularity may change
+public record ProductionMetricsCompactedEvent(LocalDateTime from, LocalDateTime to) {
+}
@@ -0,0 +1,243 @@
+package org.tanzu.factory.factory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Applies the retention tiers for production data. Raw readings and device health samples are
+ * kept for {@code factory.retention.raw-days}; their totals live on in the hourly rollup, so deleting them
+ * only affects windows that are not aligned to whole hours. Hourly buckets older than
+ * {@code factory.retention.hourly-months} are merged into one bucket per device and day in the
+ * same table. Each chunk (a few hours of raw rows, or one day of buckets) commits on its own so
+ * table locks are held briefly, and a run stops after {@code max-chunks-per-run} chunks.
+ */
+@Component
+public class ProductionMetricsCompactor {
+    private static final Logger log = LoggerFactory.getLogger(ProductionMetricsCompactor.class);
+
+    private static final String HOURLY_BUCKET = "bucket_end = bucket_start + INTERVAL '1' HOUR";
+
+    private static final String DOWNSAMPLE_SELECT_SQL = "SELECT stage_id, device_id, SUM(units_produced), " +
+            "SUM(defective_units), SUM(cycle_time_sum), SUM(cycle_time_count), MIN(cycle_time_min), MAX(cycle_time_max) " +
+            "FROM production_metrics_hourly WHERE bucket_start >= ? AND bucket_start < ? AND " + HOURLY_BUCKET +
+            " GROUP BY stage_id, device_id";
+
+    private static final String DOWNSAMPLE_DELETE_SQL = "DELETE FROM production_metrics_hourly " +
+            "WHERE bucket_start >= ? AND bucket_start < ? AND " + HOURLY_BUCKET;
+
+    // Adds to an existing daily bucket, e.g. one written by an earlier run before a late reading arrived
+    private static final String DAILY_MERGE_SQL = "MERGE INTO production_metrics_hourly r " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TIMESTAMP(6)), CAST(? AS TIMESTAMP(6)), " +
+            "CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS DOUBLE), CAST(? AS BIGINT), " +
+            "CAST(? AS DOUBLE), CAST(? AS DOUBLE))) " +
+            "AS v(stage_id, device_id, bucket_start, bucket_end, units, defects, cycle_sum, cycle_count, cycle_min, cycle_max) " +
+            "ON r.device_id = v.device_id AND r.bucket_start = v.bucket_start " +
+            "WHEN MATCHED THEN UPDATE SET r.bucket_end = v.bucket_end, " +
+            "r.units_produced = r.units_produced + v.units, " +
+            "r.defective_units = r.defective_units + v.defects, " +
+            "r.cycle_time_sum = r.cycle_time_sum + v.cycle_sum, " +
+            "r.cycle_time_count = r.cycle_time_count + v.cycle_count, " +
+            "r.cycle_time_min = LEAST(r.cycle_time_min, v.cycle_min), " +
+            "r.cycle_time_max = GREATEST(r.cycle_time_max, v.cycle_max) " +
+            "WHEN NOT MATCHED THEN INSERT (stage_id, device_id, bucket_start, bucket_end, units_produced, " +
+            "defective_units, cycle_time_sum, cycle_time_count, cycle_time_min, cycle_time_max) " +
+            "VALUES (v.stage_id, v.device_id, v.bucket_start, v.bucket_end, v.units, v.defects, v.cycle_sum, " +
+            "v.cycle_count, v.cycle_min, v.cycle_max)";
+
+    // Cycle time sketches are downsampled the same way; merging them is a sum per bin
+    private static final String SKETCH_DOWNSAMPLE_SELECT_SQL = "SELECT stage_id, device_id, bin_index, SUM(sample_count) " +
+            "FROM cycle_time_hourly WHERE bucket_start >= ? AND bucket_start < ? AND " + HOURLY_BUCKET +
+            " GROUP BY stage_id, device_id, bin_index";
+
+    private static final String SKETCH_DOWNSAMPLE_DELETE_SQL = "DELETE FROM cycle_time_hourly " +
+            "WHERE bucket_start >= ? AND bucket_start < ? AND " + HOURLY_BUCKET;
+
+    private static final String SKETCH_DAILY_MERGE_SQL = "MERGE INTO cycle_time_hourly c " +
+            "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS TIMESTAMP(6)), CAST(? AS TIMESTAMP(6)), " +
+            "CAST(? AS INTEGER), CAST(? AS BIGINT))) " +
+            "AS v(stage_id, device_id, bucket_start, bucket_end, bin_index, samples) " +
+            "ON c.device_id = v.device_id AND c.bucket_start = v.bucket_start AND c.bin_index = v.bin_index " +
+            "WHEN MATCHED THEN UPDATE SET c.bucket_end = v.bucket_end, c.sample_count = c.sample_count + v.samples " +
+            "WHEN NOT MATCHED THEN INSERT (stage_id, device_id, bucket_start, bucket_end, bin_index, sample_count) " +
+            "VALUES (v.stage_id, v.device_id, v.bucket_start, v.bucket_end, v.bin_index, v.samples)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int rawDays;
+    private final int hourlyMonths;
+    private final int chunkHours;
+    private final int maxChunksPerRun;
+    private final int batchSize;
+
+    public ProductionMetricsCompactor(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      ApplicationEventPublisher eventPublisher,
+                                      @Value("${factory.retention.enabled:true}") boolean enabled,
+                                      @Value("${factory.retention.raw-days:30}") int rawDays,
+                                      @Value("${factory.retention.hourly-months:12}") int hourlyMonths,
+                                      @Value("${factory.retention.chunk-hours:6}") int chunkHours,
+                                      @Value("${factory.retention.max-chunks-per-run:500}") int maxChunksPerRun,
+                                      @Value("${factory.ingest.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.rawDays = rawDays;
+        this.hourlyMonths = hourlyMonths;
+        this.chunkHours = chunkHours;
+        this.maxChunksPerRun = maxChunksPerRun;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${factory.retention.initial-delay-ms:60000}",
+            fixedDelayString = "${factory.retention.interval-ms:3600000}")
+    public void scheduledCompaction() {
+        if (enabled) {
+            compact(LocalDateTime.now());
+        }
+    }
+
+    public CompactionResultDto compact(LocalDateTime now) {
+        LocalDateTime rawCutoff = now.toLocalDate().minusDays(rawDays).atStartOfDay();
+        // Hourly buckets are only downsampled once their raw readings are gone
+        LocalDateTime hourlyCutoff = now.toLocalDate().minusMonths(hourlyMonths).atStartOfDay();
+        if (hourlyCutoff.isAfter(rawCutoff)) {
+            hourlyCutoff = rawCutoff;
+        }
+
+        int chunks = 0;
+        long rawRowsDeleted = 0;
+        LocalDateTime oldestRaw;
+        while (chunks < maxChunksPerRun && (oldestRaw = oldestRawReadingBefore(rawCutoff)) != null) {
+            LocalDateTime from = oldestRaw.truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime to = min(from.plusHours(chunkHours), rawCutoff);
+            rawRowsDeleted += purgeRaw(from, to);
+            chunks++;
+        }
+
+        long healthSamplesDeleted = 0;
+        LocalDateTime oldestSample;
+        while (chunks < maxChunksPerRun && (oldestSample = oldestHealthSampleBefore(rawCutoff)) != null) {
+            LocalDateTime from = oldestSample.truncatedTo(ChronoUnit.HOURS);
+            LocalDateTime to = min(from.plusHours(chunkHours), rawCutoff);
+            healthSamplesDeleted += purgeHealthSamples(from, to);
+            chunks++;
+        }
+
+        int daysDownsampled = 0;
+        long hourlyRowsDownsampled = 0;
+        LocalDateTime oldestHourly;
+        while (chunks < maxChunksPerRun && (oldestHourly = oldestHourlyBucketBefore(hourlyCutoff)) != null) {
+            LocalDateTime day = oldestHourly.truncatedTo(ChronoUnit.DAYS);
+            hourlyRowsDownsampled += downsampleDay(day);
+            daysDownsampled++;
+            chunks++;
+        }
+
+        boolean complete = chunks < maxChunksPerRun;
+        if (chunks > 0) {
+            log.info("Compacted production metrics: {} raw readings and {} health samples before {} deleted, {} hourly buckets across {} days before {} downsampled{}",
+                    rawRowsDeleted, healthSamplesDeleted, rawCutoff, hourlyRowsDownsampled, daysDownsampled, hourlyCutoff,
+                    complete ? "" : " (chunk limit reached, continuing next run)");
+        }
+        return new CompactionResultDto(rawCutoff, hourlyCutoff, chunks, rawRowsDeleted, healthSamplesDeleted,
+                daysDownsampled,
+                hourlyRowsDownsampled, complete);
+    }
+
+    private LocalDateTime oldestRawReadingBefore(LocalDateTime cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(timestamp) FROM production_metrics WHERE timestamp < ?", Timestamp.class,
+                Timestamp.valueOf(cutoff));
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    private LocalDateTime oldestHealthSampleBefore(LocalDateTime cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(timestamp) FROM device_health_samples WHERE timestamp < ?", Timestamp.class,
+                Timestamp.valueOf(cutoff));
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    private LocalDateTime oldestHourlyBucketBefore(LocalDateTime cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT MIN(bucket_start) FROM production_metrics_hourly WHERE bucket_start < ? AND " + HOURLY_BUCKET,
+                Timestamp.class, Timestamp.valueOf(cutoff));
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    private int purgeRaw(LocalDateTime from, LocalDateTime to) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            eventPublisher.publishEvent(new ProductionMetricsCompactedEvent(from, to));
+            return jdbcTemplate.update("DELETE FROM production_metrics WHERE timestamp >= ? AND timestamp < ?",
+                    Timestamp.valueOf(from), Timestamp.valueOf(to));
+        });
+        return deleted != null ? deleted : 0;
+    }
+
+    // Health trends are served from device_health_hourly, which is kept
+    private int purgeHealthSamples(LocalDateTime from, LocalDateTime to) {
+        Integer deleted = transactionTemplate.execute(status -> jdbcTemplate.update(
+                "DELETE FROM device_health_samples WHERE timestamp >= ? AND timestamp < ?",
+                Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        return deleted != null ? deleted : 0;
+    }
+
+    private int downsampleDay(LocalDateTime day) {
+        LocalDateTime nextDay = day.plusDays(1);
+        Timestamp from = Timestamp.valueOf(day);
+        Timestamp to = Timestamp.valueOf(nextDay);
+        Integer downsampled = transactionTemplate.execute(status -> {
+            List<Object[]> daily = jdbcTemplate.query(DOWNSAMPLE_SELECT_SQL, (rs, rowNum) -> new Object[]{
+                    rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getDouble(5), rs.getLong(6),
+                    rs.getDouble(7), rs.getDouble(8)
+            }, from, to);
+            List<Object[]> dailyBins = jdbcTemplate.query(SKETCH_DOWNSAMPLE_SELECT_SQL, (rs, rowNum) -> new Object[]{
+                    rs.getLong(1), rs.getLong(2), rs.getInt(3), rs.getLong(4)
+            }, from, to);
+            // Hourly rows go first: the day's 00:00 bucket has the same key as the daily one
+            int removed = jdbcTemplate.update(DOWNSAMPLE_DELETE_SQL, from, to);
+            jdbcTemplate.update(SKETCH_DOWNSAMPLE_DELETE_SQL, from, to);
+            jdbcTemplate.batchUpdate(DAILY_MERGE_SQL, daily, batchSize, (ps, row) -> {
+                ps.setLong(1, (Long) row[0]);
+                ps.setLong(2, (Long) row[1]);
+                ps.setTimestamp(3, from);
+                ps.setTimestamp(4, to);
+                ps.setLong(5, (Long) row[2]);
+                ps.setLong(6, (Long) row[3]);
+                ps.setDouble(7, (Double) row[4]);
+                ps.setLong(8, (Long) row[5]);
+                ps.setDouble(9, (Double) row[6]);
+                ps.setDouble(10, (Double) row[7]);
+            });
+            jdbcTemplate.batchUpdate(SKETCH_DAILY_MERGE_SQL, dailyBins, batchSize, (ps, row) -> {
+                ps.setLong(1, (Long) row[0]);
+                ps.setLong(2, (Long) row[1]);
+                ps.setTimestamp(3, from);
+                ps.setTimestamp(4, to);
+                ps.setInt(5, (Integer) row[2]);
+                ps.setLong(6, (Long) row[3]);
+            });
+            eventPublisher.publishEvent(new ProductionMetricsCompactedEvent(day, nextDay));
+            return removed;
+        });
+        return downsampled != null ? downsampled : 0;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,155 @@
+package org.tanzu.factory.factory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams raw production readings to an output stream in pages of a bounded size. Pages are read
+ * by keyset, resuming after the (timestamp, id) of the last row written, so each query walks the
+ * (timestamp, id) index from where the previous one stopped and neither the database nor the
+ * driver ever holds more than one page. That matters on embedded HSQLDB, which materializes
+ * result sets and ignores the fetch size. Only scalar columns are selected and each row is written
+ * as soon as it is read, so no entities are created. Every page runs in its own short read-only
+ * transaction, so readings recorded behind the cursor while an export runs are not included.
+ */
+@Component
+public class ProductionMetricsExporter {
+
+    private static final String EXPORT_SQL = "SELECT pm.timestamp, s.sequence_order, pm.device_id, " +
+            "pm.units_produced, pm.defective_units, pm.cycle_time_minutes, pm.id " +
+            "FROM production_metrics pm " +
+            "JOIN iot_devices d ON d.id = pm.device_id " +
+            "JOIN manufacturing_stages s ON s.id = d.stage_id " +
+            "WHERE pm.timestamp >= ? AND pm.timestamp <= ? AND (pm.timestamp > ? OR pm.id > ?)";
+
+    private static final String CSV_HEADER =
+            "timestamp,stageOrder,deviceId,unitsProduced,defectiveUnits,cycleTimeMinutes\n";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int pageSize;
+    private final int bufferSize;
+
+    public ProductionMetricsExporter(DataSource dataSource,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${factory.export.page-size:5000}") int pageSize,
+                                     @Value("${factory.export.buffer-size:65536}") int bufferSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(pageSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.pageSize = pageSize;
+        this.bufferSize = bufferSize;
+    }
+
+    // Either filter may be null; with both null every device is exported
+    public long export(Long deviceId, Integer stageOrder, LocalDateTime startTime, LocalDateTime endTime,
+                       MetricsExportFormat format, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(EXPORT_SQL);
+        if (deviceId != null) {
+            sql.append(" AND pm.device_id = ?");
+        }
+        if (stageOrder != null) {
+            sql.append(" AND s.sequence_order = ?");
+        }
+        sql.append(" ORDER BY pm.timestamp, pm.id FETCH FIRST ? ROWS ONLY");
+        String pageSql = sql.toString();
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferSize);
+        if (format == MetricsExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        RowWriter rowWriter = new RowWriter(writer, format);
+        // The first page starts at the range start with no id to skip
+        LocalDateTime afterTimestamp = startTime;
+        long afterId = Long.MIN_VALUE;
+        long pageStart;
+        do {
+            pageStart = rowWriter.rows;
+            List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(afterTimestamp),
+                    Timestamp.valueOf(endTime), Timestamp.valueOf(afterTimestamp), afterId));
+            if (deviceId != null) {
+                args.add(deviceId);
+            }
+            if (stageOrder != null) {
+                args.add(stageOrder);
+            }
+            args.add(pageSize);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.query(pageSql, rowWriter, args.toArray()));
+            } catch (UncheckedIOException e) {
+                // The client went away; the cursor is already closed
+                throw e.getCause();
+            }
+            afterTimestamp = rowWriter.lastTimestamp;
+            afterId = rowWriter.lastId;
+        } while (rowWriter.rows - pageStart == pageSize);
+        writer.flush();
+        return rowWriter.rows;
+    }
+
+    private static final class RowWriter implements RowCallbackHandler {
+        private final Writer writer;
+        private final MetricsExportFormat format;
+        private final StringBuilder line = new StringBuilder(160);
+        private long rows;
+        private LocalDateTime lastTimestamp;
+        private long lastId;
+
+        private RowWriter(Writer writer, MetricsExportFormat format) {
+            this.writer = writer;
+            this.format = format;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            // One reused builder per export; every column is numeric or a timestamp, so nothing needs escaping
+            line.setLength(0);
+            lastTimestamp = rs.getTimestamp(1).toLocalDateTime();
+            lastId = rs.getLong(7);
+            String timestamp = DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(lastTimestamp);
+            if (format == MetricsExportFormat.CSV) {
+                line.append(timestamp).append(',')
+                        .append(rs.getInt(2)).append(',')
+                        .append(rs.getLong(3)).append(',')
+                        .append(rs.getInt(4)).append(',')
+                        .append(rs.getInt(5)).append(',')
+                        .append(rs.getDouble(6)).append('\n');
+            } else {
+                line.append("{\"timestamp\":\"").append(timestamp)
+                        .append("\",\"stageOrder\":").append(rs.getInt(2))
+                        .append(",\"deviceId\":").append(rs.getLong(3))
+                        .append(",\"unitsProduced\":").append(rs.getInt(4))
+                        .append(",\"defectiveUnits\":").append(rs.getInt(5))
+                        .append(",\"cycleTimeMinutes\":").append(rs.getDouble(6)).append("}\n");
+            }
+            try {
+                writer.append(line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            rows++;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import java.time.LocalDateTime;
+
+// Pre-aggregated production totals per device and hour, maintained by ProductionMetricsRollup
+@Entity
+@Table(name = "production_metrics_hourly",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"device_id", "bucket_start"}),
+        indexes = @Index(columnList = "bucket_start, stage_id"))
+public class ProductionMetricsHourly {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long stageId;
+    private Long deviceId;
+    private LocalDateTime bucketStart;
+    private LocalDateTime bucketEnd;
+    private long unitsProduced;
+    private long defectiveUnits;
+    private double cycleTimeSum;
+    private long cycleTimeCount;
+    private double cycleTimeMin;
+    private double cycleTimeMax;
+
+    public ProductionMetricsHourly() {
+    }
+
+    // Getters and setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getStageId() {
+        return stageId;
+    }
+
+    public void setStageId(Long stageId) {
+        this.stageId = stageId;
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public void setDeviceId(Long deviceId) {
+        this.deviceId = deviceId;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public void setBucketStart(LocalDateTime bucketStart) {
+        this.bucketStart = bucketStart;
+    }
+
+    public LocalDateTime getBucketEnd() {
+        return bucketEnd;
+    }
+
+    public void setBucketEnd(LocalDateTime bucketEnd) {
+        this.bucketEnd = bucketEnd;
+    }
+
+    public long getUnitsProduced() {
+        return unitsProduced;
+    }
+
+    public void setUnitsProduced(long unitsProduced) {
+        this.unitsProduced = unitsProduced;
+    }
+
+    public long getDefectiveUnits() {
+        return defectiveUnits;
+    }
+
+    public void setDefectiveUnits(long defectiveUnits) {
+        this.defectiveUnits = defectiveUnits;
+    }
+
+    public double getCycleTimeSum() {
+        return cycleTimeSum;
+    }
+
+    public void setCycleTimeSum(double cycleTimeSum) {
+        this.cycleTimeSum = cycleTimeSum;
+    }
+
+    public long getCycleTimeCount() {
+        return cycleTimeCount;
+    }
+
+    public void setCycleTimeCount(long cycleTimeCount) {
+        this.cycleTimeCount = cycleTimeCount;
+    }
+
+    public double getCycleTimeMin() {
+        return cycleTimeMin;
+    }
+
+    public void setCycleTimeMin(double cycleTimeMin) {
+        this.cycleTimeMin = cycleTimeMin;
+    }
+
+    public double getCycleTimeMax() {
+        return cycleTimeMax;
+    }
+
+    public void setCycleTimeMax(double cycleTimeMax) {
+        this.cycleTimeMax = cycleTimeMax;
+    }
+}
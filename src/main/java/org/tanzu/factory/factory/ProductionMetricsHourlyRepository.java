@@ -0,0 +1,26 @@
+package org.tanzu.factory.factory;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ProductionMetricsHourlyRepository extends JpaRepository<ProductionMetricsHourly, Long> {
+
+    // Buckets are hourly for the hourly retention tier; older ones are daily
+    @Query("SELECT new org.tanzu.factory.factory.DeviceHourlyOutput(r.deviceId, r.bucketStart, " +
+            "r.unitsProduced, r.defectiveUnits) " +
+            "FROM ProductionMetricsHourly r " +
+            "WHERE r.bucketStart >= :from AND r.bucketStart < :to " +
+            "ORDER BY r.deviceId, r.bucketStart")
+    List<DeviceHourlyOutput> getDeviceHourlyOutput(LocalDateTime from, LocalDateTime to);
+
+    // Every stage's buckets overlapping the range in bucket order, for a single pass along the line;
+    // a daily bucket that only partly overlaps is returned whole
+    @Query("SELECT new org.tanzu.factory.factory.StageHourlyOutput(r.stageId, r.bucketStart, r.bucketEnd, " +
+            "SUM(r.unitsProduced), SUM(r.defectiveUnits)) " +
+            "FROM ProductionMetricsHourly r " +
+            "WHERE r.bucketEnd > :from AND r.bucketStart < :to " +
+            "GROUP BY r.bucketStart, r.bucketEnd, r.stageId ORDER BY r.bucketStart")
+    List<StageHourlyOutput> getStageHourlyOutput(LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,11 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record ProductionMetricsReadingDto(
+        Long deviceId,
+        LocalDateTime timestamp,
+        Integer unitsProduced,
+        Integer defectiveUnits,
+        Double cycleTimeMinutes
+) {}
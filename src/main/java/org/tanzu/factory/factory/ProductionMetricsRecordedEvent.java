@@ -0,0 +1,5 @@
+package org.tanzu.factory.factory;
+
+import java.util.List;
+
+public record ProductionMetricsRecordedEvent(List<MetricReading> readings) {}
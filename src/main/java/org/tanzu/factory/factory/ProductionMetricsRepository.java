@@ -6,15 +6,33 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ProductionMetricsRepository extends JpaRepository<ProductionMetrics, Long> {
-    List<ProductionMetrics> findByDeviceAndTimestampBetween(IoTDevice device, LocalDateTime start, LocalDateTime end);
+    String STAGE_OUTPUT_TOTALS_QUERY = "SELECT new org.tanzu.factory.factory.StageOutputTotals(s.sequenceOrder, s.name, " +
+            "COALESCE(SUM(t.units), 0), COALESCE(SUM(t.defects), 0)) " +
+            "FROM ManufacturingStage s LEFT JOIN (" +
+            "SELECT r.stageId AS stageId, r.unitsProduced AS units, r.defectiveUnits AS defects " +
+            "FROM ProductionMetricsHourly r " +
+            "WHERE r.bucketStart >= :bucketsFrom AND r.bucketEnd <= :bucketsTo " +
+            "UNION ALL " +
+            "SELECT d.stage.id AS stageId, CAST(pm.unitsProduced AS Long) AS units, " +
+            "CAST(pm.defectiveUnits AS Long) AS defects " +
+            "FROM ProductionMetrics pm JOIN pm.device d " +
+            "WHERE (pm.timestamp >= :startTime AND pm.timestamp < :bucketsFrom) " +
+            "OR (pm.timestamp >= :bucketsTo AND pm.timestamp <= :endTime)" +
+            ") t ON t.stageId = s.id ";
 
-    @Query("SELECT SUM(pm.unitsProduced) FROM ProductionMetrics pm " +
-            "JOIN pm.device d JOIN d.stage s WHERE s.sequenceOrder = :stageOrder " +
-            "AND pm.timestamp BETWEEN :startTime AND :endTime")
-    Integer getTotalUnitsByStageAndTimeRange(int stageOrder, LocalDateTime startTime, LocalDateTime endTime);
+    /*
+     * Totals for [startTime, endTime] come from whole hourly buckets between bucketsFrom and
+     * bucketsTo plus raw readings in the partial hours at either edge. Stages without readings
+     * are still returned, with zero totals.
+     */
+    @Query(STAGE_OUTPUT_TOTALS_QUERY +
+            "GROUP BY s.id, s.sequenceOrder, s.name ORDER BY s.sequenceOrder")
+    List<StageOutputTotals> getOutputTotalsByStage(LocalDateTime startTime, LocalDateTime endTime,
+                                                   LocalDateTime bucketsFrom, LocalDateTime bucketsTo);
 
-    @Query("SELECT SUM(pm.defectiveUnits) FROM ProductionMetrics pm " +
-            "JOIN pm.device d JOIN d.stage s WHERE s.sequenceOrder = :stageOrder " +
-            "AND pm.timestamp BETWEEN :startTime AND :endTime")
-    Integer getTotalDefectiveUnitsByStageAndTimeRange(int stageOrder, LocalDateTime startTime, LocalDateTime endTime);
+    @Query(STAGE_OUTPUT_TOTALS_QUERY +
+            "WHERE s.sequenceOrder = :stageOrder " +
+            "GROUP BY s.id, s.sequenceOrder, s.name")
+    StageOutputTotals getOutputTotalsForStage(int stageOrder, LocalDateTime startTime, LocalDateTime endTime,
+                                              LocalDateTime bucketsFrom, LocalDateTime bucketsTo);
 }
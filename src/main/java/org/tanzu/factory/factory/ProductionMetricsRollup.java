@@ -0,0 +1,178 @@
+package org.tanzu.factory.factory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains {@link ProductionMetricsHourly} and the cycle time sketches in {@link CycleTimeHourly}.
+ * Every write adds its readings to the matching (device, hour) bucket, so late and out-of-order
+ * readings land in the right place, and {@link #rebuild()} recomputes the buckets from raw readings.
+ */
+@Component
+public class ProductionMetricsRollup {
+    private static final Logger log = LoggerFactory.getLogger(ProductionMetricsRollup.class);
+
+    // The stage comes from the device row so callers only need to know device ids
+    private static final String MERGE_SQL = "MERGE INTO production_metrics_hourly r " +
+            "USING (SELECT d.stage_id, d.id, CAST(? AS TIMESTAMP(6)), CAST(? AS TIMESTAMP(6)), " +
+            "CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS DOUBLE), CAST(? AS BIGINT), " +
+            "CAST(? AS DOUBLE), CAST(? AS DOUBLE) " +
+            "FROM iot_devices d WHERE d.id = ?) " +
+            "AS v(stage_id, device_id, bucket_start, bucket_end, units, defects, cycle_sum, cycle_count, cycle_min, cycle_max) " +
+            "ON r.device_id = v.device_id AND r.bucket_start = v.bucket_start " +
+            "WHEN MATCHED THEN UPDATE SET r.units_produced = r.units_produced + v.units, " +
+            "r.defective_units = r.defective_units + v.defects, " +
+            "r.cycle_time_sum = r.cycle_time_sum + v.cycle_sum, " +
+            "r.cycle_time_count = r.cycle_time_count + v.cycle_count, " +
+            "r.cycle_time_min = LEAST(r.cycle_time_min, v.cycle_min), " +
+            "r.cycle_time_max = GREATEST(r.cycle_time_max, v.cycle_max) " +
+            "WHEN NOT MATCHED THEN INSERT (stage_id, device_id, bucket_start, bucket_end, units_produced, " +
+            "defective_units, cycle_time_sum, cycle_time_count, cycle_time_min, cycle_time_max) " +
+            "VALUES (v.stage_id, v.device_id, v.bucket_start, v.bucket_end, v.units, v.defects, v.cycle_sum, " +
+            "v.cycle_count, v.cycle_min, v.cycle_max)";
+
+    private static final String MERGE_SKETCH_SQL = "MERGE INTO cycle_time_hourly c " +
+            "USING (SELECT d.stage_id, d.id, CAST(? AS TIMESTAMP(6)), CAST(? AS TIMESTAMP(6)), " +
+            "CAST(? AS INTEGER), CAST(? AS BIGINT) " +
+            "FROM iot_devices d WHERE d.id = ?) " +
+            "AS v(stage_id, device_id, bucket_start, bucket_end, bin_index, samples) " +
+            "ON c.device_id = v.device_id AND c.bucket_start = v.bucket_start AND c.bin_index = v.bin_index " +
+            "WHEN MATCHED THEN UPDATE SET c.sample_count = c.sample_count + v.samples " +
+            "WHEN NOT MATCHED THEN INSERT (stage_id, device_id, bucket_start, bucket_end, bin_index, sample_count) " +
+            "VALUES (v.stage_id, v.device_id, v.bucket_start, v.bucket_end, v.bin_index, v.samples)";
+
+    private static final String DELETE_FROM_SQL =
+            "DELETE FROM production_metrics_hourly WHERE bucket_start >= ?";
+
+    private static final String DELETE_SKETCH_FROM_SQL =
+            "DELETE FROM cycle_time_hourly WHERE bucket_start >= ?";
+
+    private static final String REBUILD_FROM_SQL = "INSERT INTO production_metrics_hourly " +
+            "(stage_id, device_id, bucket_start, bucket_end, units_produced, defective_units, " +
+            "cycle_time_sum, cycle_time_count, cycle_time_min, cycle_time_max) " +
+            "SELECT d.stage_id, pm.device_id, TRUNC(pm.timestamp, 'HH'), TRUNC(pm.timestamp, 'HH') + INTERVAL '1' HOUR, " +
+            "SUM(pm.units_produced), SUM(pm.defective_units), SUM(pm.cycle_time_minutes), COUNT(*), " +
+            "MIN(pm.cycle_time_minutes), MAX(pm.cycle_time_minutes) " +
+            "FROM production_metrics pm JOIN iot_devices d ON d.id = pm.device_id " +
+            "WHERE pm.timestamp >= ? " +
+            "GROUP BY d.stage_id, pm.device_id, TRUNC(pm.timestamp, 'HH')";
+
+    // Same binning as CycleTimeSketch.bin, so rebuilt bins match the ones written on ingest
+    private static final String REBUILD_SKETCH_FROM_SQL = "INSERT INTO cycle_time_hourly " +
+            "(stage_id, device_id, bucket_start, bucket_end, bin_index, sample_count) " +
+            "SELECT d.stage_id, b.device_id, b.hour, b.hour + INTERVAL '1' HOUR, b.bin_index, COUNT(*) " +
+            "FROM (SELECT pm.device_id AS device_id, TRUNC(pm.timestamp, 'HH') AS hour, " +
+            "LEAST(GREATEST(CAST(CEILING(LN(GREATEST(pm.cycle_time_minutes, " + CycleTimeSketch.MIN_VALUE + ")) / " +
+            Math.log(CycleTimeSketch.GAMMA) + ") AS INTEGER), " + CycleTimeSketch.MIN_BIN + "), " +
+            CycleTimeSketch.MAX_BIN + ") AS bin_index " +
+            "FROM production_metrics pm WHERE pm.timestamp >= ?) b " +
+            "JOIN iot_devices d ON d.id = b.device_id " +
+            "GROUP BY d.stage_id, b.device_id, b.hour, b.bin_index";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int rawRetentionDays;
+
+    public ProductionMetricsRollup(JdbcTemplate jdbcTemplate,
+                                   @Value("${factory.ingest.jdbc-batch-size:500}") int batchSize,
+                                   @Value("${factory.retention.raw-days:30}") int rawRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.rawRetentionDays = rawRetentionDays;
+    }
+
+    // Joins the caller's transaction so raw rows and their buckets commit together
+    @Transactional
+    public void apply(List<MetricReading> readings) {
+        Map<BucketKey, BucketDelta> deltas = new LinkedHashMap<>();
+        Map<BinKey, long[]> binCounts = new LinkedHashMap<>();
+        for (MetricReading reading : readings) {
+            BucketKey key = new BucketKey(reading.deviceId(), reading.timestamp().truncatedTo(ChronoUnit.HOURS));
+            deltas.computeIfAbsent(key, k -> new BucketDelta()).add(reading);
+            binCounts.computeIfAbsent(new BinKey(key, CycleTimeSketch.bin(reading.cycleTimeMinutes())),
+                    k -> new long[1])[0]++;
+        }
+        List<Map.Entry<BucketKey, BucketDelta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(MERGE_SQL, rows, batchSize, (ps, row) -> {
+            BucketKey key = row.getKey();
+            BucketDelta delta = row.getValue();
+            ps.setTimestamp(1, Timestamp.valueOf(key.bucketStart()));
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart().plusHours(1)));
+            ps.setLong(3, delta.units);
+            ps.setLong(4, delta.defects);
+            ps.setDouble(5, delta.cycleTimeSum);
+            ps.setLong(6, delta.count);
+            ps.setDouble(7, delta.cycleTimeMin);
+            ps.setDouble(8, delta.cycleTimeMax);
+            ps.setLong(9, key.deviceId());
+        });
+        List<Map.Entry<BinKey, long[]>> bins = new ArrayList<>(binCounts.entrySet());
+        jdbcTemplate.batchUpdate(MERGE_SKETCH_SQL, bins, batchSize, (ps, row) -> {
+            BucketKey key = row.getKey().bucket();
+            ps.setTimestamp(1, Timestamp.valueOf(key.bucketStart()));
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart().plusHours(1)));
+            ps.setInt(3, row.getKey().bin());
+            ps.setLong(4, row.getValue()[0]);
+            ps.setLong(5, key.deviceId());
+        });
+    }
+
+    /**
+     * Recomputes every bucket from the earliest raw reading onwards, but never before the raw
+     * retention window. Older buckets are left alone: their raw rows are gone or about to be
+     * purged, so a late reading there must not cause the surviving buckets to be discarded.
+     */
+    @Transactional
+    public void rebuild() {
+        Timestamp earliest = jdbcTemplate.queryForObject(
+                "SELECT TRUNC(MIN(timestamp), 'HH') FROM production_metrics", Timestamp.class);
+        if (earliest == null) {
+            return;
+        }
+        Timestamp retentionStart = Timestamp.valueOf(LocalDate.now().minusDays(rawRetentionDays).atStartOfDay());
+        if (earliest.before(retentionStart)) {
+            earliest = retentionStart;
+        }
+        int removed = jdbcTemplate.update(DELETE_FROM_SQL, earliest);
+        int inserted = jdbcTemplate.update(REBUILD_FROM_SQL, earliest);
+        jdbcTemplate.update(DELETE_SKETCH_FROM_SQL, earliest);
+        jdbcTemplate.update(REBUILD_SKETCH_FROM_SQL, earliest);
+        log.info("Rebuilt hourly production rollup from {}: {} buckets replaced by {}",
+                earliest.toLocalDateTime(), removed, inserted);
+    }
+
+    private record BucketKey(long deviceId, LocalDateTime bucketStart) {}
+
+    private record BinKey(BucketKey bucket, int bin) {}
+
+    private static final class BucketDelta {
+        private long units;
+        private long defects;
+        private double cycleTimeSum;
+        private long count;
+        private double cycleTimeMin = Double.MAX_VALUE;
+        private double cycleTimeMax = -Double.MAX_VALUE;
+
+        private void add(MetricReading reading) {
+            units += reading.unitsProduced();
+            defects += reading.defectiveUnits();
+            cycleTimeSum += reading.cycleTimeMinutes();
+            count++;
+            cycleTimeMin = Math.min(cycleTimeMin, reading.cycleTimeMinutes());
+            cycleTimeMax = Math.max(cycleTimeMax, reading.cycleTimeMinutes());
+        }
+    }
+}
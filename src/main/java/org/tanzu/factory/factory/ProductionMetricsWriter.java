@@ -0,0 +1,60 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Persists production readings in chunks so Hibernate can send them as JDBC batches.
+ * The persistence context is flushed and cleared after every chunk to keep memory bounded, and
+ * the hourly rollup is updated in the same transaction. Every write is announced with a
+ * {@link ProductionMetricsRecordedEvent}.
+ */
+@Component
+public class ProductionMetricsWriter {
+    private final EntityManager entityManager;
+    private final ProductionMetricsRollup productionRollup;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public ProductionMetricsWriter(EntityManager entityManager,
+                                   ProductionMetricsRollup productionRollup,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${factory.ingest.jdbc-batch-size:500}") int batchSize) {
+        this.entityManager = entityManager;
+        this.productionRollup = productionRollup;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    @Transactional
+    public void write(List<MetricReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < readings.size(); i++) {
+            MetricReading reading = readings.get(i);
+            // Device references are proxies, so no select is issued per reading
+            IoTDevice device = entityManager.getReference(IoTDevice.class, reading.deviceId());
+            entityManager.persist(new ProductionMetrics(
+                    reading.timestamp(),
+                    reading.unitsProduced(),
+                    reading.defectiveUnits(),
+                    reading.cycleTimeMinutes(),
+                    device));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        productionRollup.apply(readings);
+        // Listeners that keep derived state in memory receive this after commit
+        eventPublisher.publishEvent(new ProductionMetricsRecordedEvent(List.copyOf(readings)));
+    }
+}
@@ -0,0 +1,13 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record StageCycleTimeDto(
+        int stageOrder,
+        String stageName,
+        CycleTimeStatsDto cycleTime,
+        List<DeviceCycleTimeDto> devices,
+        LocalDateTime startTime,
+        LocalDateTime endTime
+) {}
@@ -0,0 +1,18 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record StageDeviceHealth(
+        Long stageId,
+        Long id,
+        String deviceId,
+        String name,
+        String deviceType,
+        boolean operational,
+        double healthScore,
+        LocalDateTime healthUpdatedAt
+) {
+    public DeviceHealthDto toDeviceHealthDto() {
+        return new DeviceHealthDto(id, deviceId, name, deviceType, operational, healthScore);
+    }
+}
@@ -0,0 +1,11 @@
+package org.tanzu.factory.factory;
+
+import java.time.LocalDateTime;
+
+public record StageHourlyOutput(
+        Long stageId,
+        LocalDateTime bucketStart,
+        LocalDateTime bucketEnd,
+        long unitsProduced,
+        long defectiveUnits
+) {}
@@ -0,0 +1,283 @@
+package org.tanzu.factory.factory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * LRU cache of stage output results keyed by stage and window. A window is closed once its end is
+ * more than {@code factory.output-cache.late-tolerance-minutes} in the past; closed windows are
+ * kept until evicted or invalidated, while open ones are only cached for
+ * {@code open-window-ttl-ms} (not at all by default). Entries are weighed by an estimate of their
+ * heap size, and the least recently used ones are evicted once {@code max-bytes} is exceeded.
+ * A recorded reading invalidates exactly the entries whose stage and window contain it, whatever
+ * its timestamp, so a late reading in a long-closed window is reflected on the next call.
+ * Entries are also indexed by window end, so a batch of readings only examines the windows that
+ * end at or after its earliest reading, and live readings newer than every cached or loading
+ * window cost a single comparison under the lock.
+ */
+@Component
+public class StageOutputCache {
+    // After the output index has added committed readings, before the caches built on these outputs
+    public static final int INVALIDATION_ORDER = Ordered.HIGHEST_PRECEDENCE + 1;
+
+    private static final long ENTRY_OVERHEAD_BYTES = 160;
+    private static final long OUTPUT_BYTES = 120;
+
+    // A null stage order stands for the all-stages result
+    private record Key(Integer stageOrder, LocalDateTime startTime, LocalDateTime endTime) {}
+
+    private record Entry(Object value, long weight, long expiresAtNanos) {}
+
+    private final DeviceHealthRegistry healthRegistry;
+    private final boolean enabled;
+    private final long lateToleranceMinutes;
+    private final long openWindowTtlNanos;
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeMap<LocalDateTime, List<Key>> keysByEnd = new TreeMap<>();
+    private long totalWeight;
+    // Bumped on every invalidation; a load that overlaps one is not cached since it may be stale
+    private long generation;
+    // The latest window end cached or being loaded; readings after it cannot affect any of them
+    private LocalDateTime latestEnd = LocalDateTime.MIN;
+    private int loadsInFlight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public StageOutputCache(DeviceHealthRegistry healthRegistry,
+                            @Value("${factory.output-cache.enabled:true}") boolean enabled,
+                            @Value("${factory.output-cache.late-tolerance-minutes:15}") long lateToleranceMinutes,
+                            @Value("${factory.output-cache.open-window-ttl-ms:0}") long openWindowTtlMillis,
+                            @Value("${factory.output-cache.max-bytes:8388608}") long maxBytes) {
+        this.healthRegistry = healthRegistry;
+        this.enabled = enabled;
+        this.lateToleranceMinutes = lateToleranceMinutes;
+        this.openWindowTtlNanos = openWindowTtlMillis * 1_000_000;
+        this.maxBytes = maxBytes;
+    }
+
+    public ProductionOutputDto getStageOutput(int stageOrder, LocalDateTime startTime, LocalDateTime endTime,
+                                              Supplier<ProductionOutputDto> loader) {
+        return get(new Key(stageOrder, startTime, endTime), loader, output -> weigh(List.of(output)));
+    }
+
+    public List<ProductionOutputDto> getAllStagesOutput(LocalDateTime startTime, LocalDateTime endTime,
+                                                        Supplier<List<ProductionOutputDto>> loader) {
+        return get(new Key(null, startTime, endTime), () -> List.copyOf(loader.get()), StageOutputCache::weigh);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Key key, Supplier<T> loader, ToLongFunction<T> weigher) {
+        long ttlNanos = isClosed(key.endTime()) ? Long.MAX_VALUE : openWindowTtlNanos;
+        if (!enabled || ttlNanos == 0) {
+            bypasses.incrementAndGet();
+            return loader.get();
+        }
+
+        long loadGeneration;
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos() - System.nanoTime() > 0) {
+                hits.incrementAndGet();
+                return (T) entry.value();
+            }
+            if (entry != null) {
+                remove(key);
+            }
+            loadGeneration = generation;
+            loadsInFlight++;
+            if (key.endTime().isAfter(latestEnd)) {
+                latestEnd = key.endTime();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        misses.incrementAndGet();
+        T loaded = null;
+        try {
+            loaded = loader.get();
+            return loaded;
+        } finally {
+            lock.lock();
+            try {
+                loadsInFlight--;
+                if (loaded != null && generation == loadGeneration) {
+                    long expiresAt = ttlNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + ttlNanos;
+                    remove(key);
+                    put(key, new Entry(loaded, ENTRY_OVERHEAD_BYTES + weigher.applyAsLong(loaded), expiresAt));
+                    evictOverBudget();
+                }
+                if (loadsInFlight == 0) {
+                    latestEnd = keysByEnd.isEmpty() ? LocalDateTime.MIN : keysByEnd.lastKey();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private boolean isClosed(LocalDateTime endTime) {
+        return endTime.plusMinutes(lateToleranceMinutes).isBefore(LocalDateTime.now());
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (totalWeight > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, Entry> entry = eldest.next();
+            totalWeight -= entry.getValue().weight();
+            unindex(entry.getKey());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void put(Key key, Entry entry) {
+        entries.put(key, entry);
+        totalWeight += entry.weight();
+        keysByEnd.computeIfAbsent(key.endTime(), k -> new ArrayList<>(1)).add(key);
+    }
+
+    private boolean remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        totalWeight -= removed.weight();
+        unindex(key);
+        return true;
+    }
+
+    private void unindex(Key key) {
+        List<Key> keys = keysByEnd.get(key.endTime());
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByEnd.remove(key.endTime());
+        }
+    }
+
+    private static long weigh(List<ProductionOutputDto> outputs) {
+        long weight = 0;
+        for (ProductionOutputDto output : outputs) {
+            weight += OUTPUT_BYTES + 2L * output.stageName().length();
+        }
+        return weight;
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+            keysByEnd.clear();
+            totalWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public OutputCacheStatsDto getStats() {
+        lock.lock();
+        try {
+            return new OutputCacheStatsDto(entries.size(), totalWeight, hits.get(), misses.get(), bypasses.get(),
+                    invalidations.get(), evictions.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Order(INVALIDATION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsRecorded(ProductionMetricsRecordedEvent event) {
+        if (event.readings().isEmpty()) {
+            return;
+        }
+        DeviceHealthRegistry.Snapshot snapshot = healthRegistry.snapshot();
+        Map<Integer, List<LocalDateTime>> timestampsByStage = new HashMap<>();
+        List<LocalDateTime> allTimestamps = new ArrayList<>(event.readings().size());
+        for (MetricReading reading : event.readings()) {
+            Long stageId = snapshot.deviceStages().get(reading.deviceId());
+            if (stageId != null) {
+                int stageOrder = snapshot.stages().get(stageId).sequenceOrder();
+                timestampsByStage.computeIfAbsent(stageOrder, k -> new ArrayList<>()).add(reading.timestamp());
+            }
+            allTimestamps.add(reading.timestamp());
+        }
+        timestampsByStage.values().forEach(Collections::sort);
+        Collections.sort(allTimestamps);
+
+        LocalDateTime earliest = allTimestamps.get(0);
+
+        lock.lock();
+        try {
+            if (earliest.isAfter(latestEnd)) {
+                return;
+            }
+            generation++;
+            // Only windows ending at or after the earliest reading can contain any of them
+            List<Key> candidates = new ArrayList<>();
+            keysByEnd.tailMap(earliest, true).values().forEach(candidates::addAll);
+            for (Key key : candidates) {
+                List<LocalDateTime> timestamps = key.stageOrder() == null
+                        ? allTimestamps
+                        : timestampsByStage.getOrDefault(key.stageOrder(), List.of());
+                if (containsAny(timestamps, key.startTime(), key.endTime()) && remove(key)) {
+                    invalidations.incrementAndGet();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Compaction only preserves totals for windows aligned to what is retained
+    @Order(INVALIDATION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsCompacted(ProductionMetricsCompactedEvent event) {
+        lock.lock();
+        try {
+            generation++;
+            List<Key> candidates = new ArrayList<>();
+            keysByEnd.tailMap(event.from(), true).values().forEach(candidates::addAll);
+            for (Key key : candidates) {
+                if (key.startTime().isBefore(event.to()) && remove(key)) {
+                    invalidations.incrementAndGet();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Windows are queried inclusively at both ends
+    private static boolean containsAny(List<LocalDateTime> sorted, LocalDateTime start, LocalDateTime end) {
+        int index = Collections.binarySearch(sorted, start);
+        int first = index >= 0 ? index : -index - 1;
+        return first < sorted.size() && !sorted.get(first).isAfter(end);
+    }
+}
@@ -0,0 +1,347 @@
+package org.tanzu.factory.factory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory units and defects per stage and minute, held in {@link FenwickTree}s so the totals for
+ * any window inside the indexed horizon are two prefix sums per stage. Readings stamped exactly on
+ * a minute are also kept per minute, which lets a window's inclusive end be answered exactly.
+ * Windows with second precision, or that reach outside the horizon, return null and are left to
+ * SQL.
+ * <p>
+ * The horizon covers today, tomorrow and the days before, up to
+ * {@code factory.output-index.horizon-days} but never longer than raw retention (the index is
+ * loaded from raw readings) or than {@code max-bytes} allows. It is loaded once the application is
+ * ready and again when the day changes. Readings are added once their transaction commits; a
+ * transaction that records readings holds a shared lock until then, and a load takes it
+ * exclusively, so each committed reading is counted exactly once. A load takes its connection
+ * before the lock: recording transactions hold their connections while they wait for the shared
+ * lock, so waiting for the pool under the exclusive lock could drain it and stall ingest.
+ */
+@Component
+public class StageOutputIndex {
+    private static final Logger log = LoggerFactory.getLogger(StageOutputIndex.class);
+
+    private static final int MINUTES_PER_DAY = 1440;
+    // Two trees of longs and two arrays of ints per stage and minute
+    private static final long BYTES_PER_STAGE_MINUTE = 24;
+
+    private static final String LOAD_SQL = "SELECT s.sequence_order, TRUNC(pm.timestamp, 'MI'), " +
+            "SUM(pm.units_produced), SUM(pm.defective_units), " +
+            "SUM(CASE WHEN pm.timestamp = TRUNC(pm.timestamp, 'MI') THEN pm.units_produced ELSE 0 END), " +
+            "SUM(CASE WHEN pm.timestamp = TRUNC(pm.timestamp, 'MI') THEN pm.defective_units ELSE 0 END) " +
+            "FROM production_metrics pm " +
+            "JOIN iot_devices d ON d.id = pm.device_id " +
+            "JOIN manufacturing_stages s ON s.id = d.stage_id " +
+            "WHERE pm.timestamp >= ? AND pm.timestamp < ? " +
+            "GROUP BY s.sequence_order, TRUNC(pm.timestamp, 'MI')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DeviceHealthRegistry healthRegistry;
+    private final boolean enabled;
+    private final int horizonDays;
+    private final long maxBytes;
+
+    private final ReentrantReadWriteLock ingestLock = new ReentrantReadWriteLock();
+    private volatile Horizon horizon;
+
+    private final AtomicLong indexedQueries = new AtomicLong();
+    private final AtomicLong fallbackQueries = new AtomicLong();
+
+    public StageOutputIndex(JdbcTemplate jdbcTemplate,
+                            DeviceHealthRegistry healthRegistry,
+                            @Value("${factory.output-index.enabled:true}") boolean enabled,
+                            @Value("${factory.output-index.horizon-days:7}") int horizonDays,
+                            @Value("${factory.output-index.max-bytes:33554432}") long maxBytes,
+                            @Value("${factory.retention.raw-days:30}") int rawRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.healthRegistry = healthRegistry;
+        this.enabled = enabled;
+        this.horizonDays = Math.min(horizonDays, rawRetentionDays);
+        this.maxBytes = maxBytes;
+    }
+
+    private static final class StageSeries {
+        private final int stageOrder;
+        private final String stageName;
+        private final FenwickTree units;
+        private final FenwickTree defects;
+        private final int[] unitsOnMinute;
+        private final int[] defectsOnMinute;
+
+        private StageSeries(int stageOrder, String stageName, long[] units, long[] defects,
+                            int[] unitsOnMinute, int[] defectsOnMinute) {
+            this.stageOrder = stageOrder;
+            this.stageName = stageName;
+            this.units = FenwickTree.of(units);
+            this.defects = FenwickTree.of(defects);
+            this.unitsOnMinute = unitsOnMinute;
+            this.defectsOnMinute = defectsOnMinute;
+        }
+
+        // Buckets from..to-1 plus readings stamped exactly at minute to
+        private StageOutputTotals totals(int from, int to) {
+            return new StageOutputTotals(stageOrder, stageName,
+                    units.prefixSum(to) - units.prefixSum(from) + unitsOnMinute[to],
+                    defects.prefixSum(to) - defects.prefixSum(from) + defectsOnMinute[to]);
+        }
+    }
+
+    private record Horizon(LocalDateTime start, int minutes, Map<Integer, StageSeries> stages,
+                           List<StageSeries> stagesInOrder, StampedLock lock) {
+
+        private LocalDateTime end() {
+            return start.plusMinutes(minutes);
+        }
+
+        // Minute offset of an aligned time inside the horizon, or -1
+        private int minuteOf(LocalDateTime time) {
+            if (time.getSecond() != 0 || time.getNano() != 0 || time.isBefore(start)) {
+                return -1;
+            }
+            long minute = Duration.between(start, time).toMinutes();
+            return minute < minutes ? (int) minute : -1;
+        }
+    }
+
+    public StageOutputTotals getOutputTotalsForStage(int stageOrder, LocalDateTime startTime, LocalDateTime endTime) {
+        Horizon current = horizon;
+        int from = current != null ? current.minuteOf(startTime) : -1;
+        int to = current != null ? current.minuteOf(endTime) : -1;
+        StageSeries series = current != null ? current.stages().get(stageOrder) : null;
+        if (from < 0 || to < from || series == null) {
+            fallbackQueries.incrementAndGet();
+            return null;
+        }
+        indexedQueries.incrementAndGet();
+        return read(current, () -> series.totals(from, to));
+    }
+
+    public List<StageOutputTotals> getOutputTotalsByStage(LocalDateTime startTime, LocalDateTime endTime) {
+        Horizon current = horizon;
+        int from = current != null ? current.minuteOf(startTime) : -1;
+        int to = current != null ? current.minuteOf(endTime) : -1;
+        if (from < 0 || to < from) {
+            fallbackQueries.incrementAndGet();
+            return null;
+        }
+        indexedQueries.incrementAndGet();
+        return read(current, () -> {
+            List<StageOutputTotals> totals = new ArrayList<>(current.stagesInOrder().size());
+            for (StageSeries series : current.stagesInOrder()) {
+                totals.add(series.totals(from, to));
+            }
+            return totals;
+        });
+    }
+
+    // Optimistic read, retried under the read lock if an update ran concurrently
+    private <T> T read(Horizon current, Supplier<T> reader) {
+        StampedLock lock = current.lock();
+        long stamp = lock.tryOptimisticRead();
+        T result = reader.get();
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public OutputIndexStatsDto getStats() {
+        Horizon current = horizon;
+        return new OutputIndexStatsDto(
+                current != null,
+                current != null ? current.start() : null,
+                current != null ? current.end() : null,
+                current != null ? current.stages().size() : 0,
+                current != null ? current.stages().size() * current.minutes() * BYTES_PER_STAGE_MINUTE : 0,
+                indexedQueries.get(),
+                fallbackQueries.get());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        int stageCount = healthRegistry.snapshot().stages().size();
+        int budgetDays = (int) (maxBytes / (Math.max(stageCount, 1) * BYTES_PER_STAGE_MINUTE * MINUTES_PER_DAY));
+        // Today and tomorrow are always covered, so fewer than two days fits nothing useful
+        int days = Math.min(horizonDays + 1, budgetDays);
+        if (days < 2) {
+            log.warn("Stage output index disabled: {} bytes cannot hold two days for {} stages", maxBytes, stageCount);
+            horizon = null;
+            return;
+        }
+
+        LocalDateTime start = LocalDate.now().plusDays(2 - days).atStartOfDay();
+        horizon = jdbcTemplate.execute((ConnectionCallback<Horizon>) connection -> {
+            ingestLock.writeLock().lock();
+            try {
+                return loadHorizon(connection, start, days * MINUTES_PER_DAY);
+            } finally {
+                ingestLock.writeLock().unlock();
+            }
+        });
+    }
+
+    // The horizon ends after tomorrow, so a new day needs a new horizon
+    @Scheduled(initialDelayString = "${factory.output-index.check-interval-ms:60000}",
+            fixedDelayString = "${factory.output-index.check-interval-ms:60000}")
+    public void rollOverIfNewDay() {
+        Horizon current = horizon;
+        if (enabled && current != null && current.end().toLocalDate().isBefore(LocalDate.now().plusDays(2))) {
+            load();
+        }
+    }
+
+    private Horizon loadHorizon(Connection connection, LocalDateTime start, int minutes) throws SQLException {
+        long started = System.nanoTime();
+        Map<Integer, long[][]> points = new HashMap<>();
+        Map<Integer, int[][]> onMinute = new HashMap<>();
+        List<StageHealthDto> stages = new ArrayList<>(healthRegistry.snapshot().stages().values());
+        stages.sort(Comparator.comparingInt(StageHealthDto::sequenceOrder));
+        for (StageHealthDto stage : stages) {
+            points.put(stage.sequenceOrder(), new long[][]{new long[minutes], new long[minutes]});
+            onMinute.put(stage.sequenceOrder(), new int[][]{new int[minutes], new int[minutes]});
+        }
+
+        LocalDateTime end = start.plusMinutes(minutes);
+        try (PreparedStatement statement = connection.prepareStatement(LOAD_SQL)) {
+            statement.setTimestamp(1, Timestamp.valueOf(start));
+            statement.setTimestamp(2, Timestamp.valueOf(end));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    long[][] stagePoints = points.get(rs.getInt(1));
+                    if (stagePoints == null) {
+                        continue;
+                    }
+                    int minute = (int) Duration.between(start, rs.getTimestamp(2).toLocalDateTime()).toMinutes();
+                    stagePoints[0][minute] = rs.getLong(3);
+                    stagePoints[1][minute] = rs.getLong(4);
+                    int[][] stageOnMinute = onMinute.get(rs.getInt(1));
+                    stageOnMinute[0][minute] = rs.getInt(5);
+                    stageOnMinute[1][minute] = rs.getInt(6);
+                }
+            }
+        }
+
+        Map<Integer, StageSeries> series = new HashMap<>();
+        List<StageSeries> inOrder = new ArrayList<>();
+        for (StageHealthDto stage : stages) {
+            long[][] stagePoints = points.get(stage.sequenceOrder());
+            int[][] stageOnMinute = onMinute.get(stage.sequenceOrder());
+            StageSeries stageSeries = new StageSeries(stage.sequenceOrder(), stage.stageName(),
+                    stagePoints[0], stagePoints[1], stageOnMinute[0], stageOnMinute[1]);
+            series.put(stage.sequenceOrder(), stageSeries);
+            inOrder.add(stageSeries);
+        }
+        log.info("Loaded stage output index for {} stages from {} to {} in {} ms", stages.size(), start, end,
+                (System.nanoTime() - started) / 1_000_000);
+        return new Horizon(start, minutes, series, List.copyOf(inOrder), new StampedLock());
+    }
+
+    /*
+     * Runs synchronously while the recording transaction is still open: it takes the shared lock
+     * there, so a load cannot start between the commit and the update, and releases it once the
+     * readings have been added after commit (or discarded on rollback). It runs ahead of the
+     * after-commit listeners, so a request served once the output cache has invalidated a window
+     * already sees the readings here.
+     */
+    @EventListener
+    public void onProductionMetricsRecorded(ProductionMetricsRecordedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        ingestLock.readLock().lock();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                apply(event.readings());
+            } finally {
+                ingestLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        apply(event.readings());
+                    }
+                } finally {
+                    ingestLock.readLock().unlock();
+                }
+            }
+        });
+    }
+
+    private void apply(List<MetricReading> readings) {
+        Horizon current = horizon;
+        if (current == null) {
+            return;
+        }
+        DeviceHealthRegistry.Snapshot snapshot = healthRegistry.snapshot();
+        long stamp = current.lock().writeLock();
+        try {
+            for (MetricReading reading : readings) {
+                LocalDateTime minuteStart = reading.timestamp().truncatedTo(ChronoUnit.MINUTES);
+                int minute = current.minuteOf(minuteStart);
+                Long stageId = snapshot.deviceStages().get(reading.deviceId());
+                StageSeries series = minute >= 0 && stageId != null
+                        ? current.stages().get(snapshot.stages().get(stageId).sequenceOrder())
+                        : null;
+                if (series == null) {
+                    continue;
+                }
+                series.units.add(minute, reading.unitsProduced());
+                series.defects.add(minute, reading.defectiveUnits());
+                if (minuteStart.equals(reading.timestamp())) {
+                    series.unitsOnMinute[minute] += reading.unitsProduced();
+                    series.defectsOnMinute[minute] += reading.defectiveUnits();
+                }
+            }
+        } finally {
+            current.lock().unlockWrite(stamp);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.tanzu.factory.factory;
+
+public record StageOutputTotals(
+        int stageOrder,
+        String stageName,
+        long unitsProduced,
+        long defectiveUnits
+) {}
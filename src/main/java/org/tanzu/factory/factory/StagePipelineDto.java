@@ -0,0 +1,16 @@
+package org.tanzu.factory.factory;
+
+public record StagePipelineDto(
+        int stageOrder,
+        String stageName,
+        long unitsProduced,
+        long defectiveUnits,
+        long goodUnits,
+        double unitsPerHour,
+        double goodUnitsPerHour,
+        double yieldPercentage,
+        int totalDevices,
+        int operationalDevices,
+        double utilizationPercentage,
+        boolean bottleneck
+) {}
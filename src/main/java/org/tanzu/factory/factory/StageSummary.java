@@ -0,0 +1,7 @@
+package org.tanzu.factory.factory;
+
+public record StageSummary(
+        Long id,
+        String name,
+        int sequenceOrder
+) {}
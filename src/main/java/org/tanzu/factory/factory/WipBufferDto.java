@@ -0,0 +1,9 @@
+package org.tanzu.factory.factory;
+
+// Good units delivered by one stage and not yet taken in by the next, relative to the start of the range
+public record WipBufferDto(
+        int fromStageOrder,
+        int toStageOrder,
+        long netAccumulation,
+        long peakAccumulation
+) {}
@@ -0,0 +1,13 @@
+package org.tanzu.factory.factory;
+
+public record WriteBehindStatsDto(
+        boolean enabled,
+        int queueDepth,
+        int capacity,
+        long accepted,
+        long rejected,
+        long flushed,
+        long failed,
+        long flushes,
+        long replayed
+) {}
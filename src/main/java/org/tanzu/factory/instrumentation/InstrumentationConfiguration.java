@@ -0,0 +1,59 @@
+package org.tanzu.factory.instrumentation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every {@link McpTool} method and every {@link RestController} in an
+ * {@link OperationInterceptor}, counts statements on the application's {@link DataSource}, and
+ * measures response bodies with {@link ResponseSizeFilter}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "factory.instrumentation.enabled", havingValue = "true", matchIfMissing = true)
+public class InstrumentationConfiguration {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor operationInstrumentationAdvisor(
+            ObjectProvider<OperationStatsRegistry> registry,
+            ObjectProvider<ObjectMapper> objectMapper,
+            @Value("${factory.instrumentation.response-size:false}") boolean measureResponseSize) {
+        ComposablePointcut pointcut = new ComposablePointcut(AnnotationMatchingPointcut.forMethodAnnotation(McpTool.class))
+                .union(new AnnotationMatchingPointcut(RestController.class, true));
+        return new DefaultPointcutAdvisor(pointcut,
+                new OperationInterceptor(registry, objectMapper, measureResponseSize));
+    }
+
+    // Counting below Hibernate also covers the JdbcTemplate paths: rollups, health writes, compaction and export
+    @Bean
+    static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)
+                        ? new StatementCountingDataSource(dataSource) : bean;
+            }
+        };
+    }
+
+    @Bean
+    FilterRegistrationBean<ResponseSizeFilter> responseSizeFilter() {
+        return new FilterRegistrationBean<>(new ResponseSizeFilter());
+    }
+}
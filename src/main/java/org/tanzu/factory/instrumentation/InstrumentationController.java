@@ -0,0 +1,30 @@
+package org.tanzu.factory.instrumentation;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/instrumentation")
+public class InstrumentationController {
+    private final OperationStatsRegistry registry;
+
+    public InstrumentationController(OperationStatsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @GetMapping("/operations")
+    public ResponseEntity<List<OperationStatsDto>> getOperations() {
+        return ResponseEntity.ok(registry.snapshot());
+    }
+
+    @DeleteMapping("/operations")
+    public ResponseEntity<Void> resetOperations() {
+        registry.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
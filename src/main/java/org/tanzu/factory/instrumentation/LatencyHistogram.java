@@ -0,0 +1,53 @@
+package org.tanzu.factory.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear histogram of microsecond latencies. Each power of two is split into four
+ * buckets, so a reported percentile is at most 25% above the true value, and recording is a
+ * single atomic increment.
+ */
+class LatencyHistogram {
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 144; // covers up to 2^36 µs, about 19 hours
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long micros) {
+        counts.incrementAndGet(bucket(Math.max(0, micros)));
+    }
+
+    // Upper bound of the bucket holding the given fraction of samples, in microseconds
+    long percentile(double fraction, long total) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    static int bucket(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (exponent - 2)) & (SUB_BUCKETS - 1));
+        return Math.min((exponent - 1) * SUB_BUCKETS + sub, BUCKETS - 1);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 1;
+        long width = 1L << (exponent - 2);
+        return (SUB_BUCKETS + bucket % SUB_BUCKETS) * width + width - 1;
+    }
+}
@@ -0,0 +1,114 @@
+package org.tanzu.factory.instrumentation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+/**
+ * Times each MCP tool and REST endpoint call and records its SQL statement count, outcome and heap
+ * allocation. Allocation is only measurable on platform threads; the JDK reports none for virtual
+ * threads. Only the outermost call on a thread is recorded, so a controller that delegates to a
+ * tool method is counted once, under the controller. Calls made on a request thread leave their
+ * response size to {@link ResponseSizeFilter}; other calls are only sized when
+ * {@code factory.instrumentation.response-size} asks for a second serialization.
+ */
+class OperationInterceptor implements MethodInterceptor {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean() instanceof ThreadMXBean threads
+            && threads.isThreadAllocatedMemorySupported() ? threads : null;
+
+    private final ObjectProvider<OperationStatsRegistry> registry;
+    private final ObjectProvider<ObjectMapper> objectMapper;
+    private final boolean measureResponseSize;
+
+    OperationInterceptor(ObjectProvider<OperationStatsRegistry> registry,
+                         ObjectProvider<ObjectMapper> objectMapper,
+                         boolean measureResponseSize) {
+        this.registry = registry;
+        this.objectMapper = objectMapper;
+        this.measureResponseSize = measureResponseSize;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (SqlStatementCounter.isCounting()) {
+            return invocation.proceed();
+        }
+        Method method = invocation.getMethod();
+        boolean tool = method.isAnnotationPresent(McpTool.class);
+        String operation = method.getDeclaringClass().getSimpleName() + "." + method.getName();
+        OperationStats stats = registry.getObject().forOperation(operation, tool ? "mcp-tool" : "rest");
+
+        boolean sizedByFilter = false;
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request) {
+            request.setAttribute(ResponseSizeFilter.OPERATION_ATTRIBUTE, stats, RequestAttributes.SCOPE_REQUEST);
+            sizedByFilter = true;
+        }
+
+        SqlStatementCounter.begin();
+        long allocatedBefore = allocatedBytes();
+        long started = System.nanoTime();
+        Object result = null;
+        boolean failed = true;
+        try {
+            result = invocation.proceed();
+            failed = result instanceof ResponseEntity<?> response && response.getStatusCode().is5xxServerError();
+            return result;
+        } finally {
+            long micros = (System.nanoTime() - started) / 1000;
+            long allocatedAfter = allocatedBytes();
+            long allocated = allocatedBefore >= 0 && allocatedAfter >= 0 ? allocatedAfter - allocatedBefore : -1;
+            int statements = SqlStatementCounter.end();
+            stats.record(micros, statements, failed, failed || sizedByFilter ? -1 : responseSize(result), allocated);
+        }
+    }
+
+    // -1 on virtual threads or when the JVM does not track per-thread allocation
+    private static long allocatedBytes() {
+        return THREADS != null && THREADS.isThreadAllocatedMemoryEnabled()
+                ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    // Serializes into a counting sink, so no byte array is allocated for the body
+    private long responseSize(Object result) {
+        Object body = result instanceof ResponseEntity<?> response ? response.getBody() : result;
+        if (!measureResponseSize || body == null || body instanceof ResponseBodyEmitter
+                || body instanceof StreamingResponseBody) {
+            return -1;
+        }
+        CountingOutputStream counter = new CountingOutputStream();
+        try {
+            objectMapper.getObject().writeValue(counter, body);
+            return counter.count;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.tanzu.factory.instrumentation;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals for one tool or endpoint. Writers only touch adders and the histogram, so
+ * concurrent calls never contend on a lock.
+ */
+class OperationStats {
+    private final String operation;
+    private final String kind;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+    private final LongAdder totalStatements = new LongAdder();
+    private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+    private final LongAdder sizedResponses = new LongAdder();
+    private final LongAdder totalResponseBytes = new LongAdder();
+    private final LongAccumulator maxResponseBytes = new LongAccumulator(Math::max, 0);
+    private final LongAdder measuredAllocations = new LongAdder();
+    private final LongAdder totalAllocatedBytes = new LongAdder();
+    private final LongAccumulator maxAllocatedBytes = new LongAccumulator(Math::max, 0);
+
+    OperationStats(String operation, String kind) {
+        this.operation = operation;
+        this.kind = kind;
+    }
+
+    void record(long micros, int statements, boolean failed, long responseBytes, long allocatedBytes) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        latency.record(micros);
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+        totalStatements.add(statements);
+        maxStatements.accumulate(statements);
+        if (responseBytes >= 0) {
+            recordResponseBytes(responseBytes);
+        }
+        if (allocatedBytes >= 0) {
+            measuredAllocations.increment();
+            totalAllocatedBytes.add(allocatedBytes);
+            maxAllocatedBytes.accumulate(allocatedBytes);
+        }
+    }
+
+    // Called separately by ResponseSizeFilter once the body has been written
+    void recordResponseBytes(long responseBytes) {
+        sizedResponses.increment();
+        totalResponseBytes.add(responseBytes);
+        maxResponseBytes.accumulate(responseBytes);
+    }
+
+    OperationStatsDto toDto() {
+        long count = calls.sum();
+        long sized = sizedResponses.sum();
+        long measured = measuredAllocations.sum();
+        long max = maxMicros.get();
+        return new OperationStatsDto(
+                operation,
+                kind,
+                count,
+                errors.sum(),
+                totalMicros.sum() / 1000.0,
+                count > 0 ? totalMicros.sum() / 1000.0 / count : 0,
+                // Bucket bounds can overshoot the largest sample, so never report more than the max
+                Math.min(latency.percentile(0.50, count), max) / 1000.0,
+                Math.min(latency.percentile(0.90, count), max) / 1000.0,
+                Math.min(latency.percentile(0.99, count), max) / 1000.0,
+                max / 1000.0,
+                count > 0 ? (double) totalStatements.sum() / count : 0,
+                maxStatements.get(),
+                sized > 0 ? (double) totalResponseBytes.sum() / sized : 0,
+                maxResponseBytes.get(),
+                measured > 0 ? (double) totalAllocatedBytes.sum() / measured : 0,
+                maxAllocatedBytes.get());
+    }
+}
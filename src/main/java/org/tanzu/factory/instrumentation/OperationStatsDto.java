@@ -0,0 +1,21 @@
+package org.tanzu.factory.instrumentation;
+
+public record OperationStatsDto(
+        String operation,
+        String kind,
+        long calls,
+        long errors,
+        double totalMillis,
+        double meanMillis,
+        double p50Millis,
+        double p90Millis,
+        double p99Millis,
+        double maxMillis,
+        double meanStatements,
+        long maxStatements,
+        double meanResponseBytes,
+        long maxResponseBytes,
+        double meanAllocatedBytes,
+        long maxAllocatedBytes
+) {
+}
@@ -0,0 +1,32 @@
+package org.tanzu.factory.instrumentation;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-operation call statistics for MCP tools and REST endpoints, ordered by total time so the
+ * operations that dominate cost come first.
+ */
+@Component
+public class OperationStatsRegistry {
+    private final ConcurrentMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+    OperationStats forOperation(String operation, String kind) {
+        return operations.computeIfAbsent(operation, name -> new OperationStats(name, kind));
+    }
+
+    public List<OperationStatsDto> snapshot() {
+        return operations.values().stream()
+                .map(OperationStats::toDto)
+                .sorted(Comparator.comparingDouble(OperationStatsDto::totalMillis).reversed())
+                .toList();
+    }
+
+    public void reset() {
+        operations.clear();
+    }
+}
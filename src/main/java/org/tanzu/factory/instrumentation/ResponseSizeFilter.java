@@ -0,0 +1,91 @@
+package org.tanzu.factory.instrumentation;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Counts the body bytes written for each request and adds them to the operation that handled
+ * it, so response sizes come from the bytes actually sent rather than a second serialization.
+ * Streaming and SSE responses outlive the request thread and are not measured.
+ */
+class ResponseSizeFilter extends OncePerRequestFilter {
+    static final String OPERATION_ATTRIBUTE = ResponseSizeFilter.class.getName() + ".operation";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        CountingResponse counting = new CountingResponse(response);
+        chain.doFilter(request, counting);
+        if (!request.isAsyncStarted() && !counting.usedWriter && response.getStatus() < 500
+                && request.getAttribute(OPERATION_ATTRIBUTE) instanceof OperationStats stats) {
+            stats.recordResponseBytes(counting.count);
+        }
+    }
+
+    private static class CountingResponse extends HttpServletResponseWrapper {
+        private long count;
+        private boolean usedWriter;
+        private ServletOutputStream outputStream;
+
+        CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                ServletOutputStream target = super.getOutputStream();
+                outputStream = new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        target.write(b);
+                        count++;
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        target.write(b, off, len);
+                        count += len;
+                    }
+
+                    @Override
+                    public void flush() throws IOException {
+                        target.flush();
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        target.close();
+                    }
+
+                    @Override
+                    public boolean isReady() {
+                        return target.isReady();
+                    }
+
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                        target.setWriteListener(listener);
+                    }
+                };
+            }
+            return outputStream;
+        }
+
+        // Character output is not counted; the size of such a response is left unmeasured
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            usedWriter = true;
+            return super.getWriter();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.tanzu.factory.instrumentation;
+
+/**
+ * Counts the SQL statements prepared on the current thread while an instrumented call is in
+ * progress. {@link StatementCountingDataSource} reports every statement, so JdbcTemplate SQL is
+ * counted as well as Hibernate's.
+ */
+final class SqlStatementCounter {
+    private static final ThreadLocal<int[]> COUNTER = new ThreadLocal<>();
+
+    private SqlStatementCounter() {
+    }
+
+    static boolean isCounting() {
+        return COUNTER.get() != null;
+    }
+
+    static void begin() {
+        COUNTER.set(new int[1]);
+    }
+
+    static int end() {
+        int[] counter = COUNTER.get();
+        COUNTER.remove();
+        return counter != null ? counter[0] : 0;
+    }
+
+    static void increment() {
+        int[] counter = COUNTER.get();
+        if (counter != null) {
+            counter[0]++;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.tanzu.factory.mcp;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.modelcontextprotocol.spec.McpError;
+import org.springaicommunity.mcp.annotation.McpResource;
+import org.springframework.stereotype.Component;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.factory.ProductionOutputDto;
+import org.tanzu.factory.supplychain.SupplyChainService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only factory state as MCP resources. Clients can cache these and re-read them when
+ * {@link ResourceChangeNotifier} reports an update, instead of polling the equivalent tools.
+ */
+@Component
+public class FactoryResources {
+    static final String STAGES_HEALTH_URI = "factory://stages/health";
+    static final String STAGE_OUTPUT_URI_TEMPLATE = "factory://stages/{stageOrder}/output/today";
+    static final String SUPPLY_CHAIN_STATUS_URI = "factory://supply-chain/status/today";
+
+    private final FactoryService factoryService;
+    private final SupplyChainService supplyChainService;
+    private final ObjectMapper objectMapper;
+
+    public FactoryResources(FactoryService factoryService,
+                            SupplyChainService supplyChainService,
+                            ObjectMapper objectMapper) {
+        this.factoryService = factoryService;
+        this.supplyChainService = supplyChainService;
+        this.objectMapper = objectMapper;
+    }
+
+    static String stageOutputUri(int stageOrder) {
+        return STAGE_OUTPUT_URI_TEMPLATE.replace("{stageOrder}", Integer.toString(stageOrder));
+    }
+
+    @McpResource(uri = STAGES_HEALTH_URI, name = "stages-health", mimeType = "application/json",
+            description = "Health of every manufacturing stage, including overall health scores and the status of each device")
+    public String getStagesHealth() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(factoryService.getManufacturingStagesHealth());
+    }
+
+    @McpResource(uri = STAGE_OUTPUT_URI_TEMPLATE, name = "stage-output-today", mimeType = "application/json",
+            description = "Production output of one manufacturing stage, identified by its sequence order, for today's shift")
+    public String getStageOutputToday(String stageOrder) throws JsonProcessingException {
+        // A malformed or unknown stage order names no resource
+        int order;
+        try {
+            order = Integer.parseInt(stageOrder);
+        } catch (NumberFormatException e) {
+            throw McpError.RESOURCE_NOT_FOUND.apply(STAGE_OUTPUT_URI_TEMPLATE.replace("{stageOrder}", stageOrder));
+        }
+        LocalDate today = LocalDate.now();
+        ProductionOutputDto output = factoryService.getStageOutput(order,
+                LocalDateTime.of(today, SupplyChainService.SHIFT_START),
+                LocalDateTime.of(today, SupplyChainService.SHIFT_END));
+        if (output == null) {
+            throw McpError.RESOURCE_NOT_FOUND.apply(stageOutputUri(order));
+        }
+        return objectMapper.writeValueAsString(output);
+    }
+
+    @McpResource(uri = SUPPLY_CHAIN_STATUS_URI, name = "supply-chain-status-today", mimeType = "application/json",
+            description = "Today's supply chain status: current output, projected end-of-day output, target completion and whether production is on track")
+    public String getSupplyChainStatusToday() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(supplyChainService.getCurrentSupplyChainStatus());
+    }
+}
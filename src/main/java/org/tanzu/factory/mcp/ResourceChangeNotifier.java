@@ -0,0 +1,127 @@
+package org.tanzu.factory.mcp;
+
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.tanzu.factory.factory.DeviceHealthChangedEvent;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.MetricReading;
+import org.tanzu.factory.factory.ProductionMetricsRecordedEvent;
+import org.tanzu.factory.factory.StageHealthDto;
+import org.tanzu.factory.supplychain.DailyTargetChangedEvent;
+import org.tanzu.factory.supplychain.SupplyChainService;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sends MCP resources/updated notifications for {@link FactoryResources}. Changes are debounced:
+ * a notification goes out once writes have been quiet for the debounce period, or once the
+ * maximum delay has passed during a sustained burst, so a burst of ingest yields one notification
+ * per resource.
+ */
+@Component
+public class ResourceChangeNotifier {
+    private static final Logger log = LoggerFactory.getLogger(ResourceChangeNotifier.class);
+
+    private final ObjectProvider<McpSyncServer> mcpServer;
+    private final DeviceHealthRegistry healthRegistry;
+    private final long debounceMillis;
+    private final long maxDelayMillis;
+
+    private final Set<String> pendingUris = new LinkedHashSet<>();
+    private long firstChangeAt;
+    private long lastChangeAt;
+
+    public ResourceChangeNotifier(ObjectProvider<McpSyncServer> mcpServer,
+                                  DeviceHealthRegistry healthRegistry,
+                                  @Value("${factory.mcp.notification-debounce-ms:1000}") long debounceMillis,
+                                  @Value("${factory.mcp.notification-max-delay-ms:5000}") long maxDelayMillis) {
+        this.mcpServer = mcpServer;
+        this.healthRegistry = healthRegistry;
+        this.debounceMillis = debounceMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceHealthChanged(DeviceHealthChangedEvent event) {
+        markChanged(Set.of(FactoryResources.STAGES_HEALTH_URI));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsRecorded(ProductionMetricsRecordedEvent event) {
+        LocalDate today = LocalDate.now();
+        DeviceHealthRegistry.Snapshot snapshot = healthRegistry.snapshot();
+        Map<Long, Long> deviceStages = snapshot.deviceStages();
+
+        Set<String> changed = new LinkedHashSet<>();
+        for (MetricReading reading : event.readings()) {
+            LocalTime time = reading.timestamp().toLocalTime();
+            if (!reading.timestamp().toLocalDate().equals(today)
+                    || time.isBefore(SupplyChainService.SHIFT_START)
+                    || time.isAfter(SupplyChainService.SHIFT_END)) {
+                continue;
+            }
+            StageHealthDto stage = snapshot.stages().get(deviceStages.get(reading.deviceId()));
+            if (stage != null) {
+                changed.add(FactoryResources.stageOutputUri(stage.sequenceOrder()));
+            }
+        }
+        if (!changed.isEmpty()) {
+            changed.add(FactoryResources.SUPPLY_CHAIN_STATUS_URI);
+            markChanged(changed);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDailyTargetChanged(DailyTargetChangedEvent event) {
+        if (event.date().equals(LocalDate.now())) {
+            markChanged(Set.of(FactoryResources.SUPPLY_CHAIN_STATUS_URI));
+        }
+    }
+
+    private synchronized void markChanged(Set<String> uris) {
+        long now = System.currentTimeMillis();
+        if (pendingUris.isEmpty()) {
+            firstChangeAt = now;
+        }
+        lastChangeAt = now;
+        pendingUris.addAll(uris);
+    }
+
+    @Scheduled(fixedDelayString = "${factory.mcp.notification-check-ms:250}")
+    public void sendPendingNotifications() {
+        Set<String> uris;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            boolean quiet = now - lastChangeAt >= debounceMillis;
+            boolean overdue = now - firstChangeAt >= maxDelayMillis;
+            if (pendingUris.isEmpty() || !(quiet || overdue)) {
+                return;
+            }
+            uris = new LinkedHashSet<>(pendingUris);
+            pendingUris.clear();
+        }
+
+        McpSyncServer server = mcpServer.getIfAvailable();
+        if (server == null) {
+            return;
+        }
+        for (String uri : uris) {
+            try {
+                server.notifyResourcesUpdated(new McpSchema.ResourcesUpdatedNotification(uri));
+            } catch (RuntimeException e) {
+                log.warn("Failed to send resource update notification for {}", uri, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.tanzu.factory.snapshot;
+
+/**
+ * Dashboard view of the factory at {@code version}. With a {@code baseVersion}, {@code factory}
+ * is a delta against it: the summary is complete, but only stages that changed are listed, each
+ * with only the devices that changed. Without one, it is the full snapshot.
+ */
+public record DashboardSnapshotDto(
+        String version,
+        String baseVersion,
+        FactorySnapshotDto factory
+) {}
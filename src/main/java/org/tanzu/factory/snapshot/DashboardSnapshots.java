@@ -0,0 +1,181 @@
+package org.tanzu.factory.snapshot;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.ProductionMetricsCompactedEvent;
+import org.tanzu.factory.factory.ProductionMetricsRecordedEvent;
+import org.tanzu.factory.supplychain.DailyTargetChangedEvent;
+import org.tanzu.factory.supplychain.SupplyChainStatusCache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Versions the dashboard snapshot without building it. The version is derived from counters that
+ * move whenever the snapshot's inputs do: the health registry version, the number of committed
+ * production writes and target changes, the date, and a coarse clock bucket of
+ * {@code factory.dashboard.projection-refresh-minutes} so the end-of-day projection still
+ * refreshes on an idle line. The counters move only after the stage output and supply chain
+ * status caches have dropped what the change affects. Revalidating a dashboard therefore costs a
+ * few counter reads, and a snapshot is built at most once per version. The last
+ * {@code factory.dashboard.history-size} versions are kept, so a client that sends the version it
+ * has gets a delta instead of the full snapshot. Versions carry a per-process prefix so a version
+ * from before a restart is never mistaken for a current one.
+ */
+@Component
+public class DashboardSnapshots {
+    private static final int VERSION_ORDER = SupplyChainStatusCache.INVALIDATION_ORDER + 1;
+
+    private record Inputs(LocalDate date, long clockBucket, long healthVersion, long productionWrites,
+                          long targetChanges) {}
+
+    private final FactorySnapshotService snapshotService;
+    private final DeviceHealthRegistry healthRegistry;
+    private final int historySize;
+    private final long projectionRefreshMinutes;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong productionWrites = new AtomicLong();
+    private final AtomicLong targetChanges = new AtomicLong();
+
+    // Guards the version; held only to compare inputs, never while building
+    private final ReentrantLock versionLock = new ReentrantLock();
+    private Inputs latestInputs;
+    private long version;
+
+    // Guards the history; concurrent requests for a version not built yet wait for one build
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final LinkedHashMap<Long, FactorySnapshotDto> history = new LinkedHashMap<>();
+
+    public DashboardSnapshots(FactorySnapshotService snapshotService,
+                              DeviceHealthRegistry healthRegistry,
+                              @Value("${factory.dashboard.history-size:64}") int historySize,
+                              @Value("${factory.dashboard.projection-refresh-minutes:5}") long projectionRefreshMinutes) {
+        this.snapshotService = snapshotService;
+        this.healthRegistry = healthRegistry;
+        this.historySize = historySize;
+        this.projectionRefreshMinutes = Math.max(1, projectionRefreshMinutes);
+    }
+
+    public String currentVersion() {
+        return format(advance());
+    }
+
+    public DashboardSnapshotDto get(String sinceVersion) {
+        long current = advance();
+        FactorySnapshotDto latest;
+        FactorySnapshotDto base;
+        buildLock.lock();
+        try {
+            latest = history.get(current);
+            if (latest == null) {
+                latest = snapshotService.getFactorySnapshot(false);
+                history.put(current, latest);
+                Iterator<Long> eldest = history.keySet().iterator();
+                while (history.size() > historySize) {
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+            base = baseSnapshot(sinceVersion);
+        } finally {
+            buildLock.unlock();
+        }
+
+        if (base == null || !base.date().equals(latest.date())) {
+            return new DashboardSnapshotDto(format(current), null, latest);
+        }
+        return new DashboardSnapshotDto(format(current), sinceVersion, delta(base, latest));
+    }
+
+    private long advance() {
+        LocalDateTime now = LocalDateTime.now();
+        Inputs inputs = new Inputs(now.toLocalDate(), (now.getHour() * 60L + now.getMinute()) / projectionRefreshMinutes,
+                healthRegistry.snapshot().version(), productionWrites.get(), targetChanges.get());
+        versionLock.lock();
+        try {
+            if (!inputs.equals(latestInputs)) {
+                latestInputs = inputs;
+                version++;
+            }
+            return version;
+        } finally {
+            versionLock.unlock();
+        }
+    }
+
+    // Counted only once the caches are invalidated, so a new version is never built from stale status
+    @Order(VERSION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsRecorded(ProductionMetricsRecordedEvent event) {
+        productionWrites.incrementAndGet();
+    }
+
+    @Order(VERSION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsCompacted(ProductionMetricsCompactedEvent event) {
+        productionWrites.incrementAndGet();
+    }
+
+    @Order(VERSION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDailyTargetChanged(DailyTargetChangedEvent event) {
+        targetChanges.incrementAndGet();
+    }
+
+    private FactorySnapshotDto baseSnapshot(String sinceVersion) {
+        if (sinceVersion == null || !sinceVersion.startsWith(epoch + "-")) {
+            return null;
+        }
+        try {
+            return history.get(Long.parseLong(sinceVersion.substring(epoch.length() + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private String format(long version) {
+        return epoch + "-" + version;
+    }
+
+    private static FactorySnapshotDto delta(FactorySnapshotDto base, FactorySnapshotDto current) {
+        Map<Long, StageSnapshotDto> baseStages = new HashMap<>();
+        for (StageSnapshotDto stage : base.stages()) {
+            baseStages.put(stage.stageId(), stage);
+        }
+
+        List<StageSnapshotDto> changedStages = new ArrayList<>();
+        for (StageSnapshotDto stage : current.stages()) {
+            StageSnapshotDto previous = baseStages.get(stage.stageId());
+            if (stage.equals(previous)) {
+                continue;
+            }
+            List<DeviceHealthDto> devices = stage.devices();
+            if (previous != null) {
+                Set<DeviceHealthDto> unchanged = new HashSet<>(previous.devices());
+                devices = devices.stream().filter(device -> !unchanged.contains(device)).toList();
+            }
+            changedStages.add(new StageSnapshotDto(stage.stageId(), stage.stageOrder(), stage.stageName(),
+                    stage.overallHealthScore(), stage.totalDevices(), stage.operationalDevices(),
+                    stage.unitsProduced(), stage.defectiveUnits(), stage.effectiveYieldPercentage(), devices));
+        }
+
+        return new FactorySnapshotDto(current.date(), current.shiftStart(), current.shiftEnd(),
+                current.dailyTarget(), current.currentOutput(), current.projectedEndOfDayOutput(),
+                current.targetCompletionPercentage(), current.onTrack(), current.totalDevices(),
+                current.operationalDevices(), changedStages);
+    }
+}
@@ -0,0 +1,67 @@
+package org.tanzu.factory.snapshot;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/factory")
+public class FactorySnapshotController {
+    private final FactorySnapshotService snapshotService;
+    private final DashboardSnapshots dashboardSnapshots;
+
+    public FactorySnapshotController(FactorySnapshotService snapshotService,
+                                     DashboardSnapshots dashboardSnapshots) {
+        this.snapshotService = snapshotService;
+        this.dashboardSnapshots = dashboardSnapshots;
+    }
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<FactorySnapshotDto> getSnapshot(@RequestParam(defaultValue = "false") boolean compact) {
+        return ResponseEntity.ok(snapshotService.getFactorySnapshot(compact));
+    }
+
+    @GetMapping("/dashboard")
+    public ResponseEntity<DashboardSnapshotDto> getDashboard(
+            @RequestParam(required = false) String since,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // Checked before anything is built; browsers must revalidate, which costs an unchanged dashboard a 304
+        String version = dashboardSnapshots.currentVersion();
+        if (matches(ifNoneMatch, eTag(version, since))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(version, since))
+                    .cacheControl(CacheControl.noCache()).build();
+        }
+        DashboardSnapshotDto dashboard = dashboardSnapshots.get(since);
+        return ResponseEntity.ok().eTag(eTag(dashboard.version(), since))
+                .cacheControl(CacheControl.noCache()).body(dashboard);
+    }
+
+    // A delta and the full snapshot of the same version are different representations
+    private static String eTag(String version, String since) {
+        return "\"" + version + (since != null ? "/" + since : "") + "\"";
+    }
+
+    // Weak comparison, as If-None-Match requires
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package org.tanzu.factory.snapshot;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record FactorySnapshotDto(
+        LocalDate date,
+        LocalDateTime shiftStart,
+        LocalDateTime shiftEnd,
+        int dailyTarget,
+        int currentOutput,
+        int projectedEndOfDayOutput,
+        double targetCompletionPercentage,
+        boolean onTrack,
+        int totalDevices,
+        int operationalDevices,
+        List<StageSnapshotDto> stages
+) {}
@@ -0,0 +1,77 @@
+package org.tanzu.factory.snapshot;
+
+import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.stereotype.Service;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.ProductionOutputDto;
+import org.tanzu.factory.factory.StageHealthDto;
+import org.tanzu.factory.supplychain.SupplyChainService;
+import org.tanzu.factory.supplychain.SupplyChainStatusDto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One view of the factory for today combining stage health, stage output for the shift and the
+ * supply chain status. The status already carries the shift's stage outputs, so they are computed
+ * once and joined with a single health registry snapshot instead of being fetched per tool call.
+ */
+@Service
+public class FactorySnapshotService {
+    private final DeviceHealthRegistry healthRegistry;
+    private final SupplyChainService supplyChainService;
+
+    public FactorySnapshotService(DeviceHealthRegistry healthRegistry,
+                                  SupplyChainService supplyChainService) {
+        this.healthRegistry = healthRegistry;
+        this.supplyChainService = supplyChainService;
+    }
+
+    @McpTool(description = "Gets a snapshot of the whole factory for today in one call: health, device counts and shift output of every manufacturing stage together with the daily target, current and projected output and whether production is on track. Set compact to true to leave out the status of individual devices")
+    public FactorySnapshotDto getFactorySnapshot(boolean compact) {
+        LocalDate today = LocalDate.now();
+        SupplyChainStatusDto status = supplyChainService.getSupplyChainStatus(today);
+
+        Map<Integer, ProductionOutputDto> outputsByStage = new HashMap<>();
+        for (ProductionOutputDto output : status.stageOutputs()) {
+            outputsByStage.put(output.stageOrder(), output);
+        }
+
+        List<StageSnapshotDto> stages = new ArrayList<>();
+        int totalDevices = 0;
+        int operationalDevices = 0;
+        for (StageHealthDto health : healthRegistry.snapshot().stages().values()) {
+            ProductionOutputDto output = outputsByStage.get(health.sequenceOrder());
+            stages.add(new StageSnapshotDto(
+                    health.stageId(),
+                    health.sequenceOrder(),
+                    health.stageName(),
+                    health.overallHealthScore(),
+                    health.totalDevices(),
+                    health.operationalDevices(),
+                    output != null ? output.unitsProduced() : 0,
+                    output != null ? output.defectiveUnits() : 0,
+                    output != null ? output.effectiveYieldPercentage() : 0.0,
+                    compact ? null : health.devices()));
+            totalDevices += health.totalDevices();
+            operationalDevices += health.operationalDevices();
+        }
+
+        return new FactorySnapshotDto(
+                today,
+                LocalDateTime.of(today, SupplyChainService.SHIFT_START),
+                LocalDateTime.of(today, SupplyChainService.SHIFT_END),
+                status.dailyTarget(),
+                status.currentOutput(),
+                status.projectedEndOfDayOutput(),
+                status.targetCompletionPercentage(),
+                status.onTrack(),
+                totalDevices,
+                operationalDevices,
+                stages);
+    }
+}
@@ -0,0 +1,21 @@
+package org.tanzu.factory.snapshot;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.tanzu.factory.factory.DeviceHealthDto;
+
+import java.util.List;
+
+public record StageSnapshotDto(
+        Long stageId,
+        int stageOrder,
+        String stageName,
+        double overallHealthScore,
+        int totalDevices,
+        int operationalDevices,
+        int unitsProduced,
+        int defectiveUnits,
+        double effectiveYieldPercentage,
+        // Left out of compact snapshots
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        List<DeviceHealthDto> devices
+) {}
@@ -0,0 +1,279 @@
+package org.tanzu.factory.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.tanzu.factory.alert.AlertChangedEvent;
+import org.tanzu.factory.alert.AlertEngine;
+import org.tanzu.factory.factory.DeviceHealthChangedEvent;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.factory.MetricReading;
+import org.tanzu.factory.factory.ProductionMetricsRecordedEvent;
+import org.tanzu.factory.factory.ProductionOutputDto;
+import org.tanzu.factory.factory.StageHealthDto;
+import org.tanzu.factory.supplychain.DailyTargetChangedEvent;
+import org.tanzu.factory.supplychain.SupplyChainService;
+import org.tanzu.factory.supplychain.SupplyChainStatusCache;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes factory changes to dashboard subscribers over server-sent events. Writes only mark
+ * which devices and stages changed; once per tick the pending changes are turned into events,
+ * serialized once and sent to every subscriber. The supply chain status also depends on the
+ * clock, so during the shift it is pushed every {@code factory.stream.status-refresh-ms} even
+ * when nothing was written.
+ */
+@Component
+public class FactoryEventStream {
+    private static final Logger log = LoggerFactory.getLogger(FactoryEventStream.class);
+
+    static final String STAGE_HEALTH = "stage-health";
+    static final String DEVICE_HEALTH = "device-health";
+    static final String STAGE_OUTPUT = "stage-output";
+    static final String SUPPLY_CHAIN_STATUS = "supply-chain-status";
+    static final String ALERT = "alert";
+
+    private static final int STATUS_ORDER = SupplyChainStatusCache.INVALIDATION_ORDER + 1;
+
+    private final DeviceHealthRegistry healthRegistry;
+    private final FactoryService factoryService;
+    private final SupplyChainService supplyChainService;
+    private final AlertEngine alertEngine;
+    private final ObjectMapper objectMapper;
+    private final long emitterTimeoutMillis;
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    private final Object pendingLock = new Object();
+    private Set<Long> pendingDevices = new HashSet<>();
+    private Set<Long> pendingStages = new HashSet<>();
+    private boolean pendingOutput;
+    private boolean pendingStatus;
+    private List<AlertChangedEvent> pendingAlerts = new ArrayList<>();
+    // Last stage outputs pushed, so output events only carry stages whose totals moved
+    private final Map<Integer, ProductionOutputDto> lastOutputs = new HashMap<>();
+
+    public FactoryEventStream(DeviceHealthRegistry healthRegistry,
+                              FactoryService factoryService,
+                              SupplyChainService supplyChainService,
+                              AlertEngine alertEngine,
+                              ObjectMapper objectMapper,
+                              @Value("${factory.stream.emitter-timeout-ms:1800000}") long emitterTimeoutMillis) {
+        this.healthRegistry = healthRegistry;
+        this.factoryService = factoryService;
+        this.supplyChainService = supplyChainService;
+        this.alertEngine = alertEngine;
+        this.objectMapper = objectMapper;
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+
+        // New subscribers start from the full current state, then receive changes only
+        try {
+            send(emitter, STAGE_HEALTH, toJson(healthRegistry.getStagesHealth()));
+            send(emitter, STAGE_OUTPUT, toJson(todaysOutput()));
+            send(emitter, SUPPLY_CHAIN_STATUS, toJson(supplyChainService.getCurrentSupplyChainStatus()));
+            send(emitter, ALERT, toJson(alertEngine.getActiveAlerts().stream()
+                    .map(alert -> new AlertChangedEvent(alert, true))
+                    .toList()));
+            emitters.add(emitter);
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceHealthChanged(DeviceHealthChangedEvent event) {
+        Long stageId = healthRegistry.snapshot().deviceStages().get(event.deviceId());
+        synchronized (pendingLock) {
+            pendingDevices.add(event.deviceId());
+            if (stageId != null) {
+                pendingStages.add(stageId);
+            }
+        }
+    }
+
+    // Marked once the status cache has dropped the day, so a tick never rebuilds the old status
+    @Order(STATUS_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsRecorded(ProductionMetricsRecordedEvent event) {
+        LocalDate today = LocalDate.now();
+        for (MetricReading reading : event.readings()) {
+            if (reading.timestamp().toLocalDate().equals(today)) {
+                synchronized (pendingLock) {
+                    pendingOutput = true;
+                }
+                return;
+            }
+        }
+    }
+
+    @Order(STATUS_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDailyTargetChanged(DailyTargetChangedEvent event) {
+        if (event.date().equals(LocalDate.now())) {
+            synchronized (pendingLock) {
+                pendingStatus = true;
+            }
+        }
+    }
+
+    // The projection and on-track flag move with the clock even on an idle line
+    @Scheduled(fixedDelayString = "${factory.stream.status-refresh-ms:60000}")
+    public void refreshSupplyChainStatus() {
+        LocalTime now = LocalTime.now();
+        if (!now.isBefore(SupplyChainService.SHIFT_START) && !now.isAfter(SupplyChainService.SHIFT_END)) {
+            synchronized (pendingLock) {
+                pendingStatus = true;
+            }
+        }
+    }
+
+    // Alerts are published from after-commit listeners, where a transactional listener would never run
+    @EventListener
+    public void onAlertChanged(AlertChangedEvent event) {
+        synchronized (pendingLock) {
+            pendingAlerts.add(event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${factory.stream.tick-ms:1000}")
+    public void publishPendingChanges() {
+        Set<Long> devices;
+        Set<Long> stages;
+        boolean output;
+        boolean status;
+        List<AlertChangedEvent> alerts;
+        synchronized (pendingLock) {
+            if (pendingDevices.isEmpty() && pendingStages.isEmpty() && !pendingOutput && !pendingStatus
+                    && pendingAlerts.isEmpty()) {
+                return;
+            }
+            devices = pendingDevices;
+            stages = pendingStages;
+            output = pendingOutput;
+            status = pendingStatus;
+            alerts = pendingAlerts;
+            pendingDevices = new HashSet<>();
+            pendingStages = new HashSet<>();
+            pendingOutput = false;
+            pendingStatus = false;
+            pendingAlerts = new ArrayList<>();
+        }
+        if (emitters.isEmpty()) {
+            return;
+        }
+
+        // Build each event once for all subscribers; ticks never overlap, so lastOutputs needs no lock
+        Map<String, String> events = new LinkedHashMap<>();
+        try {
+            if (!stages.isEmpty()) {
+                DeviceHealthRegistry.Snapshot snapshot = healthRegistry.snapshot();
+                List<StageHealthDto> changedStages = new ArrayList<>();
+                List<DeviceHealthDto> changedDevices = new ArrayList<>();
+                for (Long stageId : stages) {
+                    StageHealthDto stage = snapshot.stages().get(stageId);
+                    if (stage == null) {
+                        continue;
+                    }
+                    changedStages.add(stage);
+                    stage.devices().stream()
+                            .filter(device -> devices.contains(device.id()))
+                            .forEach(changedDevices::add);
+                }
+                events.put(STAGE_HEALTH, toJson(changedStages));
+                events.put(DEVICE_HEALTH, toJson(changedDevices));
+            }
+            if (output) {
+                List<ProductionOutputDto> changedOutputs = todaysOutput().stream()
+                        .filter(stage -> !stage.equals(lastOutputs.put(stage.stageOrder(), stage)))
+                        .toList();
+                if (!changedOutputs.isEmpty()) {
+                    events.put(STAGE_OUTPUT, toJson(changedOutputs));
+                    status = true;
+                }
+            }
+            if (status) {
+                events.put(SUPPLY_CHAIN_STATUS, toJson(supplyChainService.getCurrentSupplyChainStatus()));
+            }
+            if (!alerts.isEmpty()) {
+                events.put(ALERT, toJson(alerts));
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize factory stream events", e);
+            return;
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        for (SseEmitter emitter : emitters) {
+            try {
+                for (Map.Entry<String, String> event : events.entrySet()) {
+                    send(emitter, event.getKey(), event.getValue());
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    // Comment lines keep idle connections open through proxies and reveal dead clients
+    @Scheduled(fixedDelayString = "${factory.stream.heartbeat-ms:15000}")
+    public void sendHeartbeat() {
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    private List<ProductionOutputDto> todaysOutput() {
+        LocalDate today = LocalDate.now();
+        return factoryService.getAllStagesOutput(
+                LocalDateTime.of(today, SupplyChainService.SHIFT_START),
+                LocalDateTime.of(today, SupplyChainService.SHIFT_END));
+    }
+
+    private String toJson(Object value) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(value);
+    }
+
+    private void send(SseEmitter emitter, String name, String json) throws IOException {
+        emitter.send(SseEmitter.event().name(name).data(json));
+    }
+}
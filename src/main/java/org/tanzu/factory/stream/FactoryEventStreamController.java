@@ -0,0 +1,22 @@
+package org.tanzu.factory.stream;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/stream")
+public class FactoryEventStreamController {
+    private final FactoryEventStream eventStream;
+
+    public FactoryEventStreamController(FactoryEventStream eventStream) {
+        this.eventStream = eventStream;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        return eventStream.subscribe();
+    }
+}
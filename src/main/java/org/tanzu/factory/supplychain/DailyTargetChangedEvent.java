@@ -0,0 +1,5 @@
+package org.tanzu.factory.supplychain;
+
+import java.time.LocalDate;
+
+public record DailyTargetChangedEvent(LocalDate date) {}
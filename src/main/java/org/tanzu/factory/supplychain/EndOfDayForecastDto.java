@@ -0,0 +1,17 @@
+package org.tanzu.factory.supplychain;
+
+import java.time.LocalDate;
+
+public record EndOfDayForecastDto(
+        LocalDate date,
+        int dailyTarget,
+        int currentOutput,
+        int linearProjectedOutput,
+        double remainingShiftHours,
+        int trials,
+        int p10Output,
+        int p50Output,
+        int p90Output,
+        double meanOutput,
+        double onTrackProbability
+) {}
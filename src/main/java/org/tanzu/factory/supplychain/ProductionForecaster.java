@@ -0,0 +1,292 @@
+package org.tanzu.factory.supplychain;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.DeviceHourlyOutput;
+import org.tanzu.factory.factory.ProductionMetricsHourlyRepository;
+import org.tanzu.factory.factory.ProductionOutputDto;
+import org.tanzu.factory.factory.StageHealthDto;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo forecast of a day's end-of-shift output. Each trial simulates the rest of the shift
+ * hour by hour: every operational device produces an hour drawn from its own shift hours over the
+ * last {@code factory.forecast.lookback-days} days, with that hour's defects; devices fail with a
+ * probability that grows as their health score drops and failed ones recover at a fixed rate.
+ * Stages run in sequence order and a stage can only process the good units its upstream stage has
+ * delivered, so a slow or failing stage holds back everything after it. Trials run in parallel
+ * chunks, each with its own split of one {@link SplittableRandom}.
+ */
+@Component
+public class ProductionForecaster {
+    private static final int TRIALS_PER_CHUNK = 250;
+    private static final int MIN_TRIALS = 1000;
+
+    // Historical shift hours of one device, as parallel arrays
+    private record DeviceHistory(int[] units, int[] defects) {}
+
+    private record History(LocalDate date, Map<Long, DeviceHistory> devices) {}
+
+    /*
+     * The fleet flattened for the simulation's inner loop: devices stage by stage, each with its
+     * history as a slice of units and defects pairs. Probabilities are 32-bit thresholds for the
+     * first, possibly partial, hour and for whole hours.
+     */
+    private record Fleet(int[] stageEnds, int[] sampleOffsets, int[] sampleCounts, int[] samples,
+                         boolean[] operational, long[] firstHourFailure, long[] hourFailure,
+                         long firstHourRecovery, long hourRecovery) {}
+
+    private final DeviceHealthRegistry healthRegistry;
+    private final ProductionMetricsHourlyRepository hourlyRepository;
+    private final int trials;
+    private final long maxDeviceHours;
+    private final int lookbackDays;
+    private final double failureProbabilityAtZeroHealth;
+    private final double recoveryProbability;
+    private final Long randomSeed;
+
+    // Past shifts do not change during the day, so their samples are loaded once per forecast date
+    private final AtomicReference<History> history = new AtomicReference<>();
+
+    public ProductionForecaster(DeviceHealthRegistry healthRegistry,
+                                ProductionMetricsHourlyRepository hourlyRepository,
+                                @Value("${factory.forecast.trials:10000}") int trials,
+                                @Value("${factory.forecast.max-device-hours:4000000}") long maxDeviceHours,
+                                @Value("${factory.forecast.lookback-days:14}") int lookbackDays,
+                                @Value("${factory.forecast.failure-probability-at-zero-health:0.2}") double failureProbabilityAtZeroHealth,
+                                @Value("${factory.forecast.recovery-probability:0.25}") double recoveryProbability,
+                                @Value("${factory.forecast.random-seed:#{null}}") Long randomSeed) {
+        this.healthRegistry = healthRegistry;
+        this.hourlyRepository = hourlyRepository;
+        this.trials = trials;
+        this.maxDeviceHours = maxDeviceHours;
+        this.lookbackDays = lookbackDays;
+        this.failureProbabilityAtZeroHealth = failureProbabilityAtZeroHealth;
+        this.recoveryProbability = recoveryProbability;
+        this.randomSeed = randomSeed;
+    }
+
+    public EndOfDayForecastDto forecast(SupplyChainStatusDto status, LocalDateTime now) {
+        LocalDateTime shiftStart = LocalDateTime.of(status.date(), SupplyChainService.SHIFT_START);
+        LocalDateTime shiftEnd = LocalDateTime.of(status.date(), SupplyChainService.SHIFT_END);
+        LocalDateTime from = now.isAfter(shiftStart) ? now : shiftStart;
+        double remainingHours = from.isBefore(shiftEnd) ? Duration.between(from, shiftEnd).toSeconds() / 3600.0 : 0;
+
+        // The registry keeps stages in sequence order
+        List<StageHealthDto> stages = List.copyOf(healthRegistry.snapshot().stages().values());
+        int hours = (int) Math.ceil(remainingHours);
+        // The first step covers the part of the current hour that is left
+        double firstHourFraction = remainingHours - (hours - 1);
+        Fleet fleet = fleet(stages, loadHistory(status.date()), firstHourFraction);
+        double[] initialWip = initialWip(stages, status.stageOutputs());
+
+        // Large fleets run fewer trials so a forecast stays within a fixed amount of simulated work
+        long deviceHoursPerTrial = (long) hours * fleet.operational().length;
+        int trialCount = deviceHoursPerTrial > 0
+                ? (int) Math.max(Math.min(this.trials, MIN_TRIALS), Math.min(this.trials, maxDeviceHours / deviceHoursPerTrial))
+                : this.trials;
+
+        double[] outcomes = new double[trialCount];
+        if (deviceHoursPerTrial > 0) {
+            int chunks = (trialCount + TRIALS_PER_CHUNK - 1) / TRIALS_PER_CHUNK;
+            SplittableRandom root = new SplittableRandom(randomSeed != null ? randomSeed : System.nanoTime());
+            // Split up front, so a fixed seed gives the same forecast however the chunks are scheduled
+            SplittableRandom[] randoms = new SplittableRandom[chunks];
+            for (int i = 0; i < chunks; i++) {
+                randoms[i] = root.split();
+            }
+            IntStream.range(0, chunks).parallel().forEach(chunk -> {
+                int end = Math.min(trialCount, (chunk + 1) * TRIALS_PER_CHUNK);
+                for (int trial = chunk * TRIALS_PER_CHUNK; trial < end; trial++) {
+                    outcomes[trial] = simulate(fleet, initialWip, hours, firstHourFraction, randoms[chunk]);
+                }
+            });
+        }
+
+        int currentOutput = status.currentOutput();
+        long onTrack = 0;
+        double sum = 0;
+        for (int i = 0; i < trialCount; i++) {
+            outcomes[i] = Math.floor(currentOutput + outcomes[i]);
+            sum += outcomes[i];
+            if (outcomes[i] >= status.dailyTarget()) {
+                onTrack++;
+            }
+        }
+        Arrays.sort(outcomes);
+
+        return new EndOfDayForecastDto(
+                status.date(),
+                status.dailyTarget(),
+                currentOutput,
+                status.projectedEndOfDayOutput(),
+                remainingHours,
+                trialCount,
+                percentile(outcomes, 0.10),
+                percentile(outcomes, 0.50),
+                percentile(outcomes, 0.90),
+                trialCount > 0 ? sum / trialCount : currentOutput,
+                trialCount > 0 ? (double) onTrack / trialCount : (currentOutput >= status.dailyTarget() ? 1.0 : 0.0)
+        );
+    }
+
+    // Good units added at the final stage over the remaining hours of one trial
+    private static double simulate(Fleet fleet, double[] initialWip, int hours, double firstHourFraction,
+                                   SplittableRandom random) {
+        int[] stageEnds = fleet.stageEnds();
+        int[] sampleOffsets = fleet.sampleOffsets();
+        int[] sampleCounts = fleet.sampleCounts();
+        int[] samples = fleet.samples();
+        boolean[] operational = fleet.operational().clone();
+        double[] wip = initialWip.clone();
+
+        double finalOutput = 0;
+        for (int hour = 0; hour < hours; hour++) {
+            double fraction = hour == 0 ? firstHourFraction : 1.0;
+            long[] failure = hour == 0 ? fleet.firstHourFailure() : fleet.hourFailure();
+            long recovery = hour == 0 ? fleet.firstHourRecovery() : fleet.hourRecovery();
+            int first = 0;
+            for (int s = 0; s < stageEnds.length; s++) {
+                long units = 0;
+                long defects = 0;
+                for (int d = first; d < stageEnds[s]; d++) {
+                    // One draw per device and hour: the high half decides failure or recovery, the low half picks the sample
+                    long draw = random.nextLong();
+                    long uniform = draw >>> 32;
+                    operational[d] = operational[d] ? uniform >= failure[d] : uniform < recovery;
+                    if (operational[d] && sampleCounts[d] > 0) {
+                        int sample = sampleOffsets[d] + (int) (((draw & 0xFFFFFFFFL) * sampleCounts[d]) >>> 32);
+                        units += samples[2 * sample];
+                        defects += samples[2 * sample + 1];
+                    }
+                }
+                first = stageEnds[s];
+
+                double capacity = units * fraction;
+                double processed = s == 0 ? capacity : Math.min(capacity, wip[s]);
+                double good = units > 0 ? processed * (1 - (double) defects / units) : 0;
+                if (s > 0) {
+                    wip[s] -= processed;
+                }
+                if (s < stageEnds.length - 1) {
+                    wip[s + 1] += good;
+                } else {
+                    finalOutput += good;
+                }
+            }
+        }
+        return finalOutput;
+    }
+
+    private Fleet fleet(List<StageHealthDto> stages, Map<Long, DeviceHistory> history, double firstHourFraction) {
+        int deviceCount = stages.stream().mapToInt(stage -> stage.devices().size()).sum();
+        int sampleCount = 0;
+        for (StageHealthDto stage : stages) {
+            for (DeviceHealthDto device : stage.devices()) {
+                DeviceHistory deviceHistory = history.get(device.id());
+                sampleCount += deviceHistory != null ? deviceHistory.units().length : 0;
+            }
+        }
+
+        int[] stageEnds = new int[stages.size()];
+        int[] sampleOffsets = new int[deviceCount];
+        int[] sampleCounts = new int[deviceCount];
+        int[] samples = new int[2 * sampleCount];
+        boolean[] operational = new boolean[deviceCount];
+        long[] firstHourFailure = new long[deviceCount];
+        long[] hourFailure = new long[deviceCount];
+        int d = 0;
+        int offset = 0;
+        for (int s = 0; s < stages.size(); s++) {
+            for (DeviceHealthDto device : stages.get(s).devices()) {
+                DeviceHistory deviceHistory = history.get(device.id());
+                int count = deviceHistory != null ? deviceHistory.units().length : 0;
+                for (int i = 0; i < count; i++) {
+                    samples[2 * (offset + i)] = deviceHistory.units()[i];
+                    samples[2 * (offset + i) + 1] = deviceHistory.defects()[i];
+                }
+                sampleOffsets[d] = offset;
+                sampleCounts[d] = count;
+                offset += count;
+
+                operational[d] = device.operational();
+                double failureProbability = failureProbabilityAtZeroHealth
+                        * Math.clamp(1 - device.healthScore() / 100, 0.0, 1.0);
+                firstHourFailure[d] = threshold(failureProbability * firstHourFraction);
+                hourFailure[d] = threshold(failureProbability);
+                d++;
+            }
+            stageEnds[s] = d;
+        }
+        return new Fleet(stageEnds, sampleOffsets, sampleCounts, samples, operational, firstHourFailure, hourFailure,
+                threshold(recoveryProbability * firstHourFraction), threshold(recoveryProbability));
+    }
+
+    // A 32-bit uniform draw is below this with the given probability
+    private static long threshold(double probability) {
+        return (long) (Math.clamp(probability, 0.0, 1.0) * 0x1.0p32);
+    }
+
+    // Good units a stage has delivered so far that the next stage has not yet taken in
+    private double[] initialWip(List<StageHealthDto> stages, List<ProductionOutputDto> outputs) {
+        Map<Integer, ProductionOutputDto> byOrder = new HashMap<>();
+        for (ProductionOutputDto output : outputs) {
+            byOrder.put(output.stageOrder(), output);
+        }
+        double[] wip = new double[stages.size()];
+        for (int s = 1; s < stages.size(); s++) {
+            ProductionOutputDto upstream = byOrder.get(stages.get(s - 1).sequenceOrder());
+            ProductionOutputDto stage = byOrder.get(stages.get(s).sequenceOrder());
+            int delivered = upstream != null ? upstream.unitsProduced() - upstream.defectiveUnits() : 0;
+            int taken = stage != null ? stage.unitsProduced() : 0;
+            wip[s] = Math.max(0, delivered - taken);
+        }
+        return wip;
+    }
+
+    private Map<Long, DeviceHistory> loadHistory(LocalDate date) {
+        History cached = history.get();
+        if (cached != null && cached.date().equals(date)) {
+            return cached.devices();
+        }
+
+        Map<Long, List<DeviceHourlyOutput>> hoursByDevice = new HashMap<>();
+        for (DeviceHourlyOutput hour : hourlyRepository.getDeviceHourlyOutput(
+                date.minusDays(lookbackDays).atStartOfDay(), date.atStartOfDay())) {
+            LocalTime time = hour.bucketStart().toLocalTime();
+            if (!time.isBefore(SupplyChainService.SHIFT_START) && time.isBefore(SupplyChainService.SHIFT_END)) {
+                hoursByDevice.computeIfAbsent(hour.deviceId(), k -> new ArrayList<>()).add(hour);
+            }
+        }
+        Map<Long, DeviceHistory> devices = new HashMap<>();
+        hoursByDevice.forEach((deviceId, hours) -> {
+            int[] units = new int[hours.size()];
+            int[] defects = new int[hours.size()];
+            for (int i = 0; i < hours.size(); i++) {
+                units[i] = (int) hours.get(i).unitsProduced();
+                defects[i] = (int) hours.get(i).defectiveUnits();
+            }
+            devices.put(deviceId, new DeviceHistory(units, defects));
+        });
+        history.set(new History(date, devices));
+        return devices;
+    }
+
+    private static int percentile(double[] sorted, double fraction) {
+        return sorted.length > 0 ? (int) sorted[(int) Math.floor(fraction * (sorted.length - 1))] : 0;
+    }
+}
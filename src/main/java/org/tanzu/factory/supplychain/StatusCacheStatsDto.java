@@ -0,0 +1,8 @@
+package org.tanzu.factory.supplychain;
+
+public record StatusCacheStatsDto(
+        int cachedDates,
+        long hits,
+        long misses,
+        long invalidations
+) {}
@@ -27,6 +27,22 @@ public class SupplyChainController {
         return ResponseEntity.ok(supplyChainService.getSupplyChainStatus(date));
     }
 
+    @GetMapping("/forecast")
+    public ResponseEntity<EndOfDayForecastDto> getCurrentForecast() {
+        return ResponseEntity.ok(supplyChainService.getEndOfDayForecast(LocalDate.now()));
+    }
+
+    @GetMapping("/forecast/{date}")
+    public ResponseEntity<EndOfDayForecastDto> getForecastByDate(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(supplyChainService.getEndOfDayForecast(date));
+    }
+
+    @GetMapping("/status-cache")
+    public ResponseEntity<StatusCacheStatsDto> getStatusCacheStats() {
+        return ResponseEntity.ok(supplyChainService.getStatusCacheStats());
+    }
+
     @GetMapping("/targets/{date}")
     public ResponseEntity<DailyTarget> getDailyTarget(
             @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
@@ -1,6 +1,7 @@
 package org.tanzu.factory.supplychain;
 
 import org.springaicommunity.mcp.annotation.McpTool;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.tanzu.factory.factory.FactoryService;
@@ -17,20 +18,30 @@ import java.util.Optional;
 public class SupplyChainService {
     private final DailyTargetRepository targetRepository;
     private final FactoryService factoryService;
+    private final SupplyChainStatusCache statusCache;
+    private final ProductionForecaster forecaster;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Assume 8-hour production day (8am to 4pm)
-    private static final LocalTime SHIFT_START = LocalTime.of(8, 0);
-    private static final LocalTime SHIFT_END = LocalTime.of(16, 0);
+    public static final LocalTime SHIFT_START = LocalTime.of(8, 0);
+    public static final LocalTime SHIFT_END = LocalTime.of(16, 0);
 
     public SupplyChainService(DailyTargetRepository targetRepository,
-                              FactoryService factoryService) {
+                              FactoryService factoryService,
+                              SupplyChainStatusCache statusCache,
+                              ProductionForecaster forecaster,
+                              ApplicationEventPublisher eventPublisher) {
         this.targetRepository = targetRepository;
         this.factoryService = factoryService;
+        this.statusCache = statusCache;
+        this.forecaster = forecaster;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
     public DailyTarget setDailyTarget(LocalDate date, int targetUnits) {
         Optional<DailyTarget> existingTarget = targetRepository.findByDate(date);
+        eventPublisher.publishEvent(new DailyTargetChangedEvent(date));
 
         if (existingTarget.isPresent()) {
             DailyTarget target = existingTarget.get();
@@ -55,35 +66,19 @@ public class SupplyChainService {
 
     @McpTool(description = "Gets detailed supply chain status for a specific date, including production metrics, target completion, and projections based on current production rates")
     public SupplyChainStatusDto getSupplyChainStatus(LocalDate date) {
+        // Target and stage outputs are cached per date; only the projection depends on the clock
+        SupplyChainStatusCache.ShiftTotals totals = statusCache.get(date, this::loadShiftTotals);
         LocalDateTime now = LocalDateTime.now();
 
         LocalDateTime shiftStart = LocalDateTime.of(date, SHIFT_START);
         LocalDateTime shiftEnd = LocalDateTime.of(date, SHIFT_END);
 
-        // Always query the full shift window so pre-seeded simulation data is included
-        LocalDateTime queryEndTime = shiftEnd;
-
         // For today, determine how far into the shift we are (for projections)
         boolean isToday = date.equals(now.toLocalDate());
         boolean shiftInProgress = isToday && now.isAfter(shiftStart) && now.isBefore(shiftEnd);
 
-        // Get the daily target
-        DailyTarget target = getDailyTarget(date);
-
-        // Get production outputs for each stage using the full shift window
-        List<ProductionOutputDto> stageOutputs = factoryService.getAllStagesOutput(shiftStart, queryEndTime);
-
-        // Final stage output is our current total production
-        int finalStageOrder = stageOutputs.stream()
-                .mapToInt(ProductionOutputDto::stageOrder)
-                .max()
-                .orElse(0);
-
-        int currentOutput = stageOutputs.stream()
-                .filter(output -> output.stageOrder() == finalStageOrder)
-                .mapToInt(output -> output.unitsProduced() - output.defectiveUnits())
-                .findFirst()
-                .orElse(0);
+        int currentOutput = totals.currentOutput();
+        int dailyTarget = totals.dailyTarget();
 
         // For projections: if mid-shift, project based on elapsed time; otherwise use actual output
         int projectedOutput;
@@ -97,20 +92,54 @@ public class SupplyChainService {
             projectedOutput = currentOutput;
         }
 
-        double targetCompletion = target.getTargetUnits() > 0
-                ? (double) currentOutput / target.getTargetUnits() * 100
+        double targetCompletion = dailyTarget > 0
+                ? (double) currentOutput / dailyTarget * 100
                 : 100.0;
 
-        boolean onTrack = projectedOutput >= target.getTargetUnits();
+        boolean onTrack = projectedOutput >= dailyTarget;
 
         return new SupplyChainStatusDto(
                 date,
-                target.getTargetUnits(),
+                dailyTarget,
                 currentOutput,
                 projectedOutput,
                 targetCompletion,
                 onTrack,
-                stageOutputs
+                totals.stageOutputs()
         );
     }
-}
\ No newline at end of file
+
+    @McpTool(description = "Forecasts end-of-shift output for a date by simulating thousands of possible remaining-shift trajectories from each device's historical hourly output and defects, device failures and recoveries, and the flow of units between stages, returning the 10th, 50th and 90th percentile of projected output and the probability of meeting the daily target")
+    public EndOfDayForecastDto getEndOfDayForecast(LocalDate date) {
+        return forecaster.forecast(getSupplyChainStatus(date), LocalDateTime.now());
+    }
+
+    public StatusCacheStatsDto getStatusCacheStats() {
+        return statusCache.getStats();
+    }
+
+    private SupplyChainStatusCache.ShiftTotals loadShiftTotals(LocalDate date) {
+        LocalDateTime shiftStart = LocalDateTime.of(date, SHIFT_START);
+        LocalDateTime shiftEnd = LocalDateTime.of(date, SHIFT_END);
+
+        // Get the daily target
+        DailyTarget target = getDailyTarget(date);
+
+        // Always query the full shift window so pre-seeded simulation data is included
+        List<ProductionOutputDto> stageOutputs = factoryService.getAllStagesOutput(shiftStart, shiftEnd);
+
+        // Final stage output is our current total production
+        int finalStageOrder = stageOutputs.stream()
+                .mapToInt(ProductionOutputDto::stageOrder)
+                .max()
+                .orElse(0);
+
+        int currentOutput = stageOutputs.stream()
+                .filter(output -> output.stageOrder() == finalStageOrder)
+                .mapToInt(output -> output.unitsProduced() - output.defectiveUnits())
+                .findFirst()
+                .orElse(0);
+
+        return new SupplyChainStatusCache.ShiftTotals(target.getTargetUnits(), currentOutput, List.copyOf(stageOutputs));
+    }
+}
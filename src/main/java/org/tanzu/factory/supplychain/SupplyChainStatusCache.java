@@ -0,0 +1,101 @@
+package org.tanzu.factory.supplychain;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.tanzu.factory.factory.MetricReading;
+import org.tanzu.factory.factory.ProductionMetricsCompactedEvent;
+import org.tanzu.factory.factory.ProductionMetricsRecordedEvent;
+import org.tanzu.factory.factory.ProductionOutputDto;
+import org.tanzu.factory.factory.StageOutputCache;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches the time-independent part of a day's supply chain status: the target and the stage
+ * outputs for the shift. An entry stays valid until the day's target changes or a reading
+ * lands inside that day's shift window, so past days are effectively cached forever.
+ */
+@Component
+public class SupplyChainStatusCache {
+    // Reloads must see the stage output cache already invalidated
+    public static final int INVALIDATION_ORDER = StageOutputCache.INVALIDATION_ORDER + 1;
+
+    public record ShiftTotals(
+            int dailyTarget,
+            int currentOutput,
+            List<ProductionOutputDto> stageOutputs
+    ) {}
+
+    private final Map<LocalDate, ShiftTotals> entries = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; a load that overlaps one is not cached since it may be stale
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ShiftTotals get(LocalDate date, Function<LocalDate, ShiftTotals> loader) {
+        ShiftTotals cached = entries.get(date);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        long loadGeneration = generation.get();
+        ShiftTotals loaded = loader.apply(date);
+        if (generation.get() == loadGeneration) {
+            entries.put(date, loaded);
+        }
+        return loaded;
+    }
+
+    public void invalidate(LocalDate date) {
+        generation.incrementAndGet();
+        if (entries.remove(date) != null) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    public StatusCacheStatsDto getStats() {
+        return new StatusCacheStatsDto(entries.size(), hits.get(), misses.get(), invalidations.get());
+    }
+
+    @Order(INVALIDATION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDailyTargetChanged(DailyTargetChangedEvent event) {
+        invalidate(event.date());
+    }
+
+    @Order(INVALIDATION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsRecorded(ProductionMetricsRecordedEvent event) {
+        Set<LocalDate> affected = new HashSet<>();
+        for (MetricReading reading : event.readings()) {
+            LocalTime time = reading.timestamp().toLocalTime();
+            // Shift windows are queried inclusively at both ends
+            if (!time.isBefore(SupplyChainService.SHIFT_START) && !time.isAfter(SupplyChainService.SHIFT_END)) {
+                affected.add(reading.timestamp().toLocalDate());
+            }
+        }
+        affected.forEach(this::invalidate);
+    }
+
+    // Compaction only preserves totals for windows aligned to what is retained, which a shift may not be
+    @Order(INVALIDATION_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductionMetricsCompacted(ProductionMetricsCompactedEvent event) {
+        for (LocalDate date = event.from().toLocalDate(); date.atStartOfDay().isBefore(event.to());
+             date = date.plusDays(1)) {
+            invalidate(date);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.tanzu.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.tanzu.factory.factory.IoTDevice;
+import org.tanzu.factory.factory.IoTDeviceRepository;
+import org.tanzu.factory.factory.ManufacturingStageRepository;
+import org.tanzu.factory.factory.MetricReading;
+import org.tanzu.factory.factory.ProductionMetricsWriter;
+import org.tanzu.factory.supplychain.DailyTarget;
+import org.tanzu.factory.supplychain.DailyTargetRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Runs the generator against in-memory stand-ins, so each run starts from an empty plant
+class DataInitializerTests {
+
+	@Test
+	void sameSeedGeneratesTheSamePlant() throws Exception {
+		SeedRun first = seed(42, 2, 15, 1000, 4);
+		SeedRun second = seed(42, 2, 15, 1000, 1);
+
+		assertThat(second.readings()).isEqualTo(first.readings());
+		assertThat(second.devices()).isEqualTo(first.devices());
+		assertThat(second.targets()).isEqualTo(first.targets());
+		assertThat(seed(43, 2, 15, 1000, 4).readings()).isNotEqualTo(first.readings());
+	}
+
+	@Test
+	void readingsAreWrittenInChunksOfTheConfiguredSize() throws Exception {
+		// An eight-hour shift every 15 minutes is 32 readings per device and day
+		SeedRun run = seed(7, 3, 15, 10, 2);
+
+		long devices = run.devices().stream().filter(device -> device.startsWith("true")).count();
+		assertThat(run.readings()).hasSize((int) devices * 3 * 32);
+		// Each device task fills whole chunks and writes one partial chunk with its remainder
+		assertThat(run.chunkSizes()).allMatch(size -> size >= 1 && size <= 10);
+		assertThat(run.chunkSizes().stream().filter(size -> size < 10)).hasSize((int) devices);
+	}
+
+	@Test
+	void zeroDaysSeedsThePlantWithoutHistory() throws Exception {
+		SeedRun run = seed(1, 0, 60, 100, 1);
+
+		assertThat(run.devices()).hasSize(12);
+		assertThat(run.targets()).isEmpty();
+		assertThat(run.readings()).isEmpty();
+	}
+
+	@Test
+	void invalidSeedPropertiesAreRejected() {
+		assertThatThrownBy(() -> initializer(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), 1, -1, 60, 100, 1))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("factory.seed.days");
+		assertThatThrownBy(() -> initializer(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), 1, 2, 0, 100, 1))
+				.hasMessageContaining("factory.seed.interval-minutes");
+		assertThatThrownBy(() -> initializer(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), 1, 2, 60, 0, 1))
+				.hasMessageContaining("factory.seed.chunk-size");
+	}
+
+	private record SeedRun(List<MetricReading> readings, List<Integer> chunkSizes, List<String> devices,
+						   List<String> targets) {}
+
+	private SeedRun seed(long seed, int days, int intervalMinutes, int chunkSize, int parallelism) throws Exception {
+		List<List<MetricReading>> chunks = Collections.synchronizedList(new ArrayList<>());
+		List<IoTDevice> devices = new ArrayList<>();
+		List<DailyTarget> targets = new ArrayList<>();
+		initializer(chunks, devices, targets, seed, days, intervalMinutes, chunkSize, parallelism).run();
+
+		List<MetricReading> readings = new ArrayList<>();
+		chunks.forEach(readings::addAll);
+		readings.sort(Comparator.comparing(MetricReading::deviceId).thenComparing(MetricReading::timestamp));
+		return new SeedRun(readings,
+				chunks.stream().map(List::size).toList(),
+				devices.stream().map(device -> device.isOperational() + " " + device.getHealthScore()).toList(),
+				targets.stream().map(target -> target.getDate() + " " + target.getTargetUnits()).toList());
+	}
+
+	private DataInitializer initializer(List<List<MetricReading>> chunks, List<IoTDevice> devices,
+										List<DailyTarget> targets, long seed, int days, int intervalMinutes,
+										int chunkSize, int parallelism) {
+		ProductionMetricsWriter writer = new ProductionMetricsWriter(null, null, null, 1) {
+			@Override
+			public void write(List<MetricReading> readings) {
+				chunks.add(List.copyOf(readings));
+			}
+		};
+		return new DataInitializer(
+				repository(ManufacturingStageRepository.class, new ArrayList<>()),
+				repository(IoTDeviceRepository.class, devices),
+				repository(DailyTargetRepository.class, targets),
+				writer, new TransactionTemplate(new NoTransactionManager()),
+				3, 4, days, intervalMinutes, chunkSize, parallelism, seed);
+	}
+
+	// An empty repository that keeps what is saved, numbering devices as the database would
+	@SuppressWarnings("unchecked")
+	private static <T> T repository(Class<T> type, List<?> saved) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+				switch (method.getName()) {
+					case "count" -> 0L;
+					case "saveAll" -> {
+						for (Object entity : (Iterable<?>) args[0]) {
+							if (entity instanceof IoTDevice device) {
+								device.setId((long) saved.size() + 1);
+							}
+							((List<Object>) saved).add(entity);
+						}
+						yield args[0];
+					}
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+	}
+
+	private static final class NoTransactionManager implements PlatformTransactionManager {
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			return new SimpleTransactionStatus();
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+		}
+	}
+
+}
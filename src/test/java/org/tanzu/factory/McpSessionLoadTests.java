@@ -0,0 +1,138 @@
+package org.tanzu.factory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Opens many concurrent MCP sessions, each holding its notification stream open while it makes
+ * blocking tool calls, and reports the session count and tool call latency percentiles. Run it
+ * once per thread mode to compare:
+ * <pre>
+ * ./mvnw test -Dtest=McpSessionLoadTests -Dfactory.load-test=true -Dfactory.load-test.virtual-threads=true
+ * ./mvnw test -Dtest=McpSessionLoadTests -Dfactory.load-test=true -Dfactory.load-test.virtual-threads=false
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "factory.load-test", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.threads.virtual.enabled=${factory.load-test.virtual-threads:true}",
+		"logging.level.io.modelcontextprotocol=INFO"
+})
+class McpSessionLoadTests {
+
+	private static final String ACCEPT = "application/json, text/event-stream";
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void concurrentSessions() throws Exception {
+		int sessions = Integer.getInteger("factory.load-test.sessions", 500);
+		int callsPerSession = Integer.getInteger("factory.load-test.calls", 5);
+		URI endpoint = URI.create("http://localhost:" + port + "/mcp");
+
+		ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+		AtomicInteger failedSessions = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(sessions);
+		long started = System.nanoTime();
+
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			HttpClient http = HttpClient.newBuilder()
+					.executor(clients)
+					.connectTimeout(Duration.ofSeconds(10))
+					.build();
+			for (int i = 0; i < sessions; i++) {
+				clients.submit(() -> {
+					try {
+						runSession(http, endpoint, callsPerSession, latencies);
+					} catch (Exception e) {
+						failedSessions.incrementAndGet();
+					} finally {
+						done.countDown();
+					}
+				});
+			}
+			done.await();
+			clients.shutdownNow();
+		}
+
+		long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+		List<Long> sorted = new ArrayList<>(latencies);
+		sorted.sort(null);
+		System.out.printf("virtual threads=%s sessions=%d failed=%d calls=%d elapsed=%d ms p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+				System.getProperty("factory.load-test.virtual-threads", "true"), sessions, failedSessions.get(),
+				sorted.size(), elapsedMillis, percentile(sorted, 0.50), percentile(sorted, 0.99),
+				percentile(sorted, 1.0));
+
+		assertThat(failedSessions.get()).isZero();
+		assertThat(sorted).hasSize(sessions * callsPerSession);
+	}
+
+	private void runSession(HttpClient http, URI endpoint, int calls, ConcurrentLinkedQueue<Long> latencies)
+			throws Exception {
+		HttpResponse<String> initialized = post(http, endpoint, null, """
+				{"jsonrpc":"2.0","id":1,"method":"initialize","params":{"protocolVersion":"2025-03-26",\
+				"capabilities":{},"clientInfo":{"name":"load-test","version":"1.0"}}}""");
+		String sessionId = initialized.headers().firstValue("Mcp-Session-Id").orElseThrow();
+		post(http, endpoint, sessionId, """
+				{"jsonrpc":"2.0","method":"notifications/initialized"}""");
+
+		// Keep the session's notification stream open for the whole run, as an agent would
+		http.sendAsync(HttpRequest.newBuilder(endpoint)
+				.header("Accept", "text/event-stream")
+				.header("Mcp-Session-Id", sessionId)
+				.GET().build(), HttpResponse.BodyHandlers.discarding());
+
+		String today = LocalDate.now().toString();
+		for (int call = 0; call < calls; call++) {
+			long start = System.nanoTime();
+			HttpResponse<String> response = post(http, endpoint, sessionId, """
+					{"jsonrpc":"2.0","id":%d,"method":"tools/call","params":{"name":"getAllStagesOutput",\
+					"arguments":{"startTime":"%sT00:00:00","endTime":"%sT23:59:59"}}}"""
+					.formatted(call + 2, today, today));
+			if (response.statusCode() != 200 || !response.body().contains("\"result\"")) {
+				throw new IllegalStateException("Tool call failed: " + response.statusCode());
+			}
+			latencies.add(System.nanoTime() - start);
+		}
+	}
+
+	private HttpResponse<String> post(HttpClient http, URI endpoint, String sessionId, String body)
+			throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(endpoint)
+				.timeout(Duration.ofSeconds(60))
+				.header("Content-Type", "application/json")
+				.header("Accept", ACCEPT)
+				.POST(HttpRequest.BodyPublishers.ofString(body));
+		if (sessionId != null) {
+			request.header("Mcp-Session-Id", sessionId);
+		}
+		return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private double percentile(List<Long> sorted, double fraction) {
+		if (sorted.isEmpty()) {
+			return 0;
+		}
+		int index = (int) Math.ceil(fraction * sorted.size()) - 1;
+		return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+	}
+
+}
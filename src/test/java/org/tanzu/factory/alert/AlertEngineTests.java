@@ -0,0 +1,162 @@
+package org.tanzu.factory.alert;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.factory.ProductionMetricsReadingDto;
+import org.tanzu.factory.factory.StageHealthDto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+// Idle rolling alerts are resolved by the tests rather than the scheduler
+@SpringBootTest(properties = "factory.alerts.idle-check-ms=3600000")
+class AlertEngineTests {
+
+	@Autowired
+	private AlertService alertService;
+
+	@Autowired
+	private AlertEngine alertEngine;
+
+	@Autowired
+	private AlertController alertController;
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Test
+	void deviceHealthAlertIsRaisedAndResolvedOnUpdate() {
+		DeviceHealthDto device = factoryService.getManufacturingStagesHealth().get(0).devices().get(0);
+
+		factoryService.updateDeviceHealth(device.id(), true, 12.0);
+		assertThat(alertsFor("device-health", device.id())).singleElement()
+				.satisfies(alert -> assertThat(alert.value()).isEqualTo(12.0));
+
+		factoryService.updateDeviceHealth(device.id(), true, 95.0);
+		assertThat(alertsFor("device-health", device.id())).isEmpty();
+
+		factoryService.updateDeviceHealth(device.id(), device.operational(), device.healthScore());
+	}
+
+	@Test
+	void defectRateAlertFollowsTheRollingWindow() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(1);
+		Long deviceId = stage.devices().get(0).id();
+		assertThat(alertService.putAlertRule(new AlertRule("test-defect-rate", AlertRuleType.DEFECT_RATE_ABOVE,
+				stage.stageId(), 20, 10, 0, 10))).isNull();
+		LocalDateTime start = LocalDateTime.of(LocalDate.now().minusDays(3), LocalTime.of(2, 0));
+
+		record(deviceId, start, 100, 30, 5.0);
+		assertThat(alertsFor("test-defect-rate", null)).singleElement()
+				.satisfies(alert -> assertThat(alert.value()).isEqualTo(30.0));
+
+		// Still inside the window: 50 of 200
+		record(deviceId, start.plusMinutes(5), 100, 20, 5.0);
+		assertThat(alertsFor("test-defect-rate", null)).singleElement().satisfies(alert -> {
+			assertThat(alert.value()).isEqualTo(25.0);
+			assertThat(alert.stageId()).isEqualTo(stage.stageId());
+		});
+
+		// The first reading has left the window: 21 of 200
+		record(deviceId, start.plusMinutes(12), 100, 1, 5.0);
+		assertThat(alertsFor("test-defect-rate", null)).isEmpty();
+
+		assertThat(alertService.deleteAlertRule("test-defect-rate")).isTrue();
+	}
+
+	@Test
+	void rollingAlertsAreResolvedOnceTheirWindowGoesQuiet() {
+		List<StageHealthDto> stages = factoryService.getManufacturingStagesHealth();
+		Long stoppedDevice = stages.get(1).devices().get(1).id();
+		Long runningDevice = stages.get(2).devices().get(1).id();
+		alertService.putAlertRule(new AlertRule("test-idle", AlertRuleType.DEFECT_RATE_ABOVE, null, 20, 10, 0, 10));
+
+		// A line that stopped an hour ago, and one still running
+		record(stoppedDevice, LocalDateTime.now().minusHours(1), 100, 50, 5.0);
+		record(runningDevice, LocalDateTime.now(), 100, 50, 5.0);
+		assertThat(alertsFor("test-idle", null)).hasSize(2);
+
+		alertEngine.resolveIdleRollingAlerts();
+		assertThat(alertsFor("test-idle", null)).singleElement()
+				.satisfies(alert -> assertThat(alert.stageId()).isEqualTo(stages.get(2).stageId()));
+
+		alertService.deleteAlertRule("test-idle");
+	}
+
+	@Test
+	void futureDatedReadingsDoNotHideLiveOnes() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(0);
+		Long deviceId = stage.devices().get(0).id();
+		alertService.putAlertRule(new AlertRule("test-future", AlertRuleType.DEFECT_RATE_ABOVE,
+				stage.stageId(), 20, 10, 0, 10));
+		LocalDateTime now = LocalDateTime.now();
+
+		record(deviceId, now.plusDays(1), 100, 0, 5.0);
+		record(deviceId, now, 100, 40, 5.0);
+		assertThat(alertsFor("test-future", null)).singleElement()
+				.satisfies(alert -> assertThat(alert.value()).isEqualTo(40.0));
+
+		alertService.deleteAlertRule("test-future");
+	}
+
+	@Test
+	void cycleTimeDriftComparesRecentReadingsWithTheBaselineBeforeThem() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(2);
+		Long deviceId = stage.devices().get(0).id();
+		alertService.putAlertRule(new AlertRule("test-drift", AlertRuleType.CYCLE_TIME_DRIFT_ABOVE,
+				stage.stageId(), 25, 10, 60, 3));
+		LocalDateTime start = LocalDateTime.of(LocalDate.now().minusDays(4), LocalTime.of(2, 0));
+
+		for (int minute = 0; minute <= 50; minute += 10) {
+			record(deviceId, start.plusMinutes(minute), 10, 0, 5.0);
+		}
+		record(deviceId, start.plusMinutes(61), 10, 0, 8.0);
+		record(deviceId, start.plusMinutes(63), 10, 0, 8.0);
+		assertThat(alertsFor("test-drift", deviceId)).isEmpty();
+
+		record(deviceId, start.plusMinutes(65), 10, 0, 8.0);
+		assertThat(alertsFor("test-drift", deviceId)).singleElement()
+				.satisfies(alert -> assertThat(alert.value()).isCloseTo(60.0, within(1e-9)));
+
+		// Removing the rule resolves what it raised
+		alertService.deleteAlertRule("test-drift");
+		assertThat(alertsFor("test-drift", deviceId)).isEmpty();
+	}
+
+	@Test
+	void invalidRulesAreRejected() {
+		assertThat(alertService.putAlertRule(new AlertRule("bad", AlertRuleType.DEFECT_RATE_ABOVE, null, 5, 0, 0, 0)))
+				.isEqualTo("windowMinutes must be between 1 and 10080");
+		assertThat(alertService.getAlertRules()).noneMatch(rule -> rule.id().equals("bad"));
+
+		ResponseEntity<?> response = alertController.putAlertRule("bad",
+				new AlertRule(null, AlertRuleType.DEFECT_RATE_ABOVE, null, 5, 0, 0, 0));
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+		assertThat(response.getBody()).isInstanceOfSatisfying(ProblemDetail.class,
+				problem -> assertThat(problem.getDetail()).isEqualTo("windowMinutes must be between 1 and 10080"));
+	}
+
+	private void record(Long deviceId, LocalDateTime timestamp, int units, int defects, double cycleTime) {
+		factoryService.recordProductionMetricsBatch(List.of(
+				new ProductionMetricsReadingDto(deviceId, timestamp, units, defects, cycleTime)));
+	}
+
+	private List<AlertDto> alertsFor(String ruleId, Long deviceId) {
+		return alertService.getActiveAlerts().stream()
+				.filter(alert -> alert.ruleId().equals(ruleId))
+				.filter(alert -> deviceId == null || deviceId.equals(alert.deviceId()))
+				.toList();
+	}
+
+}
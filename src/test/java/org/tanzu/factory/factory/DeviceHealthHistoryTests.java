@@ -0,0 +1,84 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+class DeviceHealthHistoryTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private IoTDeviceRepository deviceRepository;
+
+	@Test
+	void bulkUpdatesAreKeptAsHourlyTrends() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(0);
+		Long first = stage.devices().get(0).id();
+		Long second = stage.devices().get(1).id();
+		LocalDateTime hour = LocalDateTime.of(2020, 3, 1, 10, 0);
+		IoTDevice before = deviceRepository.findById(first).orElseThrow();
+		double currentScore = before.getHealthScore();
+
+		BatchIngestResultDto result = factoryService.updateDevicesHealth(List.of(
+				new DeviceHealthUpdateDto(first, hour.plusMinutes(10), true, 80.0),
+				new DeviceHealthUpdateDto(first, hour.plusMinutes(40), false, 60.0),
+				new DeviceHealthUpdateDto(second, hour.plusMinutes(20), true, 90.0),
+				new DeviceHealthUpdateDto(first, hour.plusHours(1).plusMinutes(5), true, 70.0),
+				new DeviceHealthUpdateDto(-1L, hour, true, 50.0),
+				new DeviceHealthUpdateDto(second, hour, true, 150.0),
+				new DeviceHealthUpdateDto(second, LocalDateTime.now().plusYears(4), true, 50.0)));
+
+		assertThat(result.accepted()).isEqualTo(4);
+		assertThat(result.rejections()).extracting(BatchIngestResultDto.RejectedReading::index).containsExactly(4, 5, 6);
+		assertThat(result.rejections().get(2).reason()).isEqualTo("timestamp is too far in the future");
+
+		List<HealthTrendPointDto> deviceTrend = factoryService.getDeviceHealthTrend(
+				first, hour.plusMinutes(30), hour.plusHours(2));
+		assertThat(deviceTrend).hasSize(2);
+		assertThat(deviceTrend.get(0).averageHealthScore()).isCloseTo(70.0, within(1e-9));
+		assertThat(deviceTrend.get(0).minHealthScore()).isEqualTo(60.0);
+		assertThat(deviceTrend.get(0).operationalRatio()).isCloseTo(0.5, within(1e-9));
+		assertThat(deviceTrend.get(1).samples()).isEqualTo(1);
+
+		List<HealthTrendPointDto> stageTrend = factoryService.getStageHealthTrend(
+				stage.stageId(), hour, hour.plusHours(1));
+		assertThat(stageTrend).singleElement().satisfies(point -> {
+			assertThat(point.samples()).isEqualTo(3);
+			assertThat(point.averageHealthScore()).isCloseTo(230.0 / 3, within(1e-9));
+			assertThat(point.maxHealthScore()).isEqualTo(90.0);
+		});
+
+		// Backfilled samples are older than the current state, so they leave it alone
+		assertThat(currentHealth(stage, first).healthScore()).isEqualTo(currentScore);
+		assertThat(deviceRepository.findById(first).orElseThrow().getHealthScore()).isEqualTo(currentScore);
+
+		LocalDateTime now = LocalDateTime.now();
+		factoryService.updateDevicesHealth(List.of(
+				new DeviceHealthUpdateDto(first, now, true, 64.0),
+				new DeviceHealthUpdateDto(first, now.minusMinutes(5), false, 30.0)));
+		assertThat(currentHealth(stage, first).healthScore()).isEqualTo(64.0);
+		assertThat(deviceRepository.findById(first).orElseThrow().getHealthScore()).isEqualTo(64.0);
+
+		factoryService.updateDevicesHealth(List.of(new DeviceHealthUpdateDto(first, now.minusMinutes(1), false, 20.0)));
+		assertThat(currentHealth(stage, first).healthScore()).isEqualTo(64.0);
+
+		factoryService.updateDeviceHealth(first, before.isOperational(), currentScore);
+	}
+
+	private DeviceHealthDto currentHealth(StageHealthDto stage, Long deviceId) {
+		return factoryService.getStageHealth(stage.stageId()).devices().stream()
+				.filter(d -> d.id().equals(deviceId))
+				.findFirst()
+				.orElseThrow();
+	}
+
+}
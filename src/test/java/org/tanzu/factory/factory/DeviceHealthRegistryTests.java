@@ -0,0 +1,102 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class DeviceHealthRegistryTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private DeviceHealthRegistry healthRegistry;
+
+	@Autowired
+	private IoTDeviceRepository deviceRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void stageHealthIsServedWithoutQueries() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		List<StageHealthDto> stages = factoryService.getManufacturingStagesHealth();
+		factoryService.getStageHealth(stages.get(0).stageId());
+
+		assertThat(stages).isNotEmpty();
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	@Test
+	void reloadReadsProjectionsWithoutLoadingEntities() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+
+		DeviceHealthRegistry.Snapshot snapshot = healthRegistry.reload();
+
+		assertThat(snapshot.deviceStages()).isNotEmpty();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(statistics.getEntityLoadCount()).isZero();
+		assertThatThrownBy(() -> snapshot.deviceStages().clear()).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> snapshot.stages().clear()).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	void deviceHealthUpdatesAreWrittenThrough() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(0);
+		DeviceHealthDto device = stage.devices().get(0);
+		long version = healthRegistry.version();
+
+		factoryService.updateDeviceHealth(device.id(), !device.operational(), 42.0);
+
+		StageHealthDto updated = factoryService.getStageHealth(stage.stageId());
+		DeviceHealthDto updatedDevice = updated.devices().stream()
+				.filter(d -> d.id().equals(device.id()))
+				.findFirst()
+				.orElseThrow();
+		assertThat(updatedDevice.healthScore()).isEqualTo(42.0);
+		assertThat(updatedDevice.operational()).isEqualTo(!device.operational());
+		assertThat(updated.operationalDevices())
+				.isEqualTo(stage.operationalDevices() + (device.operational() ? -1 : 1));
+		assertThat(healthRegistry.version()).isGreaterThan(version);
+		assertThat(deviceRepository.findById(device.id()).orElseThrow().getHealthScore()).isEqualTo(42.0);
+	}
+
+	@Test
+	void eventsForOlderSamplesAreIgnored() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(2);
+		DeviceHealthDto device = stage.devices().get(0);
+		LocalDateTime newer = LocalDateTime.now().plusMinutes(1);
+		DeviceHealthChangedEvent latest = new DeviceHealthChangedEvent(device.id(), true, 55.0, newer);
+		DeviceHealthChangedEvent overtaken = new DeviceHealthChangedEvent(device.id(), false, 15.0, newer.minusSeconds(30));
+
+		try {
+			// Committed in this order, but their after-commit events arrive the other way round
+			healthRegistry.onDeviceHealthChanged(latest);
+			healthRegistry.onDeviceHealthChanged(overtaken);
+
+			assertThat(healthRegistry.getStageHealth(stage.stageId()).devices())
+					.filteredOn(d -> d.id().equals(device.id()))
+					.singleElement()
+					.satisfies(d -> assertThat(d.healthScore()).isEqualTo(55.0));
+			assertThat(healthRegistry.isCurrent(latest)).isTrue();
+			assertThat(healthRegistry.isCurrent(overtaken)).isFalse();
+		} finally {
+			healthRegistry.reload();
+		}
+	}
+
+}
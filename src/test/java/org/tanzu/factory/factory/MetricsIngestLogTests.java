@@ -0,0 +1,175 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MetricsIngestLogTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void unflushedTailIsReplayedAfterRestart() throws IOException {
+		LocalDateTime start = LocalDate.now().minusDays(3).atTime(8, 0, 0, 123_456_000);
+		List<MetricReading> readings = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			readings.add(new MetricReading(i + 1, start.plusMinutes(i), 10 + i, i % 3, 4.25 + i));
+		}
+
+		// Segments of four records, so ten readings span three of them
+		MetricsIngestLog ingestLog = openLog();
+		for (MetricReading reading : readings) {
+			ingestLog.reserve();
+			ingestLog.awaitDurable(ingestLog.append(reading));
+		}
+		ingestLog.checkpoint(5);
+		assertThat(segmentCount()).isEqualTo(2);
+
+		// Reopened without close(), as after a crash
+		List<MetricReading> replayed = new ArrayList<>();
+		openLog().replay(3, replayed::addAll);
+
+		assertThat(replayed).containsExactlyElementsOf(readings.subList(5, 10));
+	}
+
+	@Test
+	void writeBehindBufferReplaysLoggedReadingsIntoTheDatabase() {
+		long deviceId = factoryService.getManufacturingStagesHealth().get(0).devices().get(0).id();
+		LocalDateTime timestamp = LocalDate.now().minusDays(3).atTime(14, 30);
+
+		MetricsIngestLog ingestLog = openLog();
+		for (int i = 0; i < 3; i++) {
+			ingestLog.reserve();
+			ingestLog.awaitDurable(ingestLog.append(new MetricReading(deviceId, timestamp, 6, 1, 5.0)));
+		}
+
+		MetricsIngestLog reopened = openLog();
+		MetricsWriteBehindBuffer buffer = new MetricsWriteBehindBuffer(metricsWriter, transactionTemplate, reopened,
+				true, 100, 2, 50, 100, false);
+		buffer.start();
+		buffer.stop();
+
+		assertThat(buffer.getStats().replayed()).isEqualTo(3);
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM production_metrics WHERE device_id = ? AND timestamp = ?",
+				Long.class, deviceId, Timestamp.valueOf(timestamp))).isEqualTo(3);
+
+		// The checkpoint moved past the replayed readings
+		List<MetricReading> replayedAgain = new ArrayList<>();
+		openLog().replay(10, replayedAgain::addAll);
+		assertThat(replayedAgain).isEmpty();
+	}
+
+	@Test
+	void failedReplayIsRetriedBeforeTheCheckpointMoves() throws InterruptedException {
+		long deviceId = factoryService.getManufacturingStagesHealth().get(0).devices().get(0).id();
+		LocalDateTime timestamp = LocalDate.now().minusDays(3).atTime(15, 45);
+		appendAll(openLog(), new MetricReading(deviceId, timestamp, 4, 0, 6.0), 3);
+
+		MetricsWriteBehindBuffer buffer = new MetricsWriteBehindBuffer(failingWriter(1), transactionTemplate,
+				openLog(), true, 100, 10, 20, 100, false);
+		buffer.start();
+		awaitReplayed(buffer, 3);
+		buffer.stop();
+
+		assertThat(buffer.getStats().failed()).isEqualTo(3);
+		assertThat(countAt(deviceId, timestamp)).isEqualTo(3);
+		List<MetricReading> replayedAgain = new ArrayList<>();
+		openLog().replay(10, replayedAgain::addAll);
+		assertThat(replayedAgain).isEmpty();
+	}
+
+	@Test
+	void readingsStayInTheLogWhenTheBufferStopsWhileFlushesFail() {
+		long deviceId = factoryService.getManufacturingStagesHealth().get(0).devices().get(0).id();
+		LocalDateTime timestamp = LocalDate.now().minusDays(3).atTime(16, 15);
+
+		MetricsWriteBehindBuffer buffer = new MetricsWriteBehindBuffer(failingWriter(Integer.MAX_VALUE),
+				transactionTemplate, openLog(), true, 100, 10, 20, 100, false);
+		buffer.start();
+		for (int i = 0; i < 3; i++) {
+			buffer.submit(new MetricReading(deviceId, timestamp, 5, 0, 6.0));
+		}
+		buffer.stop();
+
+		assertThat(countAt(deviceId, timestamp)).isZero();
+		List<MetricReading> replayed = new ArrayList<>();
+		openLog().replay(10, replayed::addAll);
+		assertThat(replayed).hasSize(3);
+	}
+
+	// Fails the first `failures` writes, then delegates to the real writer
+	private ProductionMetricsWriter failingWriter(int failures) {
+		AtomicInteger remaining = new AtomicInteger(failures);
+		return new ProductionMetricsWriter(null, null, null, 1) {
+			@Override
+			public void write(List<MetricReading> readings) {
+				if (remaining.getAndDecrement() > 0) {
+					throw new IllegalStateException("Simulated database failure");
+				}
+				metricsWriter.write(readings);
+			}
+		};
+	}
+
+	private void appendAll(MetricsIngestLog ingestLog, MetricReading reading, int count) {
+		for (int i = 0; i < count; i++) {
+			ingestLog.reserve();
+			ingestLog.awaitDurable(ingestLog.append(reading));
+		}
+	}
+
+	private void awaitReplayed(MetricsWriteBehindBuffer buffer, long expected) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (buffer.getStats().replayed() < expected && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private long countAt(long deviceId, LocalDateTime timestamp) {
+		return jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM production_metrics WHERE device_id = ? AND timestamp = ?",
+				Long.class, deviceId, Timestamp.valueOf(timestamp));
+	}
+
+	private MetricsIngestLog openLog() {
+		return new MetricsIngestLog(true, true, directory, 4 * MetricsIngestLog.RECORD_BYTES, true);
+	}
+
+	private long segmentCount() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(".log")).count();
+		}
+	}
+
+}
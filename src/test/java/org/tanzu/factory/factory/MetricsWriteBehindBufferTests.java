@@ -0,0 +1,143 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.annotation.ResponseStatusExceptionResolver;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class MetricsWriteBehindBufferTests {
+
+	@Autowired
+	private FactoryController factoryController;
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void fullQueueRejectsReadingsWithServiceUnavailable() throws Exception {
+		long deviceId = deviceId();
+		LocalDateTime timestamp = LocalDate.now().minusDays(4).atTime(9, 10);
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ProductionMetricsWriter blockingWriter = new ProductionMetricsWriter(null, null, null, 1) {
+			@Override
+			public void write(List<MetricReading> readings) {
+				writing.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				metricsWriter.write(readings);
+			}
+		};
+		MetricsWriteBehindBuffer buffer = buffer(blockingWriter, 2, 1, 50);
+		buffer.start();
+
+		// The flusher holds the first reading in a stalled write while two more fill the queue
+		MetricReading reading = new MetricReading(deviceId, timestamp, 3, 0, 5.0);
+		buffer.submit(reading);
+		assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+		buffer.submit(reading);
+		buffer.submit(reading);
+
+		IngestBufferFullException rejection = null;
+		try {
+			buffer.submit(reading);
+		} catch (IngestBufferFullException e) {
+			rejection = e;
+		}
+		assertThat(rejection).isNotNull();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		new ResponseStatusExceptionResolver().resolveException(new MockHttpServletRequest(), response, null, rejection);
+		assertThat(response.getStatus()).isEqualTo(503);
+
+		WriteBehindStatsDto stats = buffer.getStats();
+		assertThat(stats.queueDepth()).isEqualTo(2);
+		assertThat(stats.accepted()).isEqualTo(3);
+		assertThat(stats.rejected()).isEqualTo(1);
+
+		release.countDown();
+		buffer.stop();
+		assertThat(countAt(deviceId, timestamp)).isEqualTo(3);
+	}
+
+	@Test
+	void stopDrainsQueuedReadingsBeforeReturning() {
+		long deviceId = deviceId();
+		LocalDateTime timestamp = LocalDate.now().minusDays(4).atTime(9, 40);
+		// Batches larger than the backlog, so only the interval or the shutdown flushes them
+		MetricsWriteBehindBuffer buffer = buffer(metricsWriter, 100, 50, 200);
+		buffer.start();
+		for (int i = 0; i < 5; i++) {
+			buffer.submit(new MetricReading(deviceId, timestamp, 2, 0, 5.0));
+		}
+		buffer.stop();
+
+		assertThat(countAt(deviceId, timestamp)).isEqualTo(5);
+		WriteBehindStatsDto stats = buffer.getStats();
+		assertThat(stats.queueDepth()).isZero();
+		assertThat(stats.accepted()).isEqualTo(5);
+		assertThat(stats.flushed()).isEqualTo(5);
+		assertThat(stats.failed()).isZero();
+		assertThatThrownBy(() -> buffer.submit(new MetricReading(deviceId, timestamp, 2, 0, 5.0)))
+				.isInstanceOf(IngestBufferFullException.class);
+	}
+
+	@Test
+	void statsEndpointReportsTheConfiguredBuffer() {
+		WriteBehindStatsDto stats = factoryController.getWriteBehindStats().getBody();
+
+		assertThat(stats).isEqualTo(factoryService.getWriteBehindStats());
+		assertThat(stats.enabled()).isFalse();
+		assertThat(stats.capacity()).isEqualTo(10000);
+		assertThat(stats.queueDepth()).isZero();
+	}
+
+	private MetricsWriteBehindBuffer buffer(ProductionMetricsWriter writer, int capacity, int flushSize,
+											long flushIntervalMillis) {
+		MetricsIngestLog disabledLog = new MetricsIngestLog(true, false, directory, MetricsIngestLog.RECORD_BYTES, true);
+		return new MetricsWriteBehindBuffer(writer, transactionTemplate, disabledLog, true, capacity, flushSize,
+				flushIntervalMillis, 10, false);
+	}
+
+	private long deviceId() {
+		return factoryService.getManufacturingStagesHealth().get(0).devices().get(0).id();
+	}
+
+	private long countAt(long deviceId, LocalDateTime timestamp) {
+		return jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM production_metrics WHERE device_id = ? AND timestamp = ?",
+				Long.class, deviceId, Timestamp.valueOf(timestamp));
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.tanzu.factory.instrumentation.OperationStatsDto;
+import org.tanzu.factory.instrumentation.OperationStatsRegistry;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class PipelineAnalysisTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private OperationStatsRegistry statsRegistry;
+
+	@Autowired
+	private ProductionMetricsCompactor compactor;
+
+	@Test
+	void wipPilesUpInFrontOfTheBottleneck() {
+		List<StageHealthDto> stages = factoryService.getManufacturingStagesHealth();
+		LocalDateTime start = LocalDateTime.of(LocalDate.now().minusDays(6), LocalTime.of(1, 0));
+		// Per hour: the first stage delivers 95 good units and the second takes in 60; the second delivers 58 and the third takes in 50
+		int[] units = {100, 60, 50};
+		int[] defects = {5, 2, 1};
+		List<ProductionMetricsReadingDto> readings = new ArrayList<>();
+		for (int hour = 0; hour < 2; hour++) {
+			for (int s = 0; s < 3; s++) {
+				readings.add(new ProductionMetricsReadingDto(stages.get(s).devices().get(0).id(),
+						start.plusHours(hour).plusMinutes(30), units[s], defects[s], 5.0));
+			}
+		}
+		factoryService.recordProductionMetricsBatch(readings);
+		statsRegistry.reset();
+
+		PipelineAnalysisDto analysis = factoryService.getPipelineAnalysis(start.plusMinutes(10), start.plusHours(2));
+
+		assertThat(analysis.hours()).isEqualTo(2.0);
+		assertThat(analysis.bottleneckStageOrder()).isEqualTo(stages.get(1).sequenceOrder());
+		StagePipelineDto first = analysis.stages().get(0);
+		assertThat(first.unitsProduced()).isEqualTo(200);
+		assertThat(first.goodUnits()).isEqualTo(190);
+		assertThat(first.goodUnitsPerHour()).isEqualTo(95.0);
+		assertThat(analysis.stages()).extracting(StagePipelineDto::bottleneck).containsExactly(false, true, false);
+		assertThat(analysis.buffers()).extracting(WipBufferDto::netAccumulation).containsExactly(70L, 16L);
+		assertThat(analysis.buffers()).extracting(WipBufferDto::peakAccumulation).containsExactly(70L, 16L);
+
+		OperationStatsDto stats = statsRegistry.snapshot().stream()
+				.filter(operation -> operation.operation().equals("FactoryService.getPipelineAnalysis"))
+				.findFirst()
+				.orElseThrow();
+		assertThat(stats.maxStatements()).isEqualTo(1);
+	}
+
+	@Test
+	void rangesInTheCompactedTierCoverWholeDays() {
+		List<StageHealthDto> stages = factoryService.getManufacturingStagesHealth();
+		LocalDateTime day = LocalDate.now().minusDays(420).atStartOfDay();
+		List<ProductionMetricsReadingDto> readings = new ArrayList<>();
+		for (int s = 0; s < 3; s++) {
+			long deviceId = stages.get(s).devices().get(0).id();
+			readings.add(new ProductionMetricsReadingDto(deviceId, day.plusHours(3), 40 - 10 * s, 0, 5.0));
+			readings.add(new ProductionMetricsReadingDto(deviceId, day.plusHours(11), 40 - 10 * s, 0, 5.0));
+		}
+		factoryService.recordProductionMetricsBatch(readings);
+		compactor.compact(LocalDateTime.now());
+
+		// Neither a window inside the daily bucket nor one at its start sees a fraction of the day
+		for (LocalDateTime start : List.of(day.plusHours(10), day)) {
+			PipelineAnalysisDto analysis = factoryService.getPipelineAnalysis(start, start.plusHours(2));
+
+			assertThat(analysis.startTime()).isEqualTo(day);
+			assertThat(analysis.endTime()).isEqualTo(day.plusDays(1));
+			assertThat(analysis.hours()).isEqualTo(24.0);
+			assertThat(analysis.stages()).extracting(StagePipelineDto::unitsProduced).containsExactly(80L, 60L, 40L);
+			assertThat(analysis.stages().get(0).goodUnitsPerHour()).isEqualTo(80 / 24.0);
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductionMetricsCompactorTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Autowired
+	private ProductionMetricsCompactor compactor;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void compactionPreservesTotalsForAlignedWindows() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(0);
+		long deviceId = stage.devices().get(0).id();
+		LocalDateTime now = LocalDate.now().atTime(12, 0);
+
+		// Past raw retention: only whole hours survive
+		LocalDateTime rawExpired = now.toLocalDate().minusDays(40).atTime(10, 0);
+		// Past hourly retention: only whole days survive
+		LocalDateTime hourlyExpired = now.toLocalDate().minusDays(400).atStartOfDay();
+		metricsWriter.write(List.of(
+				new MetricReading(deviceId, rawExpired.plusMinutes(10), 7, 1, 5.0),
+				new MetricReading(deviceId, rawExpired.plusMinutes(40), 5, 0, 6.0),
+				new MetricReading(deviceId, hourlyExpired.plusHours(9).plusMinutes(15), 11, 2, 4.0),
+				new MetricReading(deviceId, hourlyExpired.plusHours(14).plusMinutes(45), 13, 1, 4.5),
+				new MetricReading(deviceId, hourlyExpired.plusHours(23).plusMinutes(5), 3, 0, 7.0)));
+
+		ProductionOutputDto hourBefore = factoryService.getStageOutput(stage.sequenceOrder(),
+				rawExpired, rawExpired.plusHours(1));
+		ProductionOutputDto dayBefore = factoryService.getStageOutput(stage.sequenceOrder(),
+				hourlyExpired, hourlyExpired.plusDays(1));
+
+		CompactionResultDto result = compactor.compact(now);
+
+		assertThat(result.complete()).isTrue();
+		assertThat(result.rawRowsDeleted()).isGreaterThanOrEqualTo(5);
+		assertThat(result.daysDownsampled()).isGreaterThanOrEqualTo(1);
+		assertThat(rawReadingsBefore(result.rawCutoff())).isZero();
+		assertThat(factoryService.getStageOutput(stage.sequenceOrder(), rawExpired, rawExpired.plusHours(1)))
+				.isEqualTo(hourBefore);
+		assertThat(factoryService.getStageOutput(stage.sequenceOrder(), hourlyExpired, hourlyExpired.plusDays(1)))
+				.isEqualTo(dayBefore);
+		assertThat(dayBefore.unitsProduced()).isGreaterThanOrEqualTo(27);
+
+		// A late reading for a downsampled day is folded into that day's bucket by the next run
+		metricsWriter.write(List.of(new MetricReading(deviceId, hourlyExpired.plusHours(6), 4, 1, 5.0)));
+		compactor.compact(now);
+		ProductionOutputDto dayAfterLateReading = factoryService.getStageOutput(stage.sequenceOrder(),
+				hourlyExpired, hourlyExpired.plusDays(1));
+		assertThat(dayAfterLateReading.unitsProduced()).isEqualTo(dayBefore.unitsProduced() + 4);
+		assertThat(dayAfterLateReading.defectiveUnits()).isEqualTo(dayBefore.defectiveUnits() + 1);
+		assertThat(compactor.compact(now).chunks()).isZero();
+	}
+
+	private long rawReadingsBefore(LocalDateTime cutoff) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM production_metrics WHERE timestamp < ?",
+				Long.class, Timestamp.valueOf(cutoff));
+	}
+
+}
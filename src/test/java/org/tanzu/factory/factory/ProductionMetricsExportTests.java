@@ -0,0 +1,99 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductionMetricsExportTests {
+
+	@Autowired
+	private FactoryController factoryController;
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void exportsFilteredReadingsInTimestampOrder() throws Exception {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(2);
+		long first = stage.devices().get(0).id();
+		long second = stage.devices().get(1).id();
+		LocalDateTime start = LocalDateTime.of(2021, 5, 4, 10, 0);
+		metricsWriter.write(List.of(
+				new MetricReading(first, start.plusMinutes(30), 12, 1, 4.5),
+				new MetricReading(second, start.plusMinutes(10), 9, 0, 5.25),
+				new MetricReading(first, start.plusMinutes(50), 7, 2, 6.0),
+				new MetricReading(first, start.plusHours(2), 3, 0, 4.0)));
+
+		List<String> ndjson = export(first, null, start, start.plusHours(1), "ndjson");
+		assertThat(ndjson).containsExactly(
+				"{\"timestamp\":\"2021-05-04T10:30:00\",\"stageOrder\":" + stage.sequenceOrder() + ",\"deviceId\":" + first +
+						",\"unitsProduced\":12,\"defectiveUnits\":1,\"cycleTimeMinutes\":4.5}",
+				"{\"timestamp\":\"2021-05-04T10:50:00\",\"stageOrder\":" + stage.sequenceOrder() + ",\"deviceId\":" + first +
+						",\"unitsProduced\":7,\"defectiveUnits\":2,\"cycleTimeMinutes\":6.0}");
+
+		List<String> csv = export(null, stage.sequenceOrder(), start, start.plusHours(1), "csv");
+		assertThat(csv).containsExactly(
+				"timestamp,stageOrder,deviceId,unitsProduced,defectiveUnits,cycleTimeMinutes",
+				"2021-05-04T10:10:00," + stage.sequenceOrder() + "," + second + ",9,0,5.25",
+				"2021-05-04T10:30:00," + stage.sequenceOrder() + "," + first + ",12,1,4.5",
+				"2021-05-04T10:50:00," + stage.sequenceOrder() + "," + first + ",7,2,6.0");
+
+		assertThat(factoryController.exportProductionMetrics(null, null, start, start, "xml")
+				.getStatusCode().is4xxClientError()).isTrue();
+	}
+
+	@Test
+	void pagesResumeAfterTheLastRowEvenWithinOneTimestamp() throws Exception {
+		long deviceId = factoryService.getManufacturingStagesHealth().get(1).devices().get(0).id();
+		LocalDateTime start = LocalDateTime.of(2021, 6, 8, 9, 0);
+		// Five readings share a timestamp, so pages of two split them
+		List<MetricReading> readings = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			readings.add(new MetricReading(deviceId, start, i + 1, 0, 5.0));
+		}
+		readings.add(new MetricReading(deviceId, start.plusMinutes(1), 6, 0, 5.0));
+		metricsWriter.write(readings);
+
+		ProductionMetricsExporter exporter = new ProductionMetricsExporter(dataSource, transactionManager, 2, 256);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long rows = exporter.export(deviceId, null, start, start.plusMinutes(1), MetricsExportFormat.CSV, out);
+
+		assertThat(rows).isEqualTo(6);
+		assertThat(out.toString(StandardCharsets.UTF_8).lines().skip(1)
+				.map(line -> line.split(",")[3]))
+				.containsExactly("1", "2", "3", "4", "5", "6");
+
+	}
+
+	private List<String> export(Long deviceId, Integer stageOrder, LocalDateTime start, LocalDateTime end,
+								String format) throws Exception {
+		ResponseEntity<StreamingResponseBody> response =
+				factoryController.exportProductionMetrics(deviceId, stageOrder, start, end, format);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		response.getBody().writeTo(out);
+		return out.toString(StandardCharsets.UTF_8).lines().toList();
+	}
+
+}
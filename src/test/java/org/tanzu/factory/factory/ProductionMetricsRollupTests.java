@@ -0,0 +1,121 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductionMetricsRollupTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Autowired
+	private ProductionMetricsRollup rollup;
+
+	@Autowired
+	private ProductionMetricsRepository metricsRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void lateAndOutOfOrderReadingsLandInTheirHourBucket() {
+		long deviceId = factoryService.getManufacturingStagesHealth().get(1).devices().get(0).id();
+		// Outside the output index horizon, inside raw retention
+		LocalDateTime hour = LocalDate.now().minusDays(12).atTime(7, 0);
+
+		// One batch in reverse time order across three hours
+		metricsWriter.write(List.of(
+				new MetricReading(deviceId, hour.plusHours(2).plusMinutes(59).plusSeconds(59), 5, 1, 4.0),
+				new MetricReading(deviceId, hour.plusHours(1).plusMinutes(30), 7, 0, 6.0),
+				new MetricReading(deviceId, hour.plusHours(1), 3, 1, 5.0),
+				new MetricReading(deviceId, hour.plusMinutes(59), 2, 0, 3.0)));
+		// A late reading for the first hour, after later hours were written
+		metricsWriter.write(List.of(new MetricReading(deviceId, hour.plusMinutes(5), 4, 2, 7.0)));
+
+		assertThat(bucket(deviceId, hour)).containsExactly(6L, 2L, 2L);
+		assertThat(bucket(deviceId, hour.plusHours(1))).containsExactly(10L, 1L, 2L);
+		assertThat(bucket(deviceId, hour.plusHours(2))).containsExactly(5L, 1L, 1L);
+		assertThat(bucket(deviceId, hour.plusHours(3))).isNull();
+	}
+
+	@Test
+	void rebuildRecomputesBucketsFromRawReadings() {
+		long deviceId = factoryService.getManufacturingStagesHealth().get(2).devices().get(0).id();
+		LocalDateTime hour = LocalDate.now().minusDays(13).atTime(15, 0);
+		metricsWriter.write(List.of(
+				new MetricReading(deviceId, hour.plusMinutes(10), 8, 1, 5.0),
+				new MetricReading(deviceId, hour.plusMinutes(50), 6, 0, 5.5)));
+		Map<String, Object> before = rollupTotals();
+
+		// A bucket drifted from its raw readings, and one lost its row entirely
+		jdbcTemplate.update("UPDATE production_metrics_hourly SET units_produced = 0 WHERE device_id = ? AND bucket_start = ?",
+				deviceId, Timestamp.valueOf(hour));
+		jdbcTemplate.update("DELETE FROM production_metrics_hourly WHERE bucket_start = ?",
+				Timestamp.valueOf(LocalDate.now().minusDays(1).atTime(12, 0)));
+
+		rollup.rebuild();
+
+		assertThat(bucket(deviceId, hour)).containsExactly(14L, 1L, 2L);
+		assertThat(rollupTotals()).isEqualTo(before);
+	}
+
+	@Test
+	void partialHourEdgesMatchTheRawQuery() {
+		List<StageHealthDto> stages = factoryService.getManufacturingStagesHealth();
+		LocalDateTime day = LocalDate.now().minusDays(14).atStartOfDay();
+		SplittableRandom random = new SplittableRandom(23);
+		for (int i = 0; i < 200; i++) {
+			StageHealthDto stage = stages.get(random.nextInt(stages.size()));
+			metricsWriter.write(List.of(new MetricReading(stage.devices().get(0).id(),
+					day.plusSeconds(random.nextInt(86_400)), random.nextInt(1, 20), random.nextInt(3), 5.0)));
+		}
+
+		// Second-precision edges, some inside a single hour, some on bucket boundaries
+		for (int i = 0; i < 50; i++) {
+			LocalDateTime start = day.plusSeconds(random.nextInt(86_400));
+			LocalDateTime end = start.plusSeconds(random.nextInt(i % 5 == 0 ? 3_600 : 40_000));
+			if (i % 7 == 0) {
+				start = start.withMinute(0).withSecond(0);
+			}
+			List<StageOutputTotals> raw = metricsRepository.getOutputTotalsByStage(start, end, start, start);
+			for (StageOutputTotals expected : raw) {
+				ProductionOutputDto output = factoryService.getStageOutput(expected.stageOrder(), start, end);
+				assertThat(output.unitsProduced()).as("units from %s to %s", start, end)
+						.isEqualTo(expected.unitsProduced());
+				assertThat(output.defectiveUnits()).isEqualTo(expected.defectiveUnits());
+			}
+		}
+	}
+
+	// Units, defects and readings in one device's bucket, or null if there is none
+	private List<Long> bucket(long deviceId, LocalDateTime bucketStart) {
+		List<List<Long>> rows = jdbcTemplate.query(
+				"SELECT units_produced, defective_units, cycle_time_count FROM production_metrics_hourly " +
+						"WHERE device_id = ? AND bucket_start = ?",
+				(rs, rowNum) -> List.of(rs.getLong(1), rs.getLong(2), rs.getLong(3)),
+				deviceId, Timestamp.valueOf(bucketStart));
+		return rows.isEmpty() ? null : rows.get(0);
+	}
+
+	private Map<String, Object> rollupTotals() {
+		return jdbcTemplate.queryForMap("SELECT COUNT(*) AS buckets, SUM(units_produced) AS units, " +
+				"SUM(defective_units) AS defects, SUM(cycle_time_count) AS readings FROM production_metrics_hourly " +
+				"WHERE bucket_start >= ?", Timestamp.valueOf(LocalDate.now().minusDays(29).atStartOfDay()));
+	}
+
+}
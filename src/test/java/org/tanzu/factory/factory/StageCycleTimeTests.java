@@ -0,0 +1,70 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@SpringBootTest
+class StageCycleTimeTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Test
+	void percentilesAreWithinOnePercentAndSurviveRebuild() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(1);
+		long first = stage.devices().get(0).id();
+		long second = stage.devices().get(1).id();
+		LocalDateTime start = LocalDate.now().plusDays(3).atTime(9, 0);
+
+		SplittableRandom random = new SplittableRandom(7);
+		List<MetricReading> readings = new ArrayList<>();
+		List<Double> cycleTimes = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			double cycleTime = Math.exp(1.5 + 0.6 * random.nextDouble(-2, 2));
+			readings.add(new MetricReading(i % 2 == 0 ? first : second,
+					start.plusSeconds(random.nextLong(3 * 3600)), 1, 0, cycleTime));
+			cycleTimes.add(cycleTime);
+		}
+		metricsWriter.write(readings);
+		cycleTimes.sort(null);
+
+		StageCycleTimeDto result = factoryService.getStageCycleTime(stage.sequenceOrder(), start, start.plusHours(3));
+		CycleTimeStatsDto stats = result.cycleTime();
+
+		assertThat(stats.samples()).isEqualTo(2000);
+		assertThat(stats.minMinutes()).isEqualTo(cycleTimes.get(0));
+		assertThat(stats.maxMinutes()).isEqualTo(cycleTimes.get(1999));
+		assertThat(stats.meanMinutes())
+				.isCloseTo(cycleTimes.stream().mapToDouble(Double::doubleValue).average().orElseThrow(), within(1e-9));
+		assertThat(stats.p50Minutes()).isCloseTo(exact(cycleTimes, 0.50), within(exact(cycleTimes, 0.50) * 0.01));
+		assertThat(stats.p90Minutes()).isCloseTo(exact(cycleTimes, 0.90), within(exact(cycleTimes, 0.90) * 0.01));
+		assertThat(stats.p99Minutes()).isCloseTo(exact(cycleTimes, 0.99), within(exact(cycleTimes, 0.99) * 0.01));
+		assertThat(result.devices()).extracting(DeviceCycleTimeDto::deviceId).containsExactly(first, second);
+		assertThat(result.devices()).allSatisfy(device -> assertThat(device.cycleTime().samples()).isEqualTo(1000));
+
+		factoryService.rebuildProductionRollup();
+
+		assertThat(factoryService.getStageCycleTime(stage.sequenceOrder(), start, start.plusHours(3)))
+				.usingRecursiveComparison()
+				.withEqualsForType((a, b) -> Math.abs(a - b) < 1e-9, Double.class)
+				.isEqualTo(result);
+	}
+
+	private double exact(List<Double> sorted, double fraction) {
+		return sorted.get((int) Math.floor(fraction * (sorted.size() - 1)));
+	}
+
+}
@@ -0,0 +1,135 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class StageOutputCacheTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Autowired
+	private StageOutputCache outputCache;
+
+	@Autowired
+	private DeviceHealthRegistry healthRegistry;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void lateReadingsInvalidateOnlyTheWindowsContainingThem() {
+		List<StageHealthDto> stages = factoryService.getManufacturingStagesHealth();
+		StageHealthDto first = stages.get(0);
+		StageHealthDto second = stages.get(1);
+		LocalDateTime start = LocalDateTime.of(2022, 2, 3, 8, 0);
+		LocalDateTime end = start.plusHours(8);
+		metricsWriter.write(List.of(new MetricReading(first.devices().get(0).id(), start.plusHours(1), 10, 1, 5.0)));
+
+		assertThat(factoryService.getStageOutput(first.sequenceOrder(), start, end).unitsProduced()).isEqualTo(10);
+		factoryService.getStageOutput(second.sequenceOrder(), start, end);
+		factoryService.getAllStagesOutput(start, end);
+		OutputCacheStatsDto before = outputCache.getStats();
+		assertThat(factoryService.getStageOutput(first.sequenceOrder(), start, end).unitsProduced()).isEqualTo(10);
+		assertThat(outputCache.getStats().hits()).isEqualTo(before.hits() + 1);
+
+		// A late reading for the second stage leaves the first stage's entry alone
+		metricsWriter.write(List.of(new MetricReading(second.devices().get(0).id(), start.plusHours(2), 4, 0, 5.0)));
+		OutputCacheStatsDto afterLate = outputCache.getStats();
+		assertThat(afterLate.invalidations()).isEqualTo(before.invalidations() + 2);
+		assertThat(factoryService.getStageOutput(first.sequenceOrder(), start, end).unitsProduced()).isEqualTo(10);
+		assertThat(factoryService.getStageOutput(second.sequenceOrder(), start, end).unitsProduced()).isEqualTo(4);
+		assertThat(factoryService.getAllStagesOutput(start, end))
+				.extracting(ProductionOutputDto::unitsProduced).contains(10, 4);
+		assertThat(outputCache.getStats().misses()).isEqualTo(afterLate.misses() + 2);
+
+		// Windows that have not closed yet are not cached
+		long bypasses = outputCache.getStats().bypasses();
+		factoryService.getStageOutput(first.sequenceOrder(), LocalDate.now().atStartOfDay(), LocalDateTime.now().plusHours(1));
+		assertThat(outputCache.getStats().bypasses()).isEqualTo(bypasses + 1);
+	}
+
+	@Test
+	void liveReadingsAfterEveryCachedWindowSkipTheScan() {
+		StageOutputCache cache = new StageOutputCache(healthRegistry, true, 15, 0, 1_000_000);
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(0);
+		long deviceId = stage.devices().get(0).id();
+		LocalDateTime start = LocalDateTime.of(2022, 3, 1, 8, 0);
+		cache.getStageOutput(stage.sequenceOrder(), start, start.plusHours(8),
+				() -> new ProductionOutputDto(stage.sequenceOrder(), stage.stageName(), 1, 0, 100.0, start, start.plusHours(8)));
+
+		cache.onProductionMetricsRecorded(new ProductionMetricsRecordedEvent(
+				List.of(new MetricReading(deviceId, LocalDateTime.now(), 5, 0, 5.0))));
+		assertThat(cache.getStats().invalidations()).isZero();
+		assertThat(cache.getStats().cachedWindows()).isEqualTo(1);
+
+		cache.onProductionMetricsRecorded(new ProductionMetricsRecordedEvent(
+				List.of(new MetricReading(deviceId, start.plusHours(3), 5, 0, 5.0))));
+		assertThat(cache.getStats().invalidations()).isEqualTo(1);
+		assertThat(cache.getStats().cachedWindows()).isZero();
+	}
+
+	@Test
+	void requestsBetweenInvalidationAndIndexingDoNotCacheStaleOutput() {
+		StageHealthDto stage = factoryService.getManufacturingStagesHealth().get(0);
+		LocalDateTime start = LocalDate.now().minusDays(1).atTime(8, 0);
+		LocalDateTime end = start.plusHours(8);
+		int before = factoryService.getStageOutput(stage.sequenceOrder(), start, end).unitsProduced();
+
+		// Commits the reading and runs the after-commit callbacks in order, with a concurrent
+		// request for the window after each one that is not the index's own
+		transactionTemplate.executeWithoutResult(status -> {
+			metricsWriter.write(List.of(new MetricReading(stage.devices().get(0).id(), start.plusHours(2), 7, 0, 5.0)));
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+			TransactionSynchronizationManager.clearSynchronization();
+			TransactionSynchronizationManager.initSynchronization();
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int completion) {
+					for (TransactionSynchronization synchronization : synchronizations) {
+						synchronization.afterCompletion(completion);
+						if (synchronization.getClass().getEnclosingClass() != StageOutputIndex.class) {
+							CompletableFuture.runAsync(() -> factoryService.getStageOutput(stage.sequenceOrder(), start, end)).join();
+						}
+					}
+				}
+			});
+		});
+
+		assertThat(factoryService.getStageOutput(stage.sequenceOrder(), start, end).unitsProduced()).isEqualTo(before + 7);
+	}
+
+	@Test
+	void leastRecentlyUsedEntriesAreEvictedOverBudget() {
+		StageOutputCache cache = new StageOutputCache(healthRegistry, true, 15, 0, 1000);
+		LocalDateTime start = LocalDateTime.of(2022, 1, 1, 8, 0);
+		for (int day = 0; day < 10; day++) {
+			LocalDateTime windowStart = start.plusDays(day);
+			cache.getStageOutput(1, windowStart, windowStart.plusHours(8),
+					() -> new ProductionOutputDto(1, "Assembly", 1, 0, 100.0, windowStart, windowStart.plusHours(8)));
+		}
+
+		OutputCacheStatsDto stats = cache.getStats();
+		assertThat(stats.estimatedBytes()).isLessThanOrEqualTo(1000);
+		assertThat(stats.evictions()).isEqualTo(10 - stats.cachedWindows());
+		// The most recent window survived
+		cache.getStageOutput(1, start.plusDays(9), start.plusDays(9).plusHours(8), () -> null);
+		assertThat(cache.getStats().hits()).isEqualTo(1);
+	}
+
+}
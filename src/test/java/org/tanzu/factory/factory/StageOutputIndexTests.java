@@ -0,0 +1,104 @@
+package org.tanzu.factory.factory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class StageOutputIndexTests {
+
+	@Autowired
+	private StageOutputIndex outputIndex;
+
+	@Autowired
+	private ProductionMetricsRepository metricsRepository;
+
+	@Autowired
+	private ProductionMetricsWriter metricsWriter;
+
+	@Autowired
+	private DeviceHealthRegistry healthRegistry;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Value("${spring.datasource.hikari.maximum-pool-size}")
+	private int poolSize;
+
+	@Test
+	void indexedTotalsMatchSqlForAlignedWindows() {
+		LocalDateTime today = LocalDate.now().atStartOfDay();
+		List<Long> deviceIds = List.copyOf(healthRegistry.snapshot().deviceStages().keySet());
+		SplittableRandom random = new SplittableRandom(11);
+		// Readings on minute boundaries and in between, recorded after the index was loaded
+		for (int i = 0; i < 200; i++) {
+			LocalDateTime timestamp = today.minusDays(1).plusMinutes(random.nextInt(2 * 1440));
+			if (random.nextBoolean()) {
+				timestamp = timestamp.plusSeconds(random.nextInt(1, 60));
+			}
+			metricsWriter.write(List.of(new MetricReading(deviceIds.get(random.nextInt(deviceIds.size())),
+					timestamp, random.nextInt(1, 20), random.nextInt(3), 5.0)));
+		}
+
+		for (int i = 0; i < 100; i++) {
+			LocalDateTime start = today.minusDays(1).plusMinutes(random.nextInt(2 * 1440));
+			LocalDateTime end = start.plusMinutes(random.nextInt(0, 600));
+			assertThat(outputIndex.getOutputTotalsByStage(start, end)).isEqualTo(sql(start, end));
+		}
+
+		StageOutputTotals shift = outputIndex.getOutputTotalsForStage(1, today.plusHours(8), today.plusHours(16));
+		assertThat(shift).isEqualTo(sql(today.plusHours(8), today.plusHours(16)).get(0));
+	}
+
+	@Test
+	void windowsItCannotAnswerFallBackToSql() {
+		LocalDateTime today = LocalDate.now().atStartOfDay();
+
+		assertThat(outputIndex.getOutputTotalsByStage(today.plusSeconds(30), today.plusHours(1))).isNull();
+		assertThat(outputIndex.getOutputTotalsByStage(today.minusDays(400), today)).isNull();
+		assertThat(outputIndex.getOutputTotalsForStage(99, today, today.plusHours(1))).isNull();
+		assertThat(outputIndex.getStats().fallbackQueries()).isGreaterThanOrEqualTo(3);
+	}
+
+	private List<StageOutputTotals> sql(LocalDateTime start, LocalDateTime end) {
+		return metricsRepository.getOutputTotalsByStage(start, end, start, start);
+	}
+
+	@Test
+	void readingsAreNotBlockedWhileALoadWaitsForAConnection() throws Exception {
+		// Exhaust the pool, as recording transactions waiting on the index would
+		List<Connection> held = new ArrayList<>();
+		CompletableFuture<Void> load;
+		try {
+			for (int i = 0; i < poolSize; i++) {
+				held.add(dataSource.getConnection());
+			}
+			load = CompletableFuture.runAsync(outputIndex::load);
+			Thread.sleep(200);
+
+			// An unknown device leaves the totals alone but still needs the shared lock
+			CompletableFuture.runAsync(() -> outputIndex.onProductionMetricsRecorded(new ProductionMetricsRecordedEvent(
+					List.of(new MetricReading(-1L, LocalDateTime.now(), 1, 0, 5.0))))).get(2, TimeUnit.SECONDS);
+		} finally {
+			for (Connection connection : held) {
+				connection.close();
+			}
+		}
+		load.get(5, TimeUnit.SECONDS);
+		assertThat(outputIndex.getStats().loaded()).isTrue();
+	}
+
+}
@@ -0,0 +1,111 @@
+package org.tanzu.factory.factory;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.tanzu.factory.supplychain.SupplyChainService;
+import org.tanzu.factory.supplychain.SupplyChainStatusCache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The output cache and index are off so every call reaches the database
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"factory.output-cache.enabled=false",
+		"factory.output-index.enabled=false"
+})
+class StageOutputQueryCountTests {
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private SupplyChainService supplyChainService;
+
+	@Autowired
+	private SupplyChainStatusCache statusCache;
+
+	@Autowired
+	private ManufacturingStageRepository stageRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void resetStatistics() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void allStagesOutputUsesSingleQuery() {
+		LocalDateTime start = LocalDateTime.of(LocalDate.now(), LocalTime.of(8, 0));
+		List<ProductionOutputDto> outputs = factoryService.getAllStagesOutput(start, start.plusHours(8));
+
+		assertThat(outputs).hasSize((int) stageRepository.count());
+		assertThat(outputs).extracting(ProductionOutputDto::unitsProduced).allMatch(units -> units > 0);
+
+		statistics.clear();
+		factoryService.getAllStagesOutput(start, start.plusHours(8));
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void stageOutputUsesSingleQuery() {
+		LocalDateTime start = LocalDateTime.of(LocalDate.now(), LocalTime.of(8, 0));
+		ProductionOutputDto output = factoryService.getStageOutput(1, start, start.plusHours(8));
+
+		assertThat(output).isNotNull();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(factoryService.getStageOutput(99, start, start.plusHours(8))).isNull();
+	}
+
+	@Test
+	void supplyChainStatusQueryCountDoesNotDependOnStageCount() {
+		assertThat(supplyChainStatusStatements()).isEqualTo(2);
+
+		// Twice as many stages, none of them with readings yet
+		int stageCount = (int) stageRepository.count();
+		List<ManufacturingStage> added = new ArrayList<>();
+		for (int order = stageCount + 1; order <= 2 * stageCount; order++) {
+			added.add(new ManufacturingStage("Stage " + order, order, "Added by test"));
+		}
+		stageRepository.saveAll(added);
+		try {
+			// Daily target lookup plus the grouped stage aggregation, however many stages there are
+			assertThat(supplyChainStatusStatements()).isEqualTo(2);
+		} finally {
+			stageRepository.deleteAll(added);
+			statusCache.invalidate(LocalDate.now());
+		}
+	}
+
+	@Test
+	void cachedSupplyChainStatusNeedsNoQueries() {
+		supplyChainStatusStatements();
+
+		statistics.clear();
+		supplyChainService.getSupplyChainStatus(LocalDate.now());
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+	}
+
+	private long supplyChainStatusStatements() {
+		statusCache.invalidate(LocalDate.now());
+		statistics.clear();
+		supplyChainService.getSupplyChainStatus(LocalDate.now());
+		return statistics.getPrepareStatementCount();
+	}
+
+}
@@ -0,0 +1,107 @@
+package org.tanzu.factory.instrumentation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.DeviceHealthUpdateDto;
+import org.tanzu.factory.factory.FactoryController;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.supplychain.SupplyChainService;
+import org.tanzu.factory.supplychain.SupplyChainStatusCache;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class OperationInstrumentationTests {
+
+	@Autowired
+	private OperationStatsRegistry registry;
+
+	@Autowired
+	private FactoryController factoryController;
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private SupplyChainService supplyChainService;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private SupplyChainStatusCache statusCache;
+
+	@BeforeEach
+	void resetStatistics() {
+		registry.reset();
+	}
+
+	@Test
+	void toolCallsRecordStatementsButNotNestedTools() {
+		LocalDate today = LocalDate.now();
+		statusCache.invalidate(today);
+
+		supplyChainService.getSupplyChainStatus(today);
+
+		Map<String, OperationStatsDto> operations = operationsByName();
+		OperationStatsDto status = operations.get("SupplyChainService.getSupplyChainStatus");
+		assertThat(status.kind()).isEqualTo("mcp-tool");
+		assertThat(status.calls()).isEqualTo(1);
+		// The daily target lookup; today's shift output is served by the stage output index
+		assertThat(status.maxStatements()).isEqualTo(1);
+		// Called off the request path with response-size off, so the result is not serialized again to size it
+		assertThat(status.maxResponseBytes()).isZero();
+		// The stage output tool it calls internally is part of this call, not a separate one
+		assertThat(operations).doesNotContainKey("FactoryService.getAllStagesOutput");
+	}
+
+	@Test
+	void restEndpointsAreRecordedOnceWithResponseSize() throws Exception {
+		mockMvc.perform(get("/api/factory/stages/health"));
+		int bodyBytes = mockMvc.perform(get("/api/factory/stages/health"))
+				.andReturn().getResponse().getContentAsByteArray().length;
+
+		OperationStatsDto health = operationsByName().get("FactoryController.getAllStagesHealth");
+		assertThat(health.kind()).isEqualTo("rest");
+		assertThat(health.calls()).isEqualTo(2);
+		assertThat(health.errors()).isZero();
+		assertThat(health.maxStatements()).isZero();
+		// Counted as the body was written
+		assertThat(health.maxResponseBytes()).isEqualTo(bodyBytes);
+		// Called on the test's platform thread, so allocation is measurable
+		assertThat(health.maxAllocatedBytes()).isPositive();
+		assertThat(health.p99Millis()).isLessThanOrEqualTo(health.maxMillis());
+		assertThat(operationsByName()).doesNotContainKey("FactoryService.getManufacturingStagesHealth");
+	}
+
+	@Test
+	void jdbcTemplateStatementsAreCounted() {
+		DeviceHealthDto device = factoryService.getManufacturingStagesHealth().get(0).devices().get(0);
+
+		factoryController.updateDevicesHealth(List.of(new DeviceHealthUpdateDto(
+				device.id(), LocalDateTime.now(), device.operational(), device.healthScore())));
+
+		// Hibernate's sequence call and sample insert, then the hourly MERGE and device UPDATE through JdbcTemplate
+		assertThat(operationsByName().get("FactoryController.updateDevicesHealth").maxStatements()).isEqualTo(4);
+	}
+
+	private Map<String, OperationStatsDto> operationsByName() {
+		return registry.snapshot().stream()
+				.collect(Collectors.toMap(OperationStatsDto::operation, Function.identity()));
+	}
+
+}
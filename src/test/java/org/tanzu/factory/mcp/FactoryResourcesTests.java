@@ -0,0 +1,29 @@
+package org.tanzu.factory.mcp;
+
+import io.modelcontextprotocol.spec.McpError;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+@SpringBootTest
+class FactoryResourcesTests {
+
+	@Autowired
+	private FactoryResources resources;
+
+	@Test
+	void stageOutputForAMalformedOrUnknownStageIsNotFound() throws Exception {
+		assertThat(resources.getStageOutputToday("1")).contains("\"stageOrder\":1");
+
+		for (String stageOrder : new String[]{"first", "1.5", "", "99"}) {
+			McpError error = catchThrowableOfType(McpError.class, () -> resources.getStageOutputToday(stageOrder));
+			assertThat(error).as("stage order '%s'", stageOrder).isNotNull();
+			assertThat(error.getJsonRpcError().code()).isEqualTo(McpSchema.ErrorCodes.RESOURCE_NOT_FOUND);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.tanzu.factory.mcp;
+
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.spec.McpSchema;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.tanzu.factory.factory.DeviceHealthChangedEvent;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.supplychain.DailyTargetChangedEvent;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ResourceChangeNotifierTests {
+
+	@Autowired
+	private McpSyncServer mcpServer;
+
+	@Autowired
+	private DeviceHealthRegistry healthRegistry;
+
+	private final List<String> sent = new CopyOnWriteArrayList<>();
+
+	@Test
+	void aBurstOfChangesIsSentOnceWritesGoQuiet() throws InterruptedException {
+		ResourceChangeNotifier notifier = notifier(200, 10_000);
+		for (int i = 0; i < 5; i++) {
+			notifier.onDeviceHealthChanged(new DeviceHealthChangedEvent(1L, true, 90.0, LocalDateTime.now()));
+		}
+		notifier.sendPendingNotifications();
+		assertThat(sent).isEmpty();
+
+		Thread.sleep(250);
+		notifier.sendPendingNotifications();
+		notifier.sendPendingNotifications();
+		assertThat(sent).containsExactly(FactoryResources.STAGES_HEALTH_URI);
+	}
+
+	@Test
+	void aSustainedBurstIsSentAfterTheMaximumDelay() throws InterruptedException {
+		ResourceChangeNotifier notifier = notifier(200, 500);
+		long started = System.currentTimeMillis();
+		// Changes every 50 ms never leave the debounce period quiet
+		while (System.currentTimeMillis() - started < 800) {
+			notifier.onDeviceHealthChanged(new DeviceHealthChangedEvent(1L, true, 90.0, LocalDateTime.now()));
+			notifier.sendPendingNotifications();
+			if (System.currentTimeMillis() - started < 450) {
+				assertThat(sent).isEmpty();
+			}
+			Thread.sleep(50);
+		}
+		assertThat(sent).containsExactly(FactoryResources.STAGES_HEALTH_URI);
+	}
+
+	@Test
+	void todaysTargetChangeUpdatesTheSupplyChainStatus() {
+		ResourceChangeNotifier notifier = notifier(0, 10_000);
+		notifier.onDailyTargetChanged(new DailyTargetChangedEvent(LocalDate.now().plusDays(1)));
+		notifier.sendPendingNotifications();
+		assertThat(sent).isEmpty();
+
+		notifier.onDailyTargetChanged(new DailyTargetChangedEvent(LocalDate.now()));
+		notifier.sendPendingNotifications();
+		assertThat(sent).containsExactly(FactoryResources.SUPPLY_CHAIN_STATUS_URI);
+	}
+
+	// Records notifications instead of sending them to sessions
+	private ResourceChangeNotifier notifier(long debounceMillis, long maxDelayMillis) {
+		McpSyncServer recordingServer = new McpSyncServer(mcpServer.getAsyncServer()) {
+			@Override
+			public void notifyResourcesUpdated(McpSchema.ResourcesUpdatedNotification notification) {
+				sent.add(notification.uri());
+			}
+		};
+		StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("mcpServer", recordingServer));
+		return new ResourceChangeNotifier(beans.getBeanProvider(McpSyncServer.class), healthRegistry,
+				debounceMillis, maxDelayMillis);
+	}
+
+}
@@ -0,0 +1,161 @@
+package org.tanzu.factory.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.factory.ProductionOutputDto;
+import org.tanzu.factory.factory.StageHealthDto;
+import org.tanzu.factory.supplychain.SupplyChainService;
+import org.tanzu.factory.supplychain.SupplyChainStatusDto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class FactorySnapshotTests {
+
+	@Autowired
+	private FactorySnapshotService snapshotService;
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private SupplyChainService supplyChainService;
+
+	@Autowired
+	private FactorySnapshotController snapshotController;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private DashboardSnapshots dashboardSnapshots;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void snapshotMatchesTheSeparateTools() {
+		FactorySnapshotDto snapshot = snapshotService.getFactorySnapshot(false);
+		List<StageHealthDto> health = factoryService.getManufacturingStagesHealth();
+		SupplyChainStatusDto status = supplyChainService.getSupplyChainStatus(LocalDate.now());
+
+		assertThat(snapshot.dailyTarget()).isEqualTo(status.dailyTarget());
+		assertThat(snapshot.currentOutput()).isEqualTo(status.currentOutput());
+		assertThat(snapshot.onTrack()).isEqualTo(status.onTrack());
+		assertThat(snapshot.stages()).hasSameSizeAs(health);
+		assertThat(snapshot.totalDevices()).isEqualTo(health.stream().mapToInt(StageHealthDto::totalDevices).sum());
+
+		for (int i = 0; i < health.size(); i++) {
+			StageSnapshotDto stage = snapshot.stages().get(i);
+			assertThat(stage.stageId()).isEqualTo(health.get(i).stageId());
+			assertThat(stage.overallHealthScore()).isEqualTo(health.get(i).overallHealthScore());
+			assertThat(stage.devices()).isEqualTo(health.get(i).devices());
+
+			ProductionOutputDto output = status.stageOutputs().stream()
+					.filter(o -> o.stageOrder() == stage.stageOrder())
+					.findFirst()
+					.orElseThrow();
+			assertThat(stage.unitsProduced()).isEqualTo(output.unitsProduced());
+			assertThat(stage.defectiveUnits()).isEqualTo(output.defectiveUnits());
+		}
+	}
+
+	@Test
+	void compactSnapshotLeavesOutDevices() throws Exception {
+		String full = objectMapper.writeValueAsString(snapshotService.getFactorySnapshot(false));
+		String compact = objectMapper.writeValueAsString(snapshotService.getFactorySnapshot(true));
+
+		assertThat(full).contains("\"devices\"");
+		assertThat(compact).doesNotContain("\"devices\"");
+		assertThat(compact.length()).isLessThan(full.length());
+	}
+
+	@Test
+	void unchangedDashboardIsNotModified() {
+		ResponseEntity<DashboardSnapshotDto> first = snapshotController.getDashboard(null, null);
+		String eTag = first.getHeaders().getETag();
+
+		ResponseEntity<DashboardSnapshotDto> second = snapshotController.getDashboard(null, "W/" + eTag);
+
+		assertThat(second.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(second.getBody()).isNull();
+		assertThat(second.getHeaders().getETag()).isEqualTo(eTag);
+
+		// A delta is a different representation of the same version
+		ResponseEntity<DashboardSnapshotDto> delta = snapshotController.getDashboard(first.getBody().version(), null);
+		assertThat(delta.getHeaders().getETag()).isNotEqualTo(eTag);
+		assertThat(snapshotController.getDashboard(first.getBody().version(), "W/" + eTag).getStatusCode())
+				.isEqualTo(HttpStatus.OK);
+	}
+
+	@Test
+	void dashboardSinceAVersionListsOnlyChangedStagesAndDevices() {
+		DashboardSnapshotDto before = snapshotController.getDashboard(null, null).getBody();
+		StageSnapshotDto stage = before.factory().stages().get(1);
+		DeviceHealthDto device = stage.devices().get(0);
+
+		factoryService.updateDeviceHealth(device.id(), !device.operational(), 12.5);
+
+		DashboardSnapshotDto delta = snapshotController.getDashboard(before.version(), null).getBody();
+		assertThat(delta.version()).isNotEqualTo(before.version());
+		assertThat(delta.baseVersion()).isEqualTo(before.version());
+		assertThat(delta.factory().stages()).singleElement().satisfies(changed -> {
+			assertThat(changed.stageId()).isEqualTo(stage.stageId());
+			assertThat(changed.devices()).singleElement().satisfies(changedDevice -> {
+				assertThat(changedDevice.id()).isEqualTo(device.id());
+				assertThat(changedDevice.healthScore()).isEqualTo(12.5);
+			});
+		});
+
+		// Unknown versions, such as one from before a restart, get the full snapshot
+		DashboardSnapshotDto full = snapshotController.getDashboard("0-1", null).getBody();
+		assertThat(full.baseVersion()).isNull();
+		assertThat(full.factory().stages()).hasSameSizeAs(before.factory().stages());
+
+		factoryService.updateDeviceHealth(device.id(), device.operational(), device.healthScore());
+	}
+
+	@Test
+	void dashboardVersionMovesOnlyAfterTheStatusCacheIsInvalidated() {
+		LocalDate today = LocalDate.now();
+		int target = supplyChainService.getDailyTarget(today).getTargetUnits();
+		dashboardSnapshots.get(null);
+
+		// Runs the after-commit callbacks in order, with a dashboard request after each one
+		transactionTemplate.executeWithoutResult(status -> {
+			supplyChainService.setDailyTarget(today, target + 25);
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+			TransactionSynchronizationManager.clearSynchronization();
+			TransactionSynchronizationManager.initSynchronization();
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int completion) {
+					for (TransactionSynchronization synchronization : synchronizations) {
+						synchronization.afterCompletion(completion);
+						CompletableFuture.runAsync(() -> dashboardSnapshots.get(null)).join();
+					}
+				}
+			});
+		});
+
+		try {
+			assertThat(dashboardSnapshots.get(null).factory().dailyTarget()).isEqualTo(target + 25);
+		} finally {
+			supplyChainService.setDailyTarget(today, target);
+		}
+	}
+
+}
@@ -0,0 +1,211 @@
+package org.tanzu.factory.stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.tanzu.factory.factory.DeviceHealthDto;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.factory.StageHealthDto;
+import org.tanzu.factory.supplychain.SupplyChainService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Ticks and heartbeats are driven by the tests rather than the scheduler
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"factory.stream.tick-ms=3600000",
+		"factory.stream.heartbeat-ms=3600000",
+		"factory.stream.status-refresh-ms=3600000"
+})
+class FactoryEventStreamTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private FactoryEventStream eventStream;
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Autowired
+	private SupplyChainService supplyChainService;
+
+	@Test
+	void changesWithinATickAreCoalescedIntoOneEventPerKind() throws Exception {
+		try (Subscription subscription = subscribe()) {
+			subscription.skipInitialState();
+			// Changes from before the subscription, such as the seed data, go out in a tick of their own
+			eventStream.publishPendingChanges();
+			eventStream.sendHeartbeat();
+			subscription.skipToHeartbeat();
+
+			List<StageHealthDto> stages = factoryService.getManufacturingStagesHealth();
+			List<DeviceHealthDto> firstStageDevices = stages.get(0).devices();
+			for (int i = 0; i < 3; i++) {
+				factoryService.updateDeviceHealth(firstStageDevices.get(0).id(), true, 80.0 + i);
+				factoryService.updateDeviceHealth(firstStageDevices.get(1).id(), true, 70.0 + i);
+			}
+			factoryService.updateDeviceHealth(stages.get(1).devices().get(0).id(), true, 65.0);
+
+			eventStream.publishPendingChanges();
+			// Nothing is pending after the tick, so the heartbeat follows its events
+			eventStream.publishPendingChanges();
+			eventStream.sendHeartbeat();
+
+			List<String[]> events = subscription.eventsUntilHeartbeat();
+			// Health changes may also resolve or raise alerts, which go out in the same tick
+			assertThat(events).extracting(event -> event[0]).startsWith(
+					FactoryEventStream.STAGE_HEALTH, FactoryEventStream.DEVICE_HEALTH);
+			assertThat(events.subList(2, events.size())).extracting(event -> event[0])
+					.allMatch(FactoryEventStream.ALERT::equals)
+					.hasSizeLessThanOrEqualTo(1);
+			assertThat(events.get(0)[1]).contains("\"stageId\":" + stages.get(0).stageId(),
+					"\"stageId\":" + stages.get(1).stageId());
+			assertThat(events.get(1)[1].split("\"id\":", -1)).hasSize(4);
+			assertThat(events.get(1)[1]).contains("\"healthScore\":82.0", "\"healthScore\":72.0");
+		}
+	}
+
+	@Test
+	void targetChangesPushTheSupplyChainStatus() throws Exception {
+		LocalDate today = LocalDate.now();
+		int target = supplyChainService.getDailyTarget(today).getTargetUnits();
+		try (Subscription subscription = subscribe()) {
+			subscription.skipInitialState();
+			eventStream.publishPendingChanges();
+			eventStream.sendHeartbeat();
+			subscription.skipToHeartbeat();
+
+			supplyChainService.setDailyTarget(today, target + 40);
+			eventStream.publishPendingChanges();
+			eventStream.sendHeartbeat();
+
+			assertThat(subscription.eventsUntilHeartbeat()).singleElement().satisfies(event -> {
+				assertThat(event[0]).isEqualTo(FactoryEventStream.SUPPLY_CHAIN_STATUS);
+				assertThat(event[1]).contains("\"dailyTarget\":" + (target + 40));
+			});
+		} finally {
+			supplyChainService.setDailyTarget(today, target);
+		}
+	}
+
+	@Test
+	void closedSubscribersAreDroppedOnTheNextSend() throws Exception {
+		int before = eventStream.getSubscriberCount();
+		Subscription subscription = subscribe();
+		subscription.skipInitialState();
+		assertThat(eventStream.getSubscriberCount()).isEqualTo(before + 1);
+
+		subscription.close();
+		// The failed write may only surface after the socket buffer notices the reset
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (eventStream.getSubscriberCount() > before && System.currentTimeMillis() < deadline) {
+			eventStream.sendHeartbeat();
+			Thread.sleep(50);
+		}
+		// Subscribers closed by earlier tests may be dropped along the way
+		assertThat(eventStream.getSubscriberCount()).isLessThanOrEqualTo(before);
+	}
+
+	private Subscription subscribe() throws Exception {
+		HttpClient client = HttpClient.newHttpClient();
+		HttpResponse<Stream<String>> response = client.send(HttpRequest.newBuilder(
+						URI.create("http://localhost:" + port + "/api/stream"))
+				.header("Accept", "text/event-stream")
+				.build(), HttpResponse.BodyHandlers.ofLines());
+		assertThat(response.statusCode()).isEqualTo(200);
+		return new Subscription(client, response.body());
+	}
+
+	// Reads the event stream on its own thread, line by line
+	private static final class Subscription implements AutoCloseable {
+		private final HttpClient client;
+		private final Stream<String> body;
+		private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+
+		private Subscription(HttpClient client, Stream<String> body) {
+			this.client = client;
+			this.body = body;
+			Thread.ofVirtual().start(() -> {
+				try {
+					body.forEach(lines::add);
+				} catch (RuntimeException e) {
+					// Closed by the test
+				}
+			});
+		}
+
+		private String nextLine() throws InterruptedException {
+			String line = lines.poll(10, TimeUnit.SECONDS);
+			assertThat(line).as("next line of the event stream").isNotNull();
+			return line;
+		}
+
+		// Name and data of the next event
+		private String[] nextEvent() throws InterruptedException {
+			String name = null;
+			String data = null;
+			for (String line = nextLine(); !line.isEmpty(); line = nextLine()) {
+				if (line.startsWith("event:")) {
+					name = line.substring("event:".length());
+				} else if (line.startsWith("data:")) {
+					data = line.substring("data:".length());
+				}
+			}
+			return new String[]{name, data};
+		}
+
+		// A new subscriber first receives the full state, one event of each kind
+		private void skipInitialState() throws InterruptedException {
+			assertThat(nextEvent()[0]).isEqualTo(FactoryEventStream.STAGE_HEALTH);
+			assertThat(nextEvent()[0]).isEqualTo(FactoryEventStream.STAGE_OUTPUT);
+			assertThat(nextEvent()[0]).isEqualTo(FactoryEventStream.SUPPLY_CHAIN_STATUS);
+			assertThat(nextEvent()[0]).isEqualTo(FactoryEventStream.ALERT);
+		}
+
+		// Events up to the next heartbeat comment, which is consumed
+		private List<String[]> eventsUntilHeartbeat() throws InterruptedException {
+			List<String[]> events = new ArrayList<>();
+			String name = null;
+			String data = null;
+			for (String line = nextLine(); !line.equals(":heartbeat"); line = nextLine()) {
+				if (line.startsWith("event:")) {
+					name = line.substring("event:".length());
+				} else if (line.startsWith("data:")) {
+					data = line.substring("data:".length());
+				} else if (line.isEmpty()) {
+					events.add(new String[]{name, data});
+				}
+			}
+			assertThat(nextLine()).isEmpty();
+			return events;
+		}
+
+		// Skips past the next heartbeat comment and the blank line ending it
+		private void skipToHeartbeat() throws InterruptedException {
+			while (!nextLine().equals(":heartbeat")) {
+			}
+			assertThat(nextLine()).isEmpty();
+		}
+
+		@Override
+		public void close() {
+			body.close();
+			client.shutdownNow();
+		}
+	}
+
+}
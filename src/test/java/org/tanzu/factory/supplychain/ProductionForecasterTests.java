@@ -0,0 +1,58 @@
+package org.tanzu.factory.supplychain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.tanzu.factory.factory.DeviceHealthRegistry;
+import org.tanzu.factory.factory.ProductionMetricsHourlyRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ProductionForecasterTests {
+
+	@Autowired
+	private SupplyChainService supplyChainService;
+
+	@Autowired
+	private DeviceHealthRegistry healthRegistry;
+
+	@Autowired
+	private ProductionMetricsHourlyRepository hourlyRepository;
+
+	@Test
+	void finishedShiftForecastsItsActualOutput() {
+		LocalDate date = LocalDate.now().minusDays(1);
+		SupplyChainStatusDto status = supplyChainService.getSupplyChainStatus(date);
+
+		EndOfDayForecastDto forecast = supplyChainService.getEndOfDayForecast(date);
+
+		assertThat(forecast.remainingShiftHours()).isZero();
+		assertThat(forecast.p10Output()).isEqualTo(status.currentOutput());
+		assertThat(forecast.p90Output()).isEqualTo(status.currentOutput());
+		assertThat(forecast.onTrackProbability()).isEqualTo(status.currentOutput() >= status.dailyTarget() ? 1.0 : 0.0);
+	}
+
+	@Test
+	void upcomingShiftForecastIsSpreadAndRepeatableWithASeed() {
+		LocalDate tomorrow = LocalDate.now().plusDays(1);
+		SupplyChainStatusDto status = supplyChainService.getSupplyChainStatus(tomorrow);
+		LocalDateTime now = LocalDateTime.of(tomorrow.minusDays(1), SupplyChainService.SHIFT_END);
+		ProductionForecaster forecaster = new ProductionForecaster(healthRegistry, hourlyRepository,
+				2000, 4_000_000, 14, 0.2, 0.25, 42L);
+
+		EndOfDayForecastDto forecast = forecaster.forecast(status, now);
+
+		assertThat(forecast.remainingShiftHours()).isEqualTo(8.0);
+		assertThat(forecast.trials()).isEqualTo(2000);
+		assertThat(forecast.p50Output()).isPositive();
+		assertThat(forecast.p10Output()).isLessThanOrEqualTo(forecast.p50Output());
+		assertThat(forecast.p50Output()).isLessThanOrEqualTo(forecast.p90Output());
+		assertThat(forecast.onTrackProbability()).isBetween(0.0, 1.0);
+		assertThat(forecaster.forecast(status, now)).isEqualTo(forecast);
+	}
+
+}
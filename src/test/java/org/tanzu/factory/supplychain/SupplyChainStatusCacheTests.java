@@ -0,0 +1,66 @@
+package org.tanzu.factory.supplychain;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.tanzu.factory.factory.FactoryService;
+import org.tanzu.factory.factory.ProductionMetricsReadingDto;
+import org.tanzu.factory.factory.StageHealthDto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SupplyChainStatusCacheTests {
+
+	@Autowired
+	private SupplyChainService supplyChainService;
+
+	@Autowired
+	private FactoryService factoryService;
+
+	@Test
+	void targetChangeInvalidatesOnlyThatDate() {
+		LocalDate date = LocalDate.now().minusDays(10);
+		supplyChainService.getSupplyChainStatus(date);
+		supplyChainService.getSupplyChainStatus(date.minusDays(1));
+
+		supplyChainService.setDailyTarget(date, 321);
+
+		StatusCacheStatsDto before = supplyChainService.getStatusCacheStats();
+		assertThat(supplyChainService.getSupplyChainStatus(date).dailyTarget()).isEqualTo(321);
+		supplyChainService.getSupplyChainStatus(date.minusDays(1));
+		StatusCacheStatsDto after = supplyChainService.getStatusCacheStats();
+
+		assertThat(after.misses() - before.misses()).isEqualTo(1);
+		assertThat(after.hits() - before.hits()).isEqualTo(1);
+	}
+
+	@Test
+	void readingsInsideTheShiftInvalidateThatDate() {
+		LocalDate date = LocalDate.now().minusDays(20);
+		int before = supplyChainService.getSupplyChainStatus(date).currentOutput();
+
+		StageHealthDto finalStage = factoryService.getManufacturingStagesHealth().stream()
+				.max((a, b) -> Integer.compare(a.sequenceOrder(), b.sequenceOrder()))
+				.orElseThrow();
+		Long deviceId = finalStage.devices().get(0).id();
+
+		// Outside the shift window: cached status stays valid
+		factoryService.recordProductionMetricsBatch(List.of(new ProductionMetricsReadingDto(
+				deviceId, LocalDateTime.of(date, LocalTime.of(20, 0)), 5, 0, 4.0)));
+		long invalidations = supplyChainService.getStatusCacheStats().invalidations();
+		assertThat(supplyChainService.getSupplyChainStatus(date).currentOutput()).isEqualTo(before);
+
+		factoryService.recordProductionMetricsBatch(List.of(new ProductionMetricsReadingDto(
+				deviceId, LocalDateTime.of(date, LocalTime.of(10, 30)), 5, 1, 4.0)));
+
+		assertThat(supplyChainService.getStatusCacheStats().invalidations()).isEqualTo(invalidations + 1);
+		assertThat(supplyChainService.getSupplyChainStatus(date).currentOutput()).isEqualTo(before + 4);
+	}
+
+}